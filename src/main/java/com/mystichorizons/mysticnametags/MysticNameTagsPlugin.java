@@ -25,6 +25,9 @@ import com.mystichorizons.mysticnametags.stats.systems.BlockBreakStatSystem;
 import com.mystichorizons.mysticnametags.stats.systems.BlockPlaceStatSystem;
 import com.mystichorizons.mysticnametags.stats.systems.DamageStatSystem;
 import com.mystichorizons.mysticnametags.stats.systems.DeathStatSystem;
+import com.mystichorizons.mysticnametags.storage.FolderMigration;
+import com.mystichorizons.mysticnametags.storage.SqlConnectionPool;
+import com.mystichorizons.mysticnametags.storage.WarmRestartSnapshot;
 import com.mystichorizons.mysticnametags.tags.TagManager;
 import com.mystichorizons.mysticnametags.util.MysticLog;
 import com.mystichorizons.mysticnametags.util.UpdateChecker;
@@ -52,6 +55,7 @@ public class MysticNameTagsPlugin extends JavaPlugin {
     private PluginManifest manifest;
 
     private PlaytimeService playtimeService;
+    private PlayerListener playerListener;
 
     private volatile boolean endlessLevelingSystemRegistered = false;
 
@@ -91,6 +95,7 @@ public class MysticNameTagsPlugin extends JavaPlugin {
     @Override
     protected void setup() {
         LOGGER.at(Level.INFO).log("[MysticNameTags] Setting up...");
+        long setupStart = System.nanoTime();
 
         this.manifest = this.getManifest();
 
@@ -119,14 +124,28 @@ public class MysticNameTagsPlugin extends JavaPlugin {
         // ------------------------------------------------------
         // Core config + language
         // ------------------------------------------------------
+        long configStart = System.nanoTime();
         Settings.init();
         LanguageManager.init();
 
         // ------------------------------------------------------
         // Tags + ECS systems + commands + listeners
         // ------------------------------------------------------
+        long tagsStart = System.nanoTime();
         TagManager.init(integrations);
+        long statsStart = System.nanoTime();
         PlayerStatManager.init(this.integrations);
+        PlayerStatManager stats = PlayerStatManager.get();
+        if (stats != null) {
+            // Stat changes drop only the canUse decisions that read them.
+            stats.addListener(TagManager.get()::onStatChanged);
+            // Increases that reach a tag's stat requirement announce the unlock.
+            stats.setThresholdWatcher(TagManager.get().getThresholdWatcher());
+            // Wildcard requirement keys get running per-player totals.
+            stats.registerAggregatePatterns(TagManager.get().getRegistry().wildcardStatKeys());
+        }
+        WarmRestartSnapshot.restore(getDataDirectory().toFile());
+        long registerStart = System.nanoTime();
 
         // Register commands
         registerCommands();
@@ -137,7 +156,12 @@ public class MysticNameTagsPlugin extends JavaPlugin {
         // Register ECS systems (playtime + block/damage/death)
         registerEcsSystems();
 
-        LOGGER.at(Level.INFO).log("[MysticNameTags] Setup complete!");
+        long end = System.nanoTime();
+        LOGGER.at(Level.INFO).log("[MysticNameTags] Setup complete in " + (end - setupStart) / 1_000_000L
+                + "ms (config " + (tagsStart - configStart) / 1_000_000L
+                + "ms, tags " + (statsStart - tagsStart) / 1_000_000L
+                + "ms, stats " + (registerStart - statsStart) / 1_000_000L
+                + "ms, registration " + (end - registerStart) / 1_000_000L + "ms)");
     }
 
     private void registerCommands() {
@@ -164,7 +188,8 @@ public class MysticNameTagsPlugin extends JavaPlugin {
         EventRegistry eventBus = getEventRegistry();
 
         try {
-            new PlayerListener(playtimeService).register(eventBus);
+            this.playerListener = new PlayerListener(playtimeService);
+            this.playerListener.register(eventBus);
             LOGGER.at(Level.INFO).log("[MysticNameTags] Registered player event listeners");
         } catch (Exception e) {
             LOGGER.at(Level.WARNING)
@@ -298,11 +323,44 @@ public class MysticNameTagsPlugin extends JavaPlugin {
         } catch (Throwable ignored) {
             LOGGER.at(Level.WARNING).log("[MysticNameTags] Failed to stop PlaytimeService");
         }
+        // Copy the hot caches before the managers release them; written
+        // once their stores are flushed below.
+        WarmRestartSnapshot warmSnapshot = null;
+        try {
+            warmSnapshot = WarmRestartSnapshot.capture();
+        } catch (Throwable t) {
+            LOGGER.at(Level.WARNING).withCause(t).log("[MysticNameTags] Failed to capture warm-restart snapshot");
+        }
+        try {
+            if (playerListener != null) {
+                playerListener.shutdown();
+            }
+        } catch (Throwable ignored) {
+            LOGGER.at(Level.WARNING).log("[MysticNameTags] Failed to stop player data prefetch");
+        }
+        try {
+            TagManager.shutdown();
+        } catch (Throwable ignored) {
+            LOGGER.at(Level.WARNING).log("[MysticNameTags] Failed to flush TagManager saves");
+        }
         try {
             PlayerStatManager.shutdownGlobal();
         } catch (Throwable ignored) {
             LOGGER.at(Level.WARNING).log("[MysticNameTags] Failed to stop PlayerStatManager");
         }
+        if (warmSnapshot != null) {
+            warmSnapshot.write(getDataDirectory().toFile());
+        }
+        try {
+            FolderMigration.stopAll();
+        } catch (Throwable ignored) {
+            LOGGER.at(Level.WARNING).log("[MysticNameTags] Failed to pause FILE -> SQL migration");
+        }
+        try {
+            SqlConnectionPool.closeAll();
+        } catch (Throwable ignored) {
+            LOGGER.at(Level.WARNING).log("[MysticNameTags] Failed to close SQL connection pools");
+        }
         try {
             NameplateManager.get().clearAll();
         } catch (Throwable t) {
@@ -419,7 +477,10 @@ public class MysticNameTagsPlugin extends JavaPlugin {
                     .log("[MysticNameTags] Failed to re-initialize integrations during reload.");
         }
 
-        // 4) Reload tags.json and refresh all online nameplates
+        // 4) Reload tags.json and refresh all online nameplates.
+        // Gate settings / backends may have changed, so every canUse
+        // decision is recomputed.
+        TagManager.get().clearAllCanUseCaches();
         TagManager.reload();
 
         // 5) Restart RPGLeveling scheduler based on *current* settings
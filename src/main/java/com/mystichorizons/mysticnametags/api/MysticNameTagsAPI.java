@@ -162,6 +162,15 @@ public final class MysticNameTagsAPI {
         return mgr().canUseTag(ref, uuid, def);
     }
 
+    /**
+     * Registers a listener called when a stat increase makes an online
+     * player eligible for a tag they don't own yet (all requirements met).
+     * Called on a MysticNameTags background thread.
+     */
+    public static void addTagUnlockListener(@Nonnull TagManager.TagUnlockListener listener) {
+        mgr().addUnlockListener(listener);
+    }
+
     /**
      * Equip a tag the player already owns. This does not attempt to purchase it.
      *
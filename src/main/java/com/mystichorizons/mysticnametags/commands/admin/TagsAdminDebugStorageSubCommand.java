@@ -5,7 +5,10 @@ import com.mystichorizons.mysticnametags.MysticNameTagsPlugin;
 import com.mystichorizons.mysticnametags.commands.AbstractTagsAdminSubCommand;
 import com.mystichorizons.mysticnametags.config.LanguageManager;
 import com.mystichorizons.mysticnametags.config.Settings;
+import com.mystichorizons.mysticnametags.storage.ShardedPlayerFiles;
+import com.mystichorizons.mysticnametags.tags.PlayerTagCache;
 import com.mystichorizons.mysticnametags.tags.StorageBackend;
+import com.mystichorizons.mysticnametags.tags.TagManager;
 
 import javax.annotation.Nonnull;
 import java.io.File;
@@ -50,9 +53,11 @@ public class TagsAdminDebugStorageSubCommand extends AbstractTagsAdminSubCommand
                         .append("&r\n");
 
                 if (playerDataFolder.exists() && playerDataFolder.isDirectory()) {
-                    File[] jsonFiles = playerDataFolder.listFiles((dir, name) -> name.endsWith(".json"));
-                    int count = (jsonFiles != null) ? jsonFiles.length : 0;
-                    sb.append("&7JSON files: &f").append(count).append("&r\n");
+                    // Read from the player index instead of walking the sharded tree.
+                    int count = ShardedPlayerFiles.readIndexedCount(playerDataFolder);
+                    sb.append("&7Indexed players: &f")
+                            .append(count >= 0 ? String.valueOf(count) : "not indexed yet")
+                            .append("&r\n");
                 }
 
                 // Also show if a migrated folder exists
@@ -102,6 +107,17 @@ public class TagsAdminDebugStorageSubCommand extends AbstractTagsAdminSubCommand
             }
         }
 
+        TagManager tagManager = TagManager.get();
+        if (tagManager != null) {
+            PlayerTagCache.CacheStats cache = tagManager.getPlayerCacheStats();
+            sb.append("&7Tag cache: &f").append(cache.size()).append(" players &7(pinned: &f")
+                    .append(cache.pinned()).append("&7)&r\n");
+            sb.append("&7Tag cache hits: &f").append(cache.hits())
+                    .append(" &7/ misses: &f").append(cache.misses())
+                    .append(" &7/ evictions: &f").append(cache.evictions())
+                    .append("&r\n");
+        }
+
         context.sender().sendMessage(colored(sb.toString()));
     }
 }
@@ -5,10 +5,13 @@ import com.mystichorizons.mysticnametags.MysticNameTagsPlugin;
 import com.mystichorizons.mysticnametags.commands.AbstractTagsAdminSubCommand;
 import com.mystichorizons.mysticnametags.config.LanguageManager;
 import com.mystichorizons.mysticnametags.config.Settings;
+import com.mystichorizons.mysticnametags.storage.FolderMigration;
+import com.mystichorizons.mysticnametags.storage.SqlConnectionPool;
 import com.mystichorizons.mysticnametags.tags.StorageBackend;
 
 import javax.annotation.Nonnull;
 import java.io.File;
+import java.util.Locale;
 import java.util.Map;
 
 public class TagsAdminStorageSubCommand extends AbstractTagsAdminSubCommand {
@@ -61,6 +64,8 @@ public class TagsAdminStorageSubCommand extends AbstractTagsAdminSubCommand {
                 sb.append("&7Exists: ")
                         .append(sqliteFile.exists() ? "&aYES" : "&cNO")
                         .append("&r\n");
+                appendPoolStats(sb);
+                appendMigrations(sb);
                 break;
             }
 
@@ -74,10 +79,47 @@ public class TagsAdminStorageSubCommand extends AbstractTagsAdminSubCommand {
                 sb.append("&7MySQL Port: &f").append(port).append("&r\n");
                 sb.append("&7MySQL Database: &f").append(db).append("&r\n");
                 sb.append("&7MySQL User: &f").append(user).append("&r\n");
+                appendPoolStats(sb);
+                appendMigrations(sb);
                 break;
             }
         }
 
         context.sender().sendMessage(colored(sb.toString()));
     }
+
+    private void appendMigrations(@Nonnull StringBuilder sb) {
+        for (FolderMigration.Progress p : FolderMigration.getProgress()) {
+            int percent = p.total() == 0 ? 100 : (int) (p.migrated() * 100L / p.total());
+            sb.append("&7Migration (").append(p.name()).append("): &f")
+                    .append(p.state().name()).append(" &7- &f")
+                    .append(p.migrated()).append("/").append(p.total())
+                    .append(" &7(").append(percent).append("%, on load: &f").append(p.claimed())
+                    .append("&7, unreadable: &f").append(p.skipped())
+                    .append("&7, ").append(p.elapsedMs() / 1000L).append("s)&r\n");
+        }
+    }
+
+    private void appendPoolStats(@Nonnull StringBuilder sb) {
+        for (SqlConnectionPool pool : SqlConnectionPool.getSharedPools()) {
+            SqlConnectionPool.PoolStats stats = pool.getStats();
+
+            sb.append("&7Pool: &factive ").append(stats.active())
+                    .append(" &7/ &fidle ").append(stats.idle())
+                    .append(" &7/ &fmax ").append(stats.maxSize())
+                    .append("&r\n");
+            sb.append("&7Pool wait: &favg ").append(String.format(Locale.ROOT, "%.2f", stats.avgWaitMs()))
+                    .append("ms &7/ &fmax ").append(String.format(Locale.ROOT, "%.2f", stats.maxWaitMs()))
+                    .append("ms &7(timeouts: &f").append(stats.timeouts()).append("&7)&r\n");
+            sb.append("&7Pool connections: &fopened ").append(stats.created())
+                    .append(" &7/ &fevicted ").append(stats.evicted())
+                    .append(" &7/ &fborrows ").append(stats.borrows())
+                    .append("&r\n");
+
+            if (pool.isSqliteTuned()) {
+                sb.append("&7SQLite mode: &fWAL, single writer &7(queued writes: &f")
+                        .append(pool.getQueuedWrites()).append("&7)&r\n");
+            }
+        }
+    }
 }
@@ -607,6 +607,7 @@ public final class LanguageManager {
         defaults.put("tags.transaction_failed", "Transaction failed. Please try again.");
         defaults.put("tags.requirements_not_met", "You do not meet the requirements for that tag.");
         defaults.put("tags.equip_cooldown", "You must wait {seconds}s before equipping another tag.");
+        defaults.put("tags.now_available", "You can now unlock {tag}! Open /tags to claim it.");
 
         return defaults;
     }
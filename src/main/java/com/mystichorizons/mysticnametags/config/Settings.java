@@ -41,6 +41,12 @@ public final class Settings {
      */
     private int tagDelaysecs = 20;
 
+    /**
+     * Notify online players the moment a stat increase makes them eligible
+     * for a stat-gated tag.
+     */
+    private boolean notifyOnTagUnlock = true;
+
     // ---------------------------------------------------------------------
     // Storage backend (FILE / SQLITE / MYSQL)
     // ---------------------------------------------------------------------
@@ -57,6 +63,67 @@ public final class Settings {
     private String mysqlUser = "root";
     private String mysqlPassword = "password";
 
+    /**
+     * Write-behind delay for player tag saves (ms). Equips / unlocks only mark
+     * the player dirty; a background writer persists them within this window.
+     */
+    private int tagSaveDelayMs = 1000;
+
+    /**
+     * Player tag cache: online players always stay loaded; offline entries
+     * are dropped after tagCacheTtlSeconds idle, or least recently used
+     * first once there are more than tagCacheMaxOffline of them.
+     */
+    private int tagCacheMaxOffline = 1000;
+    private int tagCacheTtlSeconds = 300;
+
+    /**
+     * Write-behind for player stats. Increments only touch memory; changed
+     * players are written at most statSaveMaxStalenessMs after their first
+     * change, on quit and on shutdown, statSaveMaxBatch players per write.
+     */
+    private int statSaveMaxStalenessMs = 10_000;
+    private int statSaveMaxBatch = 200;
+
+    // SQL connection pool (SQLITE / MYSQL)
+    private int sqlPoolSize = 4;
+    private int sqlPoolIdleTimeoutSeconds = 300;
+    private int sqlPoolBorrowTimeoutMs = 5000;
+
+    /**
+     * Use one row per owned tag / stat instead of a JSON blob per player.
+     * Existing blob rows are migrated on first start with this enabled.
+     */
+    private boolean sqlNormalizedSchema = false;
+
+    /**
+     * SQLite only: WAL journal, synchronous=NORMAL, one writer connection on
+     * its own thread, read-only reader connections, cached statements.
+     */
+    private boolean sqliteTunedMode = false;
+
+    /**
+     * FILE only: append tag changes to playerdata/<uuid>.log and fold them
+     * into the JSON snapshot every fileJournalCompactEvery records.
+     */
+    private boolean fileJournalMode = false;
+    private int fileJournalCompactEvery = 50;
+
+    /**
+     * Stats encoding per backend: JSON or BINARY (compact varint format).
+     * Loads accept either, so switching back and forth is safe. Ignored by
+     * the normalized SQL schema, which stores one row per stat.
+     */
+    private String fileStatsFormat = "JSON";
+    private String sqlStatsFormat = "JSON";
+
+    /**
+     * Online players' tag ownership and stats are snapshotted on shutdown and
+     * loaded back into the caches on a restart within this many seconds
+     * (0 = off). Not used with MYSQL, which other servers may write to.
+     */
+    private int warmRestartMaxAgeSeconds = 300;
+
     // Playtime Setup
     private String playtimeProvider = "AUTO"; // AUTO, INTERNAL, ZIB_PLAYTIME, NONE
 
@@ -190,6 +257,7 @@ public final class Settings {
                 this.stripExtraSpaces = loaded.stripExtraSpaces;
                 this.language = nonBlankOr(loaded.language, this.language);
                 this.tagDelaysecs = Math.max(0, loaded.tagDelaysecs);
+                this.notifyOnTagUnlock = loaded.notifyOnTagUnlock;
 
                 // Storage
                 this.storageBackend = nonBlankOr(loaded.storageBackend, this.storageBackend);
@@ -200,6 +268,21 @@ public final class Settings {
                 this.mysqlDatabase = nonBlankOr(loaded.mysqlDatabase, this.mysqlDatabase);
                 this.mysqlUser = nonBlankOr(loaded.mysqlUser, this.mysqlUser);
                 this.mysqlPassword = (loaded.mysqlPassword == null ? this.mysqlPassword : loaded.mysqlPassword);
+                this.tagSaveDelayMs = loaded.tagSaveDelayMs;
+                this.tagCacheMaxOffline = loaded.tagCacheMaxOffline;
+                this.tagCacheTtlSeconds = loaded.tagCacheTtlSeconds;
+                this.statSaveMaxStalenessMs = loaded.statSaveMaxStalenessMs;
+                this.statSaveMaxBatch = loaded.statSaveMaxBatch;
+                this.sqlPoolSize = loaded.sqlPoolSize;
+                this.sqlPoolIdleTimeoutSeconds = loaded.sqlPoolIdleTimeoutSeconds;
+                this.sqlPoolBorrowTimeoutMs = loaded.sqlPoolBorrowTimeoutMs;
+                this.sqlNormalizedSchema = loaded.sqlNormalizedSchema;
+                this.sqliteTunedMode = loaded.sqliteTunedMode;
+                this.fileJournalMode = loaded.fileJournalMode;
+                this.fileJournalCompactEvery = loaded.fileJournalCompactEvery;
+                this.fileStatsFormat = nonBlankOr(loaded.fileStatsFormat, this.fileStatsFormat);
+                this.sqlStatsFormat = nonBlankOr(loaded.sqlStatsFormat, this.sqlStatsFormat);
+                this.warmRestartMaxAgeSeconds = loaded.warmRestartMaxAgeSeconds;
 
                 // Playtime
                 this.playtimeProvider = nonBlankOr(loaded.playtimeProvider, this.playtimeProvider);
@@ -306,6 +389,46 @@ public final class Settings {
         this.endlessPrestigePrefix = nonBlankOr(this.endlessPrestigePrefix, "P");
         if (!safeEquals(before, this.endlessPrestigePrefix)) dirty = true;
 
+        int oldSaveDelay = this.tagSaveDelayMs;
+        this.tagSaveDelayMs = getTagSaveDelayMs();
+        if (oldSaveDelay != this.tagSaveDelayMs) dirty = true;
+
+        int oldCacheMax = this.tagCacheMaxOffline;
+        this.tagCacheMaxOffline = getTagCacheMaxOffline();
+        if (oldCacheMax != this.tagCacheMaxOffline) dirty = true;
+
+        int oldCacheTtl = this.tagCacheTtlSeconds;
+        this.tagCacheTtlSeconds = getTagCacheTtlSeconds();
+        if (oldCacheTtl != this.tagCacheTtlSeconds) dirty = true;
+
+        int oldStatStaleness = this.statSaveMaxStalenessMs;
+        this.statSaveMaxStalenessMs = getStatSaveMaxStalenessMs();
+        if (oldStatStaleness != this.statSaveMaxStalenessMs) dirty = true;
+
+        int oldStatBatch = this.statSaveMaxBatch;
+        this.statSaveMaxBatch = getStatSaveMaxBatch();
+        if (oldStatBatch != this.statSaveMaxBatch) dirty = true;
+
+        int oldPoolSize = this.sqlPoolSize;
+        this.sqlPoolSize = getSqlPoolSize();
+        if (oldPoolSize != this.sqlPoolSize) dirty = true;
+
+        int oldPoolIdle = this.sqlPoolIdleTimeoutSeconds;
+        this.sqlPoolIdleTimeoutSeconds = getSqlPoolIdleTimeoutSeconds();
+        if (oldPoolIdle != this.sqlPoolIdleTimeoutSeconds) dirty = true;
+
+        int oldCompact = this.fileJournalCompactEvery;
+        this.fileJournalCompactEvery = getFileJournalCompactEvery();
+        if (oldCompact != this.fileJournalCompactEvery) dirty = true;
+
+        int oldWarmAge = this.warmRestartMaxAgeSeconds;
+        this.warmRestartMaxAgeSeconds = getWarmRestartMaxAgeSeconds();
+        if (oldWarmAge != this.warmRestartMaxAgeSeconds) dirty = true;
+
+        int oldPoolBorrow = this.sqlPoolBorrowTimeoutMs;
+        this.sqlPoolBorrowTimeoutMs = getSqlPoolBorrowTimeoutMs();
+        if (oldPoolBorrow != this.sqlPoolBorrowTimeoutMs) dirty = true;
+
         int oldDelay = this.tagDelaysecs;
         this.tagDelaysecs = Math.max(0, this.tagDelaysecs);
         if (oldDelay != this.tagDelaysecs) dirty = true;
@@ -419,16 +542,32 @@ public final class Settings {
                         "nameplateFormat supports /n for a new line",
                         "stripExtraSpaces = condense multiple spaces",
                         "language = locale bundle (e.g. en_US)",
-                        "tagDelaysecs = cooldown (seconds) before equipping a DIFFERENT tag again (0 = off)"
+                        "tagDelaysecs = cooldown (seconds) before equipping a DIFFERENT tag again (0 = off)",
+                        "notifyOnTagUnlock = tell players when reaching a stat requirement unlocks a tag"
                 );
                 copy.accept("nameplateFormat");
                 copy.accept("stripExtraSpaces");
                 copy.accept("language");
                 copy.accept("tagDelaysecs");
+                copy.accept("notifyOnTagUnlock");
 
                 addInfoBlock(out, "__storage",
                         "Storage backend for tag ownership data.",
-                        "storageBackend = FILE / SQLITE / MYSQL"
+                        "storageBackend = FILE / SQLITE / MYSQL",
+                        "tagSaveDelayMs = max delay before queued tag changes are written (50 - 60000)",
+                        "tagCacheMaxOffline = offline players kept in the tag cache (0 - 100000)",
+                        "tagCacheTtlSeconds = idle time before an offline player leaves the tag cache (5 - 86400)",
+                        "statSaveMaxStalenessMs = max delay before changed stats are written; also flushed on quit / shutdown (100 - 600000)",
+                        "statSaveMaxBatch = players per stats write batch (1 - 10000)",
+                        "sqlPoolSize = max pooled SQL connections shared by tags + stats (1 - 32)",
+                        "sqlPoolIdleTimeoutSeconds = close pooled connections idle longer than this",
+                        "sqlPoolBorrowTimeoutMs = max wait for a free pooled connection",
+                        "sqlNormalizedSchema = one SQL row per owned tag / stat, stats written as deltas (one-way migration from JSON rows)",
+                        "sqliteTunedMode = SQLite WAL mode with a single writer thread and read-only readers",
+                        "fileJournalMode = FILE backend appends tag changes to a per-player journal",
+                        "fileJournalCompactEvery = journal records before folding into the snapshot (1 - 10000)",
+                        "fileStatsFormat / sqlStatsFormat = JSON or BINARY stats encoding (reads accept both)",
+                        "warmRestartMaxAgeSeconds = reuse the shutdown cache snapshot if restarted within this time (0 = off, max 86400; not used with MYSQL)"
                 );
                 copy.accept("storageBackend");
                 copy.accept("sqliteFile");
@@ -437,6 +576,21 @@ public final class Settings {
                 copy.accept("mysqlDatabase");
                 copy.accept("mysqlUser");
                 copy.accept("mysqlPassword");
+                copy.accept("tagSaveDelayMs");
+                copy.accept("tagCacheMaxOffline");
+                copy.accept("tagCacheTtlSeconds");
+                copy.accept("statSaveMaxStalenessMs");
+                copy.accept("statSaveMaxBatch");
+                copy.accept("sqlPoolSize");
+                copy.accept("sqlPoolIdleTimeoutSeconds");
+                copy.accept("sqlPoolBorrowTimeoutMs");
+                copy.accept("sqlNormalizedSchema");
+                copy.accept("sqliteTunedMode");
+                copy.accept("fileJournalMode");
+                copy.accept("fileJournalCompactEvery");
+                copy.accept("fileStatsFormat");
+                copy.accept("sqlStatsFormat");
+                copy.accept("warmRestartMaxAgeSeconds");
 
                 addInfoBlock(out, "__nameplates",
                         "Nameplate behavior.",
@@ -654,6 +808,66 @@ public final class Settings {
         return mysqlPassword == null ? "" : mysqlPassword;
     }
 
+    public int getTagSaveDelayMs() {
+        return Math.max(50, Math.min(60_000, tagSaveDelayMs));
+    }
+
+    public int getTagCacheMaxOffline() {
+        return Math.max(0, Math.min(100_000, tagCacheMaxOffline));
+    }
+
+    public int getTagCacheTtlSeconds() {
+        return Math.max(5, Math.min(86_400, tagCacheTtlSeconds));
+    }
+
+    public int getStatSaveMaxStalenessMs() {
+        return Math.max(100, Math.min(600_000, statSaveMaxStalenessMs));
+    }
+
+    public int getStatSaveMaxBatch() {
+        return Math.max(1, Math.min(10_000, statSaveMaxBatch));
+    }
+
+    public int getSqlPoolSize() {
+        return Math.max(1, Math.min(32, sqlPoolSize));
+    }
+
+    public int getSqlPoolIdleTimeoutSeconds() {
+        return Math.max(10, sqlPoolIdleTimeoutSeconds);
+    }
+
+    public int getSqlPoolBorrowTimeoutMs() {
+        return Math.max(100, sqlPoolBorrowTimeoutMs);
+    }
+
+    public boolean isSqlNormalizedSchema() {
+        return sqlNormalizedSchema;
+    }
+
+    public boolean isSqliteTunedMode() {
+        return sqliteTunedMode;
+    }
+
+    public boolean isFileJournalMode() {
+        return fileJournalMode;
+    }
+
+    public int getFileJournalCompactEvery() {
+        return Math.max(1, Math.min(10_000, fileJournalCompactEvery));
+    }
+
+    public boolean isFileStatsBinary() {
+        return "BINARY".equalsIgnoreCase(fileStatsFormat);
+    }
+
+    public boolean isSqlStatsBinary() {
+        return "BINARY".equalsIgnoreCase(sqlStatsFormat);
+    }
+
+    public int getWarmRestartMaxAgeSeconds() {
+        return Math.max(0, Math.min(86_400, warmRestartMaxAgeSeconds));
+    }
+
     public boolean isEconomySystemEnabled() {
         return economySystemEnabled;
     }
@@ -747,6 +961,10 @@ public final class Settings {
         return Math.max(0, tagDelaysecs);
     }
 
+    public boolean isNotifyOnTagUnlock() {
+        return notifyOnTagUnlock;
+    }
+
     public boolean isExperimentalGlyphNameplatesEnabled() {
         return experimentalGlyphNameplatesEnabled;
     }
@@ -89,6 +89,7 @@ public class IntegrationManager {
     private EconomyMode economyMode = EconomyMode.NONE;
 
     private PermissionBackendType activePermissionBackend = PermissionBackendType.NATIVE;
+    private volatile boolean permissionChangeEvents = false;
 
     // Economy flags
     private boolean loggedEconomyStatus = false;
@@ -163,6 +164,8 @@ public class IntegrationManager {
     // ----------------------------------------------------------------
 
     private void setupPermissionBackends() {
+        this.permissionChangeEvents = false;
+
         // 1) LuckPerms
         try {
             this.luckPermsSupport = new LuckPermsSupport();
@@ -186,6 +189,7 @@ public class IntegrationManager {
                     );
 
                     listener.register(com.mystichorizons.mysticnametags.MysticNameTagsPlugin.getInstance());
+                    this.permissionChangeEvents = true;
                 } catch (Throwable ignored) {
                 }
 
@@ -402,6 +406,14 @@ public class IntegrationManager {
         return hyperPermsSupport != null && hyperPermsSupport.isAvailable();
     }
 
+    /**
+     * True if permission changes are pushed to TagManager (LuckPerms
+     * recalculation events). Other backends are only re-checked after a TTL.
+     */
+    public boolean hasPermissionChangeEvents() {
+        return permissionChangeEvents;
+    }
+
     @Nullable
     public PermissionSupport getPermissionsBackend() {
         return permissionsBackend;
@@ -802,6 +814,24 @@ public class IntegrationManager {
         }
     }
 
+    /**
+     * Exact internal stat lookup with the key already split (see
+     * {@link StatProvider#getStatLong(UUID, String, String)}); 0 if missing.
+     * Does not consult the EndlessLeveling bridge.
+     */
+    public long getStatLong(@Nonnull UUID uuid, @Nonnull String category, @Nonnull String stat) {
+        StatProvider provider = this.statProvider;
+        if (provider == null) {
+            return 0L;
+        }
+
+        try {
+            return provider.getStatLong(uuid, category, stat);
+        } catch (Throwable ignored) {
+            return 0L;
+        }
+    }
+
     // ----------------------------------------------------------------
     // Item requirement integration
     // ----------------------------------------------------------------
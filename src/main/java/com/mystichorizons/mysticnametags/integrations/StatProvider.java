@@ -24,4 +24,14 @@ public interface StatProvider {
         }
         return null;
     }
+
+    /**
+     * Raw value of an exact stat whose key is already split into category
+     * and stat, so callers that check the same stat repeatedly don't
+     * re-parse it. Missing stats are 0.
+     */
+    default long getStatLong(@Nonnull UUID uuid, @Nonnull String category, @Nonnull String stat) {
+        Integer value = getStatValue(uuid, category + "." + stat);
+        return value != null ? value : 0L;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.mystichorizons.mysticnametags.listeners;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.mystichorizons.mysticnametags.stats.PlayerStatManager;
+import com.mystichorizons.mysticnametags.tags.TagManager;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Loads a joining player's tag and stat data on a background thread.
+ *
+ * {@link #start} runs on PlayerConnectEvent; PlayerReadyEvent chains its
+ * nameplate apply on {@link #whenLoaded} so the world thread only ever
+ * reads data that is already cached. Loads that take longer than
+ * {@link #READY_TIMEOUT_SECONDS} stop holding the apply back (it then
+ * loads whatever is still missing itself).
+ */
+final class PlayerDataPrefetcher {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private static final long READY_TIMEOUT_SECONDS = 10L;
+
+    private final Map<UUID, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor;
+
+    PlayerDataPrefetcher() {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "MysticNameTags-Prefetch-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Start loading {@code uuid}'s data; a load already in flight is reused.
+     */
+    void start(@Nonnull UUID uuid) {
+        pending.computeIfAbsent(uuid, u -> CompletableFuture.runAsync(() -> load(u), executor));
+    }
+
+    /**
+     * Completes once the prefetch for {@code uuid} finished (successfully or
+     * not), or immediately if none was started.
+     */
+    @Nonnull
+    CompletableFuture<Void> whenLoaded(@Nonnull UUID uuid) {
+        CompletableFuture<Void> future = pending.get(uuid);
+        if (future == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return future
+                .exceptionally(t -> null)
+                .completeOnTimeout(null, READY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Player left. A prefetch still running when they disconnect would pin
+     * tag data after the disconnect unpinned it, so release it afterwards.
+     */
+    void forget(@Nonnull UUID uuid) {
+        CompletableFuture<Void> future = pending.remove(uuid);
+        if (future == null || future.isDone()) {
+            return;
+        }
+        future.whenComplete((v, t) -> {
+            TagManager tags = TagManager.get();
+            if (tags != null) {
+                tags.releasePreloadedPlayer(uuid);
+            }
+        });
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+        pending.clear();
+    }
+
+    private void load(@Nonnull UUID uuid) {
+        long start = System.nanoTime();
+
+        try {
+            TagManager tags = TagManager.get();
+            if (tags != null) {
+                tags.preloadPlayer(uuid);
+            }
+        } catch (Throwable t) {
+            LOGGER.at(Level.WARNING).withCause(t)
+                    .log("[MysticNameTags] Failed to prefetch tag data for " + uuid);
+        }
+
+        try {
+            PlayerStatManager stats = PlayerStatManager.get();
+            if (stats != null) {
+                stats.preloadPlayer(uuid);
+            }
+        } catch (Throwable t) {
+            LOGGER.at(Level.WARNING).withCause(t)
+                    .log("[MysticNameTags] Failed to prefetch stats for " + uuid);
+        }
+
+        LOGGER.at(Level.FINE).log("[MysticNameTags] Prefetched data for " + uuid
+                + " in " + (System.nanoTime() - start) / 1_000_000L + "ms");
+    }
+}
@@ -30,11 +30,19 @@ public class PlayerListener {
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
 
     private final PlaytimeService playtimeService;
+    private final PlayerDataPrefetcher prefetcher = new PlayerDataPrefetcher();
 
     public PlayerListener(@Nonnull PlaytimeService playtimeService) {
         this.playtimeService = playtimeService;
     }
 
+    /**
+     * Stop the prefetch threads. Called from plugin shutdown.
+     */
+    public void shutdown() {
+        prefetcher.shutdown();
+    }
+
     public void register(@Nonnull EventRegistry eventBus) {
         try {
             eventBus.register(PlayerConnectEvent.class, this::onPlayerConnect);
@@ -84,6 +92,9 @@ public class PlayerListener {
 
         UUID uuid = playerRef.getUuid();
 
+        // Load tag + stat data off the world thread; PlayerReady waits for it.
+        prefetcher.start(uuid);
+
         try {
             PlayerStatManager mgr = PlayerStatManager.get();
             if (mgr != null) {
@@ -168,14 +179,16 @@ public class PlayerListener {
         tagManager.trackOnlinePlayer(playerRef, world);
 
         try {
-            world.execute(() -> {
+            // Apply once the connect-time prefetch is in, so the world thread
+            // never waits on disk / database loads.
+            prefetcher.whenLoaded(uuid).thenRun(() -> world.execute(() -> {
                 try {
                     tagManager.refreshNameplate(playerRef, world);
                 } catch (Throwable t) {
                     LOGGER.at(Level.FINE).withCause(t)
                             .log("[MysticNameTags] Delayed PlayerReady nameplate refresh failed for %s", uuid);
                 }
-            });
+            }));
         } catch (Throwable t) {
             LOGGER.at(Level.FINE).withCause(t)
                     .log("[MysticNameTags] PlayerReady nameplate refresh failed for %s", uuid);
@@ -253,6 +266,7 @@ public class PlayerListener {
         }
 
         TagManager.get().untrackOnlinePlayer(uuid);
+        prefetcher.forget(uuid);
         PacketGlyphSender.evictReceiverCache(uuid);
     }
 }
@@ -2,6 +2,7 @@ package com.mystichorizons.mysticnametags.playtime;
 
 import com.hypixel.hytale.logger.HytaleLogger;
 import com.mystichorizons.mysticnametags.stats.PlayerStatManager;
+import com.mystichorizons.mysticnametags.stats.StatKeys;
 
 import javax.annotation.Nonnull;
 import java.util.Set;
@@ -27,6 +28,9 @@ public final class PlaytimeService {
      */
     public static final String STAT_KEY = "custom.playtime_seconds";
 
+    // STAT_KEY resolved once for the per-player tick
+    private static final int STAT_ID = StatKeys.id("custom", "playtime_seconds");
+
     private final ScheduledExecutorService scheduler;
     private final Set<UUID> onlinePlayers = ConcurrentHashMap.newKeySet();
     private final long intervalSeconds;
@@ -90,7 +94,7 @@ public final class PlaytimeService {
 
             for (UUID uuid : onlinePlayers) {
                 try {
-                    mgr.addToStat(uuid, STAT_KEY, intervalSeconds);
+                    mgr.addToStat(uuid, STAT_ID, intervalSeconds);
                 } catch (Throwable t) {
                     LOGGER.at(Level.WARNING)
                             .withCause(t)
@@ -0,0 +1,225 @@
+package com.mystichorizons.mysticnametags.stats;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding for PlayerStatsData.
+ *
+ * Layout (all integers are unsigned LEB128 varints unless noted):
+ *
+ *   magic        'M' 'S' 'B'
+ *   version      1 byte (currently 1)
+ *   dataVersion  varint
+ *   categories   repeated: 0x01, category-string, stats..., 0x00
+ *                terminated by 0x00
+ *   stats        repeated: 0x01, stat-key, value (zigzag varint)
+ *                terminated by 0x00
+ *
+ * Strings use an inline dictionary: token 0 is followed by a new string
+ * (varint length + UTF-8 bytes) that gets the next index; token n > 0 refers
+ * back to string n - 1. Stat keys are split at the first ':' into namespace
+ * and path, so "hytale" in "hytale:stone" is written once per player.
+ *
+ * Encoding walks the live maps in a single pass (no deep copy); end markers
+ * instead of counts keep it safe while other threads add stats.
+ */
+final class BinaryStatsCodec {
+
+    private static final byte[] MAGIC = {'M', 'S', 'B'};
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int ENTRY = 1;
+    private static final int END = 0;
+
+    private BinaryStatsCodec() {
+    }
+
+    /**
+     * True if {@code bytes} starts with the binary header.
+     */
+    static boolean isBinary(@Nonnull byte[] bytes) {
+        return bytes.length >= MAGIC.length + 1
+                && bytes[0] == MAGIC[0]
+                && bytes[1] == MAGIC[1]
+                && bytes[2] == MAGIC[2];
+    }
+
+    @Nonnull
+    static byte[] encode(@Nonnull PlayerStatsData data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try {
+            encode(data, out);
+        } catch (IOException e) {
+            // ByteArrayOutputStream doesn't throw
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    static void encode(@Nonnull PlayerStatsData data, @Nonnull OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(FORMAT_VERSION);
+        writeVarLong(out, data.getDataVersion());
+
+        Map<String, Integer> dictionary = new HashMap<>();
+
+        for (Map.Entry<String, Map<String, Long>> cat : data.getAll().entrySet()) {
+            Map<String, Long> stats = cat.getValue();
+            if (stats.isEmpty()) {
+                continue;
+            }
+
+            out.write(ENTRY);
+            writeString(out, dictionary, cat.getKey());
+
+            for (Map.Entry<String, Long> stat : stats.entrySet()) {
+                long value = stat.getValue();
+
+                out.write(ENTRY);
+                writeStatKey(out, dictionary, stat.getKey());
+                writeVarLong(out, (value << 1) ^ (value >> 63));
+            }
+            out.write(END);
+        }
+        out.write(END);
+    }
+
+    @Nonnull
+    static PlayerStatsData decode(@Nonnull InputStream in) throws IOException {
+        byte[] header = in.readNBytes(MAGIC.length + 1);
+        if (header.length < MAGIC.length + 1 || !isBinary(header)) {
+            throw new IOException("Not a binary stats payload");
+        }
+        int version = header[MAGIC.length];
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported binary stats version " + version);
+        }
+
+        PlayerStatsData data = new PlayerStatsData();
+        data.setDataVersion((int) readVarLong(in));
+
+        List<String> dictionary = new ArrayList<>();
+        Map<String, Map<String, Long>> loaded = new HashMap<>();
+
+        while (readByte(in) == ENTRY) {
+            String category = readString(in, dictionary);
+            Map<String, Long> stats = loaded.computeIfAbsent(category, k -> new HashMap<>());
+
+            while (readByte(in) == ENTRY) {
+                String key = readStatKey(in, dictionary);
+                long zigzag = readVarLong(in);
+                stats.put(key, (zigzag >>> 1) ^ -(zigzag & 1));
+            }
+        }
+
+        data.setStats(loaded);
+        return data;
+    }
+
+    // --------------------------------------------------
+    // Strings
+    // --------------------------------------------------
+
+    private static void writeStatKey(@Nonnull OutputStream out,
+                                     @Nonnull Map<String, Integer> dictionary,
+                                     @Nonnull String key) throws IOException {
+        int colon = key.indexOf(':');
+        if (colon <= 0) {
+            out.write(0);
+            writeString(out, dictionary, key);
+        } else {
+            out.write(1);
+            writeString(out, dictionary, key.substring(0, colon));
+            writeString(out, dictionary, key.substring(colon + 1));
+        }
+    }
+
+    @Nonnull
+    private static String readStatKey(@Nonnull InputStream in,
+                                      @Nonnull List<String> dictionary) throws IOException {
+        if (readByte(in) == 0) {
+            return readString(in, dictionary);
+        }
+        String namespace = readString(in, dictionary);
+        return namespace + ':' + readString(in, dictionary);
+    }
+
+    private static void writeString(@Nonnull OutputStream out,
+                                    @Nonnull Map<String, Integer> dictionary,
+                                    @Nonnull String value) throws IOException {
+        Integer index = dictionary.get(value);
+        if (index != null) {
+            writeVarLong(out, index + 1L);
+            return;
+        }
+
+        dictionary.put(value, dictionary.size());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, 0L);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    @Nonnull
+    private static String readString(@Nonnull InputStream in,
+                                     @Nonnull List<String> dictionary) throws IOException {
+        long token = readVarLong(in);
+        if (token > 0) {
+            if (token > dictionary.size()) {
+                throw new IOException("Bad string reference " + token);
+            }
+            return dictionary.get((int) token - 1);
+        }
+
+        int length = (int) readVarLong(in);
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException();
+        }
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        dictionary.add(value);
+        return value;
+    }
+
+    // --------------------------------------------------
+    // Varints
+    // --------------------------------------------------
+
+    private static void writeVarLong(@Nonnull OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0L) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(@Nonnull InputStream in) throws IOException {
+        long result = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Varint too long");
+    }
+
+    private static int readByte(@Nonnull InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+}
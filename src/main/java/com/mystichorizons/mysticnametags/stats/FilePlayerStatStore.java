@@ -2,43 +2,73 @@ package com.mystichorizons.mysticnametags.stats;
 
 import com.google.gson.Gson;
 import com.hypixel.hytale.logger.HytaleLogger;
+import com.mystichorizons.mysticnametags.storage.AtomicFiles;
+import com.mystichorizons.mysticnametags.storage.ShardedPlayerFiles;
 
 import javax.annotation.Nonnull;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
 
+/**
+ * File-based stats: stats/ab/cd/<uuid>.json, or <uuid>.bin when the binary
+ * format is selected. Loads accept either file, so switching formats needs
+ * no migration; the next save rewrites the player in the chosen format and
+ * removes the other file.
+ */
 public final class FilePlayerStatStore implements PlayerStatStore {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
 
-    private final File statsFolder;
+    private static final String JSON_SUFFIX = ".json";
+    private static final String BINARY_SUFFIX = ".bin";
+
+    private final ShardedPlayerFiles files;
     private final Gson gson;
+    private final boolean binary;
 
     public FilePlayerStatStore(@Nonnull File statsFolder, @Nonnull Gson gson) {
-        this.statsFolder = statsFolder;
-        this.gson = gson;
+        this(statsFolder, gson, false);
+    }
 
-        //noinspection ResultOfMethodCallIgnored
-        statsFolder.mkdirs();
+    public FilePlayerStatStore(@Nonnull File statsFolder, @Nonnull Gson gson, boolean binary) {
+        // stats/ab/cd/<uuid>.json, flat stats/*.json is moved on startup
+        this.files = new ShardedPlayerFiles(statsFolder, JSON_SUFFIX, BINARY_SUFFIX);
+        this.gson = gson;
+        this.binary = binary;
     }
 
+    /**
+     * Every player with a stats file (from the index, no directory walk).
+     */
     @Nonnull
-    private File fileFor(UUID uuid) {
-        return new File(statsFolder, uuid.toString() + ".json");
+    public Set<UUID> knownPlayers() {
+        return files.knownPlayers().keySet();
     }
 
     @Override
     public @Nonnull PlayerStatsData load(@Nonnull UUID uuid) {
-        File f = fileFor(uuid);
+        File bin = files.file(uuid, BINARY_SUFFIX);
+        File json = files.file(uuid, JSON_SUFFIX);
+        File f = bin.exists() ? bin : json;
         if (!f.exists()) {
             return new PlayerStatsData();
         }
 
-        try (InputStreamReader reader = new InputStreamReader(
-                new FileInputStream(f), StandardCharsets.UTF_8)) {
-            PlayerStatsData data = gson.fromJson(reader, PlayerStatsData.class);
+        try (InputStream in = new BufferedInputStream(new FileInputStream(f))) {
+            in.mark(4);
+            byte[] head = in.readNBytes(4);
+            in.reset();
+
+            if (BinaryStatsCodec.isBinary(head)) {
+                return BinaryStatsCodec.decode(in);
+            }
+
+            // JSON fallback (older files, or format switched back)
+            PlayerStatsData data = gson.fromJson(
+                    new InputStreamReader(in, StandardCharsets.UTF_8), PlayerStatsData.class);
             return (data != null) ? data : new PlayerStatsData();
         } catch (Exception e) {
             LOGGER.at(Level.WARNING).withCause(e)
@@ -49,22 +79,40 @@ public final class FilePlayerStatStore implements PlayerStatStore {
 
     @Override
     public void save(@Nonnull UUID uuid, @Nonnull PlayerStatsData data) {
-        File f = fileFor(uuid);
-        try (OutputStreamWriter writer = new OutputStreamWriter(
-                new FileOutputStream(f), StandardCharsets.UTF_8)) {
-            gson.toJson(data, writer);
+        File target = files.file(uuid, binary ? BINARY_SUFFIX : JSON_SUFFIX);
+        File other = files.file(uuid, binary ? JSON_SUFFIX : BINARY_SUFFIX);
+
+        try {
+            if (binary) {
+                AtomicFiles.writeBytes(target, out -> BinaryStatsCodec.encode(data, out));
+            } else {
+                AtomicFiles.write(target, writer -> gson.toJson(data, writer));
+            }
+            files.touch(uuid);
+
+            if (other.exists() && !other.delete()) {
+                LOGGER.at(Level.FINE)
+                        .log("[MysticNameTags] Could not remove old stats file " + other.getName());
+            }
         } catch (Exception e) {
-            LOGGER.at(Level.WARNING).withCause(e)
-                    .log("[MysticNameTags] Failed to save stats file for " + uuid);
+            throw new IllegalStateException("Failed to save stats file for " + uuid, e);
         }
     }
 
     @Override
     public void delete(@Nonnull UUID uuid) {
-        File f = fileFor(uuid);
-        if (f.exists() && !f.delete()) {
-            LOGGER.at(Level.WARNING)
-                    .log("[MysticNameTags] Failed to delete stats file for " + uuid);
+        files.forget(uuid);
+        for (String suffix : new String[]{JSON_SUFFIX, BINARY_SUFFIX}) {
+            File f = files.file(uuid, suffix);
+            if (f.exists() && !f.delete()) {
+                LOGGER.at(Level.WARNING)
+                        .log("[MysticNameTags] Failed to delete stats file for " + uuid);
+            }
         }
     }
+
+    @Override
+    public void close() {
+        files.saveIndex();
+    }
 }
\ No newline at end of file
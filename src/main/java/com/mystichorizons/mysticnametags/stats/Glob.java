@@ -0,0 +1,100 @@
+package com.mystichorizons.mysticnametags.stats;
+
+import javax.annotation.Nonnull;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled '*' wildcard. The usual shapes (exact, "abc*", "*abc",
+ * "*abc*", "*") are plain String checks; anything else falls back to a
+ * Pattern compiled once.
+ */
+final class Glob {
+
+    private enum Shape { EXACT, PREFIX, SUFFIX, CONTAINS, ANY, PATTERN }
+
+    private final Shape shape;
+    private final String literal;
+    private final Pattern pattern;
+
+    private Glob(@Nonnull Shape shape, @Nonnull String literal, Pattern pattern) {
+        this.shape = shape;
+        this.literal = literal;
+        this.pattern = pattern;
+    }
+
+    @Nonnull
+    static Glob compile(@Nonnull String glob) {
+        int first = glob.indexOf('*');
+        if (first < 0) {
+            return new Glob(Shape.EXACT, glob, null);
+        }
+
+        int last = glob.lastIndexOf('*');
+        int stars = 0;
+        for (int i = first; i <= last; i++) {
+            if (glob.charAt(i) == '*') {
+                stars++;
+            }
+        }
+
+        if (stars == glob.length()) {
+            return new Glob(Shape.ANY, "", null);
+        }
+        if (stars == 1 && first == glob.length() - 1) {
+            return new Glob(Shape.PREFIX, glob.substring(0, first), null);
+        }
+        if (stars == 1 && first == 0) {
+            return new Glob(Shape.SUFFIX, glob.substring(1), null);
+        }
+        if (stars == 2 && first == 0 && last == glob.length() - 1) {
+            return new Glob(Shape.CONTAINS, glob.substring(1, last), null);
+        }
+        return new Glob(Shape.PATTERN, glob, Pattern.compile(toRegex(glob)));
+    }
+
+    boolean matches(@Nonnull String s) {
+        switch (shape) {
+            case EXACT: return s.equals(literal);
+            case PREFIX: return s.startsWith(literal);
+            case SUFFIX: return s.endsWith(literal);
+            case CONTAINS: return s.contains(literal);
+            case ANY: return true;
+            default: return pattern.matcher(s).matches();
+        }
+    }
+
+    @Nonnull
+    private static String toRegex(@Nonnull String glob) {
+        StringBuilder sb = new StringBuilder("^");
+        for (char c : glob.toCharArray()) {
+            switch (c) {
+                case '*':
+                    sb.append(".*");
+                    break;
+                case '.':
+                    sb.append("\\.");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '(':
+                case ')':
+                case '[':
+                case ']':
+                case '{':
+                case '}':
+                case '+':
+                case '?':
+                case '^':
+                case '$':
+                case '|':
+                    sb.append("\\").append(c);
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        sb.append("$");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,442 @@
+package com.mystichorizons.mysticnametags.stats;
+
+import com.google.gson.Gson;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.mystichorizons.mysticnametags.storage.FolderMigration;
+import com.mystichorizons.mysticnametags.storage.SqlConnectionPool;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Relational storage for player stats: one row per (player, category, stat).
+ *
+ * Table:
+ *   mystic_stats(
+ *       uuid     VARCHAR(36),
+ *       category VARCHAR(64),
+ *       stat     VARCHAR(191),
+ *       value    BIGINT,
+ *       PRIMARY KEY (uuid, category, stat)
+ *   )
+ *
+ * Increments are sent as deltas ({@code value = value + ?}) through
+ * {@link #applyDeltas}, so a block break touches one row instead of
+ * re-serializing the whole stats document. An index on
+ * (category, stat, value) keeps leaderboard-style queries cheap.
+ *
+ * On first start, rows from the legacy mystic_stats_players JSON table are
+ * migrated page by page and the old table is renamed out of the way.
+ */
+public final class NormalizedSqlPlayerStatStore implements PlayerStatStore {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private static final String LEGACY_TABLE = "mystic_stats_players";
+    private static final String LEGACY_TABLE_RENAMED = "mystic_stats_players_legacy";
+
+    // Players per page / transaction while migrating the blob table
+    private static final int MIGRATION_PAGE_SIZE = 500;
+
+    private final SqlConnectionPool pool;
+    private final Gson gson;
+
+    // Running stats/ -> SQL copy, if any (see migrateFromFolder)
+    private volatile FolderMigration<PlayerStatsData> folderMigration;
+
+    public NormalizedSqlPlayerStatStore(@Nonnull SqlConnectionPool pool,
+                                        @Nonnull Gson gson) {
+        this.pool = pool;
+        this.gson = gson;
+
+        initSchema();
+        migrateFromBlobTable();
+    }
+
+    private Connection getConnection() throws SQLException {
+        return pool.getConnection();
+    }
+
+    private void initSchema() {
+        List<String> ddl = new ArrayList<>();
+
+        if (pool.isSqlite()) {
+            ddl.add("CREATE TABLE IF NOT EXISTS mystic_stats (" +
+                    "uuid TEXT NOT NULL," +
+                    "category TEXT NOT NULL," +
+                    "stat TEXT NOT NULL," +
+                    "value INTEGER NOT NULL," +
+                    "PRIMARY KEY (uuid, category, stat)" +
+                    ")");
+            ddl.add("CREATE INDEX IF NOT EXISTS idx_mystic_stats_board ON mystic_stats(category, stat, value)");
+        } else {
+            ddl.add("CREATE TABLE IF NOT EXISTS mystic_stats (" +
+                    "uuid VARCHAR(36) NOT NULL," +
+                    "category VARCHAR(64) NOT NULL," +
+                    "stat VARCHAR(191) NOT NULL," +
+                    "value BIGINT NOT NULL," +
+                    "PRIMARY KEY (uuid, category, stat)," +
+                    "INDEX idx_mystic_stats_board (category, stat, value)" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+        }
+
+        try {
+            pool.write(c -> {
+                try (Statement st = c.createStatement()) {
+                    for (String sql : ddl) {
+                        st.execute(sql);
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            LOGGER.at(Level.SEVERE).withCause(e)
+                    .log("[MysticNameTags] Failed to initialize mystic_stats schema.");
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Load / save
+    // ------------------------------------------------------------------
+
+    @Override
+    public @Nonnull PlayerStatsData load(@Nonnull UUID uuid) {
+        FolderMigration<PlayerStatsData> migration = folderMigration;
+        if (migration != null) {
+            migration.claim(uuid);
+        }
+
+        PlayerStatsData data = new PlayerStatsData();
+
+        try (Connection c = getConnection()) {
+            data.setStats(selectStats(c, uuid));
+        } catch (SQLException e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Failed to load stat rows for " + uuid);
+        }
+
+        return data;
+    }
+
+    @Override
+    public void save(@Nonnull UUID uuid, @Nonnull PlayerStatsData data) {
+        try {
+            pool.write(c -> {
+                c.setAutoCommit(false);
+                try {
+                    writeDiff(c, uuid, data);
+                    c.commit();
+                } catch (SQLException e) {
+                    c.rollback();
+                    throw e;
+                }
+            });
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to save stat rows for " + uuid, e);
+        }
+    }
+
+    @Override
+    public void saveAll(@Nonnull Map<UUID, PlayerStatsData> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            pool.write(c -> {
+                c.setAutoCommit(false);
+                try {
+                    for (Map.Entry<UUID, PlayerStatsData> e : batch.entrySet()) {
+                        writeDiff(c, e.getKey(), e.getValue());
+                    }
+                    c.commit();
+                } catch (SQLException e) {
+                    c.rollback();
+                    throw e;
+                }
+            });
+            return;
+        } catch (SQLException e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Batched stats save failed for " + batch.size()
+                            + " players; retrying individually.");
+        }
+
+        PlayerStatStore.super.saveAll(batch);
+    }
+
+    @Override
+    public boolean supportsDeltas() {
+        return true;
+    }
+
+    @Override
+    public void applyDeltas(@Nonnull UUID uuid, @Nonnull Map<String, Long> deltas) {
+        if (!deltas.isEmpty()) {
+            applyDeltasAll(Map.of(uuid, deltas));
+        }
+    }
+
+    @Override
+    public void applyDeltasAll(@Nonnull Map<UUID, Map<String, Long>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        final String sql;
+        if (pool.isSqlite()) {
+            sql = "INSERT INTO mystic_stats(uuid, category, stat, value) VALUES (?, ?, ?, ?) " +
+                    "ON CONFLICT(uuid, category, stat) DO UPDATE SET value = value + excluded.value";
+        } else {
+            sql = "INSERT INTO mystic_stats(uuid, category, stat, value) VALUES (?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE value = value + VALUES(value)";
+        }
+
+        try {
+            pool.write(c -> {
+                c.setAutoCommit(false);
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    for (Map.Entry<UUID, Map<String, Long>> player : batch.entrySet()) {
+                        String key = player.getKey().toString();
+                        for (Map.Entry<String, Long> e : player.getValue().entrySet()) {
+                            Long delta = e.getValue();
+                            int dot = e.getKey().indexOf('.');
+                            if (delta == null || delta == 0L || dot <= 0) {
+                                continue;
+                            }
+
+                            ps.setString(1, key);
+                            ps.setString(2, e.getKey().substring(0, dot));
+                            ps.setString(3, e.getKey().substring(dot + 1));
+                            ps.setLong(4, delta);
+                            ps.addBatch();
+                        }
+                    }
+                    ps.executeBatch();
+                    c.commit();
+                } catch (SQLException e) {
+                    c.rollback();
+                    throw e;
+                }
+            });
+        } catch (SQLException e) {
+            // Not just logged: the write-behind queue re-queues on failure.
+            throw new IllegalStateException("Failed to apply stat deltas for " + batch.size() + " players", e);
+        }
+    }
+
+    @Override
+    public void delete(@Nonnull UUID uuid) {
+        String sql = "DELETE FROM mystic_stats WHERE uuid = ?";
+
+        try {
+            pool.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    ps.setString(1, uuid.toString());
+                    ps.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Failed to delete stat rows for " + uuid);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Row helpers
+    // ------------------------------------------------------------------
+
+    @Nonnull
+    private Map<String, Map<String, Long>> selectStats(@Nonnull Connection c,
+                                                       @Nonnull UUID uuid) throws SQLException {
+        Map<String, Map<String, Long>> stats = new HashMap<>();
+
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT category, stat, value FROM mystic_stats WHERE uuid = ?")) {
+            ps.setString(1, uuid.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    stats.computeIfAbsent(rs.getString(1), k -> new HashMap<>())
+                            .put(rs.getString(2), rs.getLong(3));
+                }
+            }
+        }
+
+        return stats;
+    }
+
+    /**
+     * Write absolute values for one player, touching only rows whose value
+     * changed and deleting rows that dropped to zero.
+     */
+    private void writeDiff(@Nonnull Connection c,
+                           @Nonnull UUID uuid,
+                           @Nonnull PlayerStatsData data) throws SQLException {
+        String key = uuid.toString();
+        Map<String, Map<String, Long>> stored = selectStats(c, uuid);
+        Map<String, Map<String, Long>> wanted = data.getAll();
+
+        String upsert;
+        if (pool.isSqlite()) {
+            upsert = "INSERT INTO mystic_stats(uuid, category, stat, value) VALUES (?, ?, ?, ?) " +
+                    "ON CONFLICT(uuid, category, stat) DO UPDATE SET value = excluded.value";
+        } else {
+            upsert = "INSERT INTO mystic_stats(uuid, category, stat, value) VALUES (?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE value = VALUES(value)";
+        }
+
+        try (PreparedStatement up = c.prepareStatement(upsert);
+             PreparedStatement del = c.prepareStatement(
+                     "DELETE FROM mystic_stats WHERE uuid = ? AND category = ? AND stat = ?")) {
+
+            boolean anyUp = false;
+            boolean anyDel = false;
+
+            for (Map.Entry<String, Map<String, Long>> cat : wanted.entrySet()) {
+                Map<String, Long> storedCat = stored.getOrDefault(cat.getKey(), Map.of());
+                for (Map.Entry<String, Long> stat : cat.getValue().entrySet()) {
+                    Long old = storedCat.get(stat.getKey());
+                    if (old != null && old.longValue() == stat.getValue().longValue()) {
+                        continue;
+                    }
+                    up.setString(1, key);
+                    up.setString(2, cat.getKey());
+                    up.setString(3, stat.getKey());
+                    up.setLong(4, stat.getValue());
+                    up.addBatch();
+                    anyUp = true;
+                }
+            }
+
+            for (Map.Entry<String, Map<String, Long>> cat : stored.entrySet()) {
+                Map<String, Long> wantedCat = wanted.getOrDefault(cat.getKey(), Map.of());
+                for (String stat : cat.getValue().keySet()) {
+                    if (wantedCat.containsKey(stat)) {
+                        continue;
+                    }
+                    del.setString(1, key);
+                    del.setString(2, cat.getKey());
+                    del.setString(3, stat);
+                    del.addBatch();
+                    anyDel = true;
+                }
+            }
+
+            if (anyUp) {
+                up.executeBatch();
+            }
+            if (anyDel) {
+                del.executeBatch();
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Migration from the JSON blob table
+    // ------------------------------------------------------------------
+
+    private boolean tableExists(@Nonnull Connection c, @Nonnull String table) throws SQLException {
+        DatabaseMetaData meta = c.getMetaData();
+        try (ResultSet rs = meta.getTables(c.getCatalog(), null, table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Streams mystic_stats_players into mystic_stats one keyset page at a
+     * time, then renames the blob table so this only runs once.
+     */
+    private void migrateFromBlobTable() {
+        try {
+            pool.write(c -> {
+                if (!tableExists(c, LEGACY_TABLE)) {
+                    return;
+                }
+
+                LOGGER.at(Level.INFO)
+                        .log("[MysticNameTags] Migrating " + LEGACY_TABLE + " JSON rows into mystic_stats...");
+
+                int migrated = 0;
+                String lastUuid = "";
+
+                while (true) {
+                    Map<UUID, PlayerStatsData> page = new LinkedHashMap<>();
+
+                    try (PreparedStatement ps = c.prepareStatement(
+                            "SELECT uuid, data_json FROM " + LEGACY_TABLE +
+                                    " WHERE uuid > ? ORDER BY uuid LIMIT " + MIGRATION_PAGE_SIZE)) {
+                        ps.setString(1, lastUuid);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                lastUuid = rs.getString(1);
+                                try {
+                                    page.put(UUID.fromString(lastUuid), SqlPlayerStatStore.decode(rs.getString(2), gson));
+                                } catch (Exception e) {
+                                    LOGGER.at(Level.WARNING).withCause(e)
+                                            .log("[MysticNameTags] Skipping unreadable stats row for " + lastUuid);
+                                }
+                            }
+                        }
+                    }
+
+                    if (page.isEmpty()) {
+                        break;
+                    }
+
+                    c.setAutoCommit(false);
+                    try {
+                        for (Map.Entry<UUID, PlayerStatsData> e : page.entrySet()) {
+                            writeDiff(c, e.getKey(), e.getValue());
+                        }
+                        c.commit();
+                    } catch (SQLException e) {
+                        c.rollback();
+                        throw e;
+                    } finally {
+                        c.setAutoCommit(true);
+                    }
+
+                    migrated += page.size();
+                }
+
+                // Keep any earlier backup instead of overwriting it.
+                String backup = tableExists(c, LEGACY_TABLE_RENAMED)
+                        ? LEGACY_TABLE_RENAMED + "_" + System.currentTimeMillis()
+                        : LEGACY_TABLE_RENAMED;
+                try (Statement st = c.createStatement()) {
+                    st.execute("ALTER TABLE " + LEGACY_TABLE + " RENAME TO " + backup);
+                }
+
+                LOGGER.at(Level.INFO)
+                        .log("[MysticNameTags] Stats table migration complete. Migrated " + migrated + " players.");
+            });
+        } catch (SQLException e) {
+            LOGGER.at(Level.SEVERE).withCause(e)
+                    .log("[MysticNameTags] Failed to migrate " + LEGACY_TABLE + " into mystic_stats; " +
+                            "it will be retried on next start.");
+        }
+    }
+
+    /**
+     * Copy stats/ into this table in the background. Players that already
+     * have a row keep it: stats were never migrated before, so an existing
+     * row is newer than the file.
+     */
+    @Override
+    public void migrateFromFolder(@Nonnull File folder, @Nonnull Gson gson) {
+        if (!folder.exists() || !folder.isDirectory()) {
+            return;
+        }
+
+        FilePlayerStatStore source = new FilePlayerStatStore(folder, gson);
+        folderMigration = FolderMigration.start("stats", folder, source.knownPlayers(), source::load,
+                batch -> saveAll(SqlPlayerStatStore.withoutExisting(pool, "mystic_stats", batch)), MIGRATION_PAGE_SIZE);
+    }
+}
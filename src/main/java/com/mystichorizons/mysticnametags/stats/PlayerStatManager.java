@@ -7,15 +7,21 @@ import com.mystichorizons.mysticnametags.MysticNameTagsPlugin;
 import com.mystichorizons.mysticnametags.config.Settings;
 import com.mystichorizons.mysticnametags.integrations.IntegrationManager;
 import com.mystichorizons.mysticnametags.integrations.StatProvider;
+import com.mystichorizons.mysticnametags.storage.SqlConnectionPool;
 import com.mystichorizons.mysticnametags.tags.StorageBackend;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 
 /**
@@ -47,12 +53,74 @@ public final class PlayerStatManager implements StatProvider {
 
     private static volatile PlayerStatManager INSTANCE;
 
+    // Fixed keys, resolved once.
+    private static final int KILLS_TOTAL = StatKeys.id("custom", "kills_total");
+    private static final int DEATHS_TOTAL = StatKeys.id("custom", "deaths_total");
+    private static final int BLOCKS_BROKEN_TOTAL = StatKeys.id("custom", "blocks_broken_total");
+    private static final int BLOCKS_PLACED_TOTAL = StatKeys.id("custom", "blocks_placed_total");
+    private static final int DAMAGE_DEALT = StatKeys.id("custom", "damage_dealt");
+    private static final int DAMAGE_TAKEN = StatKeys.id("custom", "damage_taken");
+    private static final int SESSION_BLOCKS_BROKEN = StatKeys.id("session", "blocks_broken_total");
+    private static final int SESSION_BLOCKS_PLACED = StatKeys.id("session", "blocks_placed_total");
+    private static final int SESSION_DAMAGE_DEALT = StatKeys.id("session", "damage_dealt");
+    private static final int SESSION_DAMAGE_TAKEN = StatKeys.id("session", "damage_taken");
+
+    // Cap on distinct wildcard keys kept compiled (they come from tags.json
+    // and placeholders, so this is only hit by junk input)
+    private static final int MAX_CACHED_QUERIES = 1024;
+
     // Persistent stats cache (loaded from backend)
     private final Map<UUID, PlayerStatsData> cache = new ConcurrentHashMap<>();
 
     // Session-only, in-memory stats (for live placeholders)
     private final Map<UUID, PlayerStatsData> sessionStats = new ConcurrentHashMap<>();
 
+    private final List<StatChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Raw block type id -> stat ids, so block events don't rebuild keys
+    private final Map<String, BlockStatIds> minedIds = new ConcurrentHashMap<>();
+    private final Map<String, BlockStatIds> placedIds = new ConcurrentHashMap<>();
+
+    // Wildcard key -> compiled query
+    private final Map<String, StatQuery> queries = new ConcurrentHashMap<>();
+
+    // Wildcard keys with running per-player totals (tags.json requirements)
+    private volatile StatAggregates aggregates = StatAggregates.EMPTY;
+
+    /**
+     * Notified after a persistent stat changes, on the thread that changed it.
+     */
+    @FunctionalInterface
+    public interface StatChangeListener {
+        /**
+         * @param category stat category as stored, or null if all of the
+         *                 player's stats changed (reset)
+         * @param stat     stat key within the category, or null with a null category
+         */
+        void onStatChanged(@Nonnull UUID uuid, @Nullable String category, @Nullable String stat);
+    }
+
+    private volatile ThresholdWatcher thresholdWatcher;
+
+    /**
+     * Told when a stat increase reaches a watched threshold (e.g. a tag's
+     * stat requirement), on the thread that changed it. nextThreshold runs
+     * on every increase and must be cheap.
+     */
+    public interface ThresholdWatcher {
+        /**
+         * Smallest watched threshold for category.stat above {@code value},
+         * or Long.MAX_VALUE if there is none.
+         */
+        long nextThreshold(@Nonnull String category, @Nonnull String stat, long value);
+
+        void onThresholdReached(@Nonnull UUID uuid,
+                                @Nonnull String category,
+                                @Nonnull String stat,
+                                long before,
+                                long after);
+    }
+
     /**
      * Initialize and register as StatProvider with the integration manager.
      * Call this ONCE from your plugin bootstrap, after IntegrationManager exists.
@@ -95,7 +163,7 @@ public final class PlayerStatManager implements StatProvider {
 
     // --------------------------------------------------
 
-    private final PlayerStatStore store;
+    private final WriteBehindPlayerStatStore store;
 
     private PlayerStatManager() {
         MysticNameTagsPlugin plugin = MysticNameTagsPlugin.getInstance();
@@ -114,60 +182,96 @@ public final class PlayerStatManager implements StatProvider {
         PlayerStatStore chosen;
 
         switch (backend) {
-            case SQLITE: {
-                File sqliteFile = new File(dataFolder, settings.getSqliteFile());
-                String jdbcUrl = "jdbc:sqlite:" + sqliteFile.getAbsolutePath();
-                chosen = new SqlPlayerStatStore(jdbcUrl, "", "", GSON);
-                break;
-            }
-
+            case SQLITE:
             case MYSQL: {
-                String host = settings.getMysqlHost();
-                int port = settings.getMysqlPort();
-                String db = settings.getMysqlDatabase();
-                String user = settings.getMysqlUser();
-                String pass = settings.getMysqlPassword();
-
-                String jdbcUrl = "jdbc:mysql://" + host + ":" + port + "/" + db +
-                        "?useSSL=false&autoReconnect=true&characterEncoding=UTF-8";
-
-                chosen = new SqlPlayerStatStore(jdbcUrl, user, pass, GSON);
+                SqlConnectionPool pool = SqlConnectionPool.shared(backend, dataFolder);
+                chosen = settings.isSqlNormalizedSchema()
+                        ? new NormalizedSqlPlayerStatStore(pool, GSON)
+                        : new SqlPlayerStatStore(pool, GSON, settings.isSqlStatsBinary());
+                chosen.migrateFromFolder(statsFolder, GSON);
                 break;
             }
 
             case FILE:
             default: {
-                chosen = new FilePlayerStatStore(statsFolder, GSON);
+                chosen = new FilePlayerStatStore(statsFolder, GSON, settings.isFileStatsBinary());
                 break;
             }
         }
 
-        this.store = chosen;
+        // Increments only touch memory; the write-behind layer persists them.
+        this.store = new WriteBehindPlayerStatStore(chosen,
+                settings.getStatSaveMaxStalenessMs(), settings.getStatSaveMaxBatch());
         LOGGER.at(Level.INFO)
                 .log("[MysticNameTags] PlayerStatManager initialized using backend: " + backend);
     }
 
     /**
-     * Flush all cached stats to the underlying store.
+     * Flush all queued stat writes to the underlying store.
      */
     private void shutdown() {
         LOGGER.at(Level.INFO).log("[MysticNameTags] Flushing PlayerStatManager cache on shutdown...");
-        for (UUID uuid : cache.keySet()) {
-            try {
-                save(uuid);
-            } catch (Throwable t) {
-                LOGGER.at(Level.WARNING).withCause(t)
-                        .log("[MysticNameTags] Failed to save stats for " + uuid + " during shutdown.");
-            }
+        try {
+            // Every change since the last drain is still queued there.
+            store.close();
+        } catch (Throwable t) {
+            LOGGER.at(Level.WARNING).withCause(t)
+                    .log("[MysticNameTags] Failed to flush " + store.getPendingCount() + " players' stats during shutdown.");
         }
         cache.clear();
         sessionStats.clear();
     }
 
+    public void addListener(@Nonnull StatChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Replaces the threshold watcher; null disables threshold checks.
+     */
+    public void setThresholdWatcher(@Nullable ThresholdWatcher watcher) {
+        this.thresholdWatcher = watcher;
+    }
+
     // --------------------------------------------------
     // Internal helpers
     // --------------------------------------------------
 
+    /**
+     * One lookup per increase: the watcher only hears about increases that
+     * reach the next threshold above the old value.
+     */
+    private void checkThreshold(@Nonnull UUID uuid,
+                                int statId,
+                                long before,
+                                long after) {
+        ThresholdWatcher watcher = this.thresholdWatcher;
+        if (watcher == null || after <= before) {
+            return;
+        }
+        try {
+            String category = StatKeys.category(statId);
+            String stat = StatKeys.stat(statId);
+            if (watcher.nextThreshold(category, stat, before) <= after) {
+                watcher.onThresholdReached(uuid, category, stat, before, after);
+            }
+        } catch (Throwable t) {
+            LOGGER.at(Level.FINE).withCause(t)
+                    .log("[MysticNameTags] Stat threshold watcher failed for " + uuid);
+        }
+    }
+
+    private void fireChanged(@Nonnull UUID uuid, @Nullable String category, @Nullable String stat) {
+        for (StatChangeListener listener : listeners) {
+            try {
+                listener.onStatChanged(uuid, category, stat);
+            } catch (Throwable t) {
+                LOGGER.at(Level.FINE).withCause(t)
+                        .log("[MysticNameTags] Stat change listener failed for " + uuid);
+            }
+        }
+    }
+
     @Nonnull
     private PlayerStatsData getOrLoad(@Nonnull UUID uuid) {
         return cache.computeIfAbsent(uuid, this::loadAndNormalize);
@@ -178,10 +282,7 @@ public final class PlayerStatManager implements StatProvider {
         PlayerStatsData data = store.load(uuid);
 
         try {
-            boolean changed = normalizeLoadedBlockCategories(data);
-            if (changed) {
-                store.save(uuid, data);
-            }
+            normalizeLoadedBlockCategories(store, uuid, data);
         } catch (Throwable t) {
             LOGGER.at(Level.FINE).withCause(t)
                     .log("[MysticNameTags] Failed to normalize loaded block stats for " + uuid);
@@ -190,12 +291,28 @@ public final class PlayerStatManager implements StatProvider {
         return data;
     }
 
+    /**
+     * Queue {@code uuid}'s full stats for the next drain.
+     */
     private void save(@Nonnull UUID uuid) {
+        if (store.supportsDeltas()) return; // queued via applyDeltas
         PlayerStatsData data = cache.get(uuid);
         if (data == null) return;
         store.save(uuid, data);
     }
 
+    /**
+     * Queue one change: a single-row delta when the store supports it,
+     * otherwise the whole PlayerStatsData. Neither writes on the caller.
+     */
+    private void persistDelta(@Nonnull UUID uuid, int statId, long delta) {
+        if (store.supportsDeltas()) {
+            store.addDelta(uuid, statId, delta);
+        } else {
+            save(uuid);
+        }
+    }
+
     @Nonnull
     private PlayerStatsData getSession(@Nonnull UUID uuid) {
         return sessionStats.computeIfAbsent(uuid, u -> new PlayerStatsData());
@@ -212,17 +329,45 @@ public final class PlayerStatManager implements StatProvider {
      */
     public void onPlayerJoin(@Nonnull UUID uuid) {
         sessionStats.put(uuid, new PlayerStatsData());
-        // Lazy load: actual persistent data will be loaded on first get/add.
+        // Persistent data is prefetched off-thread by the player listener.
     }
 
     /**
-     * Player quit: drop session-only stats and persist cached data.
+     * Load {@code uuid}'s persistent stats into the cache ahead of first use.
+     * Called off the world thread when a player connects.
+     */
+    public void preloadPlayer(@Nonnull UUID uuid) {
+        getOrLoad(uuid);
+    }
+
+    /**
+     * {@code uuid}'s cached stats in the compact binary encoding, or null if
+     * they aren't loaded. Used for the warm-restart snapshot.
+     */
+    @Nullable
+    public byte[] exportCached(@Nonnull UUID uuid) {
+        PlayerStatsData data = cache.get(uuid);
+        return data != null ? BinaryStatsCodec.encode(data) : null;
+    }
+
+    /**
+     * Cache stats restored from a warm-restart snapshot, unless
+     * {@code uuid} was already loaded.
+     */
+    public boolean seedCached(@Nonnull UUID uuid, @Nonnull byte[] encoded) throws IOException {
+        PlayerStatsData data = BinaryStatsCodec.decode(new ByteArrayInputStream(encoded));
+        return cache.putIfAbsent(uuid, data) == null;
+    }
+
+    /**
+     * Player quit: drop session-only stats and write their queued changes
+     * without waiting for the next drain.
      *
      * Playtime accumulation is handled externally by PlaytimeService.
      */
     public void onPlayerQuit(@Nonnull UUID uuid) {
         sessionStats.remove(uuid);
-        save(uuid);
+        store.flushPlayer(uuid);
     }
 
     // --------------------------------------------------
@@ -269,14 +414,25 @@ public final class PlayerStatManager implements StatProvider {
         }
 
         ParsedKey parsed = parseKey(key);
+        return getStatLong(data, parsed.category, parsed.stat);
+    }
 
-        long direct = data.get(parsed.category, parsed.stat);
+    /**
+     * Raw long value for an already split "category.statKey".
+     */
+    @Override
+    public long getStatLong(@Nonnull UUID uuid, @Nonnull String category, @Nonnull String stat) {
+        return getStatLong(getOrLoad(uuid), category, stat);
+    }
+
+    private long getStatLong(@Nonnull PlayerStatsData data, @Nonnull String category, @Nonnull String stat) {
+        long direct = data.get(category, stat);
         if (direct > 0L) {
             return direct;
         }
 
-        if (isBlockCategory(parsed.category)) {
-            return getAliasedBlockStat(data, parsed.category, parsed.stat);
+        if (isBlockCategory(category)) {
+            return getAliasedBlockStat(data, category, stat);
         }
 
         return 0L;
@@ -291,12 +447,25 @@ public final class PlayerStatManager implements StatProvider {
         }
 
         ParsedKey parsed = parseKey(key);
+        return addToStat(uuid, StatKeys.id(parsed.category, parsed.stat), delta);
+    }
 
+    /**
+     * Add delta (can be negative) to a stat resolved once with
+     * {@link StatKeys#id}; the per-event path of the stat systems.
+     */
+    public long addToStat(@Nonnull UUID uuid, int statId, long delta) {
         PlayerStatsData data = getOrLoad(uuid);
-        data.increment(parsed.category, parsed.stat, delta);
-        save(uuid);
+        if (delta == 0L) {
+            return data.get(statId);
+        }
+
+        long after = data.increment(statId, delta);
+        persistDelta(uuid, statId, delta);
+        fireChanged(uuid, StatKeys.category(statId), StatKeys.stat(statId));
+        checkThreshold(uuid, statId, after - delta, after);
 
-        return data.get(parsed.category, parsed.stat);
+        return after;
     }
 
     // --------------------------------------------------
@@ -304,64 +473,75 @@ public final class PlayerStatManager implements StatProvider {
     // --------------------------------------------------
 
     public long incrementEntityKill(@Nonnull UUID uuid, @Nonnull String entityId) {
-        addToStat(uuid, "custom.kills_total", 1L);
-        addToStat(uuid, "killed." + entityId, 1L);
-        return getStatLong(uuid, "killed." + entityId);
+        addToStat(uuid, KILLS_TOTAL, 1L);
+        return addToStat(uuid, StatKeys.id("killed", entityId), 1L);
     }
 
     public long incrementDeath(@Nonnull UUID uuid) {
-        addToStat(uuid, "custom.deaths_total", 1L);
-        return getStatLong(uuid, "custom.deaths_total");
+        return addToStat(uuid, DEATHS_TOTAL, 1L);
     }
 
     public long incrementBlockBroken(@Nonnull UUID uuid, @Nonnull String blockId) {
-        String normalized = normalizeBlockId(blockId);
-        String bare = stripNamespace(normalized);
+        BlockStatIds ids = minedIds.computeIfAbsent(blockId, id -> resolveBlockIds("mined", id));
 
-        addToStat(uuid, "custom.blocks_broken_total", 1L);
+        addToStat(uuid, BLOCKS_BROKEN_TOTAL, 1L);
 
         // Canonical
-        addToStat(uuid, "mined." + normalized, 1L);
+        long canonical = addToStat(uuid, ids.canonical, 1L);
 
         // Legacy alias compatibility
-        if (!bare.equals(normalized)) {
-            addToStat(uuid, "mined." + bare, 1L);
+        if (ids.alias >= 0) {
+            addToStat(uuid, ids.alias, 1L);
         }
 
-        getSession(uuid).increment("session", "blocks_broken_total", 1L);
-        return getStatLong(uuid, "mined." + normalized);
+        getSession(uuid).increment(SESSION_BLOCKS_BROKEN, 1L);
+        return canonical;
     }
 
     public long incrementBlockPlaced(@Nonnull UUID uuid, @Nonnull String blockId) {
-        String normalized = normalizeBlockId(blockId);
-        String bare = stripNamespace(normalized);
+        BlockStatIds ids = placedIds.computeIfAbsent(blockId, id -> resolveBlockIds("placed", id));
 
-        addToStat(uuid, "custom.blocks_placed_total", 1L);
+        addToStat(uuid, BLOCKS_PLACED_TOTAL, 1L);
 
         // Canonical
-        addToStat(uuid, "placed." + normalized, 1L);
+        long canonical = addToStat(uuid, ids.canonical, 1L);
 
         // Legacy alias compatibility
-        if (!bare.equals(normalized)) {
-            addToStat(uuid, "placed." + bare, 1L);
+        if (ids.alias >= 0) {
+            addToStat(uuid, ids.alias, 1L);
         }
 
-        getSession(uuid).increment("session", "blocks_placed_total", 1L);
-        return getStatLong(uuid, "placed." + normalized);
+        getSession(uuid).increment(SESSION_BLOCKS_PLACED, 1L);
+        return canonical;
     }
 
     public void addDamageDealt(@Nonnull UUID uuid, double amount) {
         if (amount <= 0.0D) return;
         long delta = Math.round(amount);
-        addToStat(uuid, "custom.damage_dealt", delta);
-        getSession(uuid).increment("session", "damage_dealt", delta);
+        addToStat(uuid, DAMAGE_DEALT, delta);
+        getSession(uuid).increment(SESSION_DAMAGE_DEALT, delta);
     }
 
     public void addDamageTaken(@Nonnull UUID uuid, double amount) {
         if (amount <= 0.0D) return;
         long delta = Math.round(amount);
-        addToStat(uuid, "custom.damage_taken", delta);
-        getSession(uuid).increment("session", "damage_taken", delta);
+        addToStat(uuid, DAMAGE_TAKEN, delta);
+        getSession(uuid).increment(SESSION_DAMAGE_TAKEN, delta);
+    }
+
+    /**
+     * Stat ids for one block type: the canonical namespaced key, and the
+     * legacy bare alias (-1 if the block id has no namespace to strip).
+     */
+    private record BlockStatIds(int canonical, int alias) {}
+
+    @Nonnull
+    private BlockStatIds resolveBlockIds(@Nonnull String category, @Nonnull String blockId) {
+        String normalized = normalizeBlockId(blockId);
+        String bare = stripNamespace(normalized);
+        return new BlockStatIds(
+                StatKeys.id(category, normalized),
+                bare.equals(normalized) ? -1 : StatKeys.id(category, bare));
     }
 
     // Session getters – for placeholders / live displays
@@ -378,9 +558,14 @@ public final class PlayerStatManager implements StatProvider {
                              @Nonnull String key,
                              long value) {
         ParsedKey parsed = parseKey(key);
+        int statId = StatKeys.id(parsed.category, parsed.stat);
         PlayerStatsData data = getOrLoad(uuid);
-        data.increment(parsed.category, parsed.stat, value - data.get(parsed.category, parsed.stat));
-        save(uuid);
+        long delta = value - data.get(statId);
+        if (delta == 0L) return;
+        long after = data.increment(statId, delta);
+        persistDelta(uuid, statId, delta);
+        fireChanged(uuid, parsed.category, parsed.stat);
+        checkThreshold(uuid, statId, after - delta, after);
     }
 
     public long adminAddStat(@Nonnull UUID uuid,
@@ -396,6 +581,7 @@ public final class PlayerStatManager implements StatProvider {
             store.delete(uuid);
         } catch (Throwable ignored) {
         }
+        fireChanged(uuid, null, null);
     }
 
     // --------------------------------------------------
@@ -415,84 +601,48 @@ public final class PlayerStatManager implements StatProvider {
         return new ParsedKey(cat, stat);
     }
 
-    private long sumMatchingStats(@Nonnull PlayerStatsData data, @Nonnull String pattern) {
-        ParsedKey parsed = parseKey(pattern);
-
-        if (isBlockCategory(parsed.category)) {
-            return sumMatchingBlockStats(data, parsed.category, parsed.stat);
-        }
-
-        String regex = wildcardToRegex(pattern);
-        long total = 0L;
-
-        for (Map.Entry<String, Map<String, Long>> catEntry : data.viewAll().entrySet()) {
-            String category = catEntry.getKey();
-            Map<String, Long> stats = catEntry.getValue();
-            if (stats == null || stats.isEmpty()) continue;
-
-            for (Map.Entry<String, Long> statEntry : stats.entrySet()) {
-                String fullKey = category + "." + statEntry.getKey();
-                if (fullKey.matches(regex)) {
-                    Long value = statEntry.getValue();
-                    if (value != null && value > 0L) {
-                        total += value;
-                    }
-                }
-            }
-        }
-
-        return total;
+    /**
+     * Keep running per-player totals for these wildcard keys (the ones tag
+     * requirements use), so checking them reads one number instead of
+     * summing. Replaces the previously registered set; totals are seeded
+     * per player on first read.
+     */
+    public void registerAggregatePatterns(@Nonnull Collection<String> keys) {
+        StatAggregates built = StatAggregates.build(keys, this::queryFor);
+        aggregates = built;
+        LOGGER.at(Level.FINE).log("[MysticNameTags] Tracking running totals for "
+                + built.size() + " wildcard stat keys.");
     }
 
-    private long sumMatchingBlockStats(@Nonnull PlayerStatsData data,
-                                       @Nonnull String category,
-                                       @Nonnull String statPattern) {
-        Map<String, Long> categoryStats = data.getCategory(category);
-        if (categoryStats.isEmpty()) {
-            return 0L;
-        }
-
-        String normalizedPattern = normalizeBlockPattern(statPattern);
-        String barePattern = stripNamespacePattern(normalizedPattern);
-
-        String normalizedRegex = wildcardToRegex(normalizedPattern);
-        String bareRegex = wildcardToRegex(barePattern);
-
-        long total = 0L;
-        Map<String, Long> deduped = new LinkedHashMap<>();
-
-        for (Map.Entry<String, Long> entry : categoryStats.entrySet()) {
-            String rawKey = entry.getKey();
-            Long value = entry.getValue();
-
-            if (rawKey == null || rawKey.isBlank() || value == null || value <= 0L) {
-                continue;
-            }
-
-            String normalizedKey = normalizeBlockId(rawKey);
-            String bareKey = stripNamespace(normalizedKey);
-
-            boolean matches =
-                    normalizedKey.matches(normalizedRegex) ||
-                            bareKey.matches(bareRegex) ||
-                            rawKey.matches(normalizedRegex) ||
-                            rawKey.matches(bareRegex);
-
-            if (!matches) {
-                continue;
+    private long sumMatchingStats(@Nonnull PlayerStatsData data, @Nonnull String pattern) {
+        StatAggregates table = aggregates;
+        int slot = table.slotOf(pattern);
+        if (slot >= 0) {
+            long total = data.total(table, slot);
+            if (total >= 0L) {
+                return total;
             }
-
-            String dedupeKey = category + "." + normalizedKey;
-            deduped.merge(dedupeKey, value, Math::max);
         }
+        return data.sum(queryFor(pattern));
+    }
 
-        for (Long value : deduped.values()) {
-            if (value != null && value > 0L) {
-                total += value;
+    @Nonnull
+    private StatQuery queryFor(@Nonnull String pattern) {
+        StatQuery query = queries.get(pattern);
+        if (query == null) {
+            if (queries.size() >= MAX_CACHED_QUERIES) {
+                queries.clear();
+                // Players' cached sums are keyed by the dropped queries.
+                for (PlayerStatsData cached : cache.values()) {
+                    cached.clearSums();
+                }
             }
+            query = queries.computeIfAbsent(pattern, p -> {
+                ParsedKey parsed = parseKey(p);
+                return StatQuery.compile(p.trim(), parsed.category, parsed.stat);
+            });
         }
-
-        return total;
+        return query;
     }
 
     private long getAliasedBlockStat(@Nonnull PlayerStatsData data,
@@ -514,31 +664,43 @@ public final class PlayerStatManager implements StatProvider {
         return 0L;
     }
 
-    private boolean isBlockCategory(@Nonnull String category) {
+    static boolean isBlockCategory(@Nonnull String category) {
         return "mined".equalsIgnoreCase(category) || "placed".equalsIgnoreCase(category);
     }
 
     /**
      * Normalizes loaded stats so canonical namespaced block keys exist.
-     * Keeps legacy bare keys for compatibility.
+     * Keeps legacy bare keys for compatibility, and queues the raised keys.
      */
-    private boolean normalizeLoadedBlockCategories(@Nonnull PlayerStatsData data) {
-        boolean changed = false;
+    static void normalizeLoadedBlockCategories(@Nonnull WriteBehindPlayerStatStore store,
+                                               @Nonnull UUID uuid,
+                                               @Nonnull PlayerStatsData data) {
+        Map<Integer, Long> raised = new LinkedHashMap<>();
 
-        changed |= normalizeLoadedBlockCategory(data, "mined");
-        changed |= normalizeLoadedBlockCategory(data, "placed");
+        normalizeLoadedBlockCategory(data, "mined", raised);
+        normalizeLoadedBlockCategory(data, "placed", raised);
 
-        return changed;
+        if (raised.isEmpty()) {
+            return;
+        }
+
+        // A delta store gets the raises as deltas: a queued full save would
+        // carry later increments too, and their own deltas would add them again.
+        if (store.supportsDeltas()) {
+            raised.forEach((statId, delta) -> store.addDelta(uuid, statId, delta));
+        } else {
+            store.save(uuid, data);
+        }
     }
 
-    private boolean normalizeLoadedBlockCategory(@Nonnull PlayerStatsData data,
-                                                 @Nonnull String category) {
+    private static void normalizeLoadedBlockCategory(@Nonnull PlayerStatsData data,
+                                                     @Nonnull String category,
+                                                     @Nonnull Map<Integer, Long> raised) {
         Map<String, Long> existing = data.getCategory(category);
         if (existing.isEmpty()) {
-            return false;
+            return;
         }
 
-        boolean changed = false;
         Map<String, Long> canonicalAdds = new LinkedHashMap<>();
 
         for (Map.Entry<String, Long> entry : existing.entrySet()) {
@@ -566,15 +728,13 @@ public final class PlayerStatManager implements StatProvider {
             long current = data.get(category, stat);
             if (current < value) {
                 data.increment(category, stat, value - current);
-                changed = true;
+                raised.put(StatKeys.id(category, stat), value - current);
             }
         }
-
-        return changed;
     }
 
     @Nonnull
-    private String normalizeBlockId(@Nonnull String blockId) {
+    static String normalizeBlockId(@Nonnull String blockId) {
         String key = blockId.trim().toLowerCase();
 
         if (key.isEmpty()) {
@@ -589,7 +749,7 @@ public final class PlayerStatManager implements StatProvider {
     }
 
     @Nonnull
-    private String normalizeBlockPattern(@Nonnull String statPattern) {
+    static String normalizeBlockPattern(@Nonnull String statPattern) {
         String key = statPattern.trim().toLowerCase();
 
         if (key.isEmpty()) {
@@ -604,48 +764,8 @@ public final class PlayerStatManager implements StatProvider {
     }
 
     @Nonnull
-    private String stripNamespace(@Nonnull String key) {
+    static String stripNamespace(@Nonnull String key) {
         int idx = key.indexOf(':');
         return idx >= 0 ? key.substring(idx + 1) : key;
     }
-
-    @Nonnull
-    private String stripNamespacePattern(@Nonnull String key) {
-        int idx = key.indexOf(':');
-        return idx >= 0 ? key.substring(idx + 1) : key;
-    }
-
-    private String wildcardToRegex(@Nonnull String pattern) {
-        StringBuilder sb = new StringBuilder("^");
-        for (char c : pattern.toCharArray()) {
-            switch (c) {
-                case '*':
-                    sb.append(".*");
-                    break;
-                case '.':
-                    sb.append("\\.");
-                    break;
-                case '\\':
-                    sb.append("\\\\");
-                    break;
-                case '(':
-                case ')':
-                case '[':
-                case ']':
-                case '{':
-                case '}':
-                case '+':
-                case '?':
-                case '^':
-                case '$':
-                case '|':
-                    sb.append("\\").append(c);
-                    break;
-                default:
-                    sb.append(c);
-            }
-        }
-        sb.append("$");
-        return sb.toString();
-    }
-}
\ No newline at end of file
+}
@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 
 import javax.annotation.Nonnull;
 import java.io.File;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -12,14 +13,91 @@ import java.util.UUID;
  * Implementations:
  *  - FilePlayerStatStore (JSON per player)
  *  - SqlPlayerStatStore  (single table with JSON blob)
+ *  - NormalizedSqlPlayerStatStore (one row per stat, in-database increments)
  */
 public interface PlayerStatStore {
 
     @Nonnull
     PlayerStatsData load(@Nonnull UUID uuid);
 
+    /**
+     * @throws IllegalStateException if the data could not be written, so
+     *         the write-behind queue can retry the player
+     */
     void save(@Nonnull UUID uuid, @Nonnull PlayerStatsData data);
 
+    /**
+     * Persist many players at once (shutdown / periodic flush).
+     * SQL backends override this with one batched transaction; the default
+     * saves each player, carrying on past failures.
+     *
+     * @throws IllegalStateException if any player could not be written
+     */
+    default void saveAll(@Nonnull Map<UUID, PlayerStatsData> batch) {
+        IllegalStateException failure = null;
+        int failed = 0;
+
+        for (Map.Entry<UUID, PlayerStatsData> e : batch.entrySet()) {
+            try {
+                save(e.getKey(), e.getValue());
+            } catch (IllegalStateException ex) {
+                failed++;
+                if (failure == null) {
+                    failure = ex;
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw new IllegalStateException("Failed to save stats for " + failed + " of "
+                    + batch.size() + " players", failure);
+        }
+    }
+
+    /**
+     * Whether {@link #applyDeltas} is supported. When true, callers send
+     * increments instead of re-saving the whole PlayerStatsData.
+     */
+    default boolean supportsDeltas() {
+        return false;
+    }
+
+    /**
+     * Add each delta ("category.stat" -> amount) to the stored value.
+     * The default loads, applies and saves the whole player; stores that
+     * can update in place override it (and {@link #supportsDeltas()}).
+     */
+    default void applyDeltas(@Nonnull UUID uuid, @Nonnull Map<String, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        PlayerStatsData data = load(uuid);
+        for (Map.Entry<String, Long> e : deltas.entrySet()) {
+            String key = e.getKey();
+            Long delta = e.getValue();
+            if (key == null || delta == null || delta == 0L) {
+                continue;
+            }
+            int dot = key.indexOf('.');
+            if (dot > 0 && dot < key.length() - 1) {
+                data.increment(key.substring(0, dot), key.substring(dot + 1), delta);
+            } else {
+                data.increment("custom", key, delta);
+            }
+        }
+        save(uuid, data);
+    }
+
+    /**
+     * {@link #applyDeltas} for many players at once (periodic flush).
+     * SQL backends override this with one batched transaction.
+     */
+    default void applyDeltasAll(@Nonnull Map<UUID, Map<String, Long>> batch) {
+        for (Map.Entry<UUID, Map<String, Long>> e : batch.entrySet()) {
+            applyDeltas(e.getKey(), e.getValue());
+        }
+    }
+
     /**
      * Optional hard delete (e.g. for admin full reset).
      */
@@ -28,8 +106,16 @@ public interface PlayerStatStore {
     }
 
     /**
-     * Optional migration from legacy folder-based JSON stats, if you ever
-     * used that. For now you can leave it unused.
+     * Optional: release resources on shutdown, after the last save.
+     */
+    default void close() {
+        // no-op by default
+    }
+
+    /**
+     * Optional migration from the FILE backend's stats/ folder into this
+     * backend (used when switching FILE -> SQL). May finish in the
+     * background.
      */
     default void migrateFromFolder(@Nonnull File folder, @Nonnull Gson gson) {
         // no-op by default
@@ -2,9 +2,13 @@ package com.mystichorizons.mysticnametags.stats;
 
 import javax.annotation.Nonnull;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Per-player statistics container.
@@ -19,14 +23,36 @@ import java.util.concurrent.ConcurrentHashMap;
  *
  * Keys are free-form strings; Tag requirements should use "category.stat"
  * notation, e.g. "custom.damage_dealt".
+ *
+ * Values are held in a primitive map keyed by {@link StatKeys} id; hot
+ * callers use the id-based methods, the string-based ones resolve the id
+ * first. Stats are never removed while the object is live (an increment
+ * could land on a removed one); zeros are skipped when reading instead,
+ * so the stored data stays sparse.
  */
 public final class PlayerStatsData {
 
     private static final int CURRENT_DATA_VERSION = 2;
 
-    private final Map<String, Map<String, Long>> stats = new ConcurrentHashMap<>();
+    private final StatCounters counters = new StatCounters();
     private int dataVersion = CURRENT_DATA_VERSION;
 
+    // Bumped before / after every change; wildcard sums are cached against
+    // modCount, and running totals are only seeded while none is in flight
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong modCount = new AtomicLong();
+    private final Map<StatQuery, long[]> sums = new ConcurrentHashMap<>();
+
+    /**
+     * Running totals of the keys registered in {@code table}, one per slot.
+     * diverged[slot] != 0 once the total can no longer be trusted (see
+     * {@link StatAggregates}); that key is then read through its query.
+     */
+    private record Totals(StatAggregates table, AtomicLongArray values, AtomicIntegerArray diverged) {
+    }
+
+    private volatile Totals totals;
+
     public PlayerStatsData() {
     }
 
@@ -46,58 +72,187 @@ public final class PlayerStatsData {
     // Core API
     // --------------------------------------------------
 
-    public synchronized void increment(@Nonnull String category,
-                                       @Nonnull String stat,
-                                       long amount) {
+    /**
+     * Lock-free and allocation-free once the stat has a slot. Also adds
+     * {@code amount} to every running total the stat belongs to.
+     *
+     * @param statId id from {@link StatKeys#id}
+     * @return the stat's value after the increment
+     */
+    public long increment(int statId, long amount) {
         if (amount == 0L) {
-            return;
+            return counters.get(statId);
         }
+        started.incrementAndGet();
+        long value = counters.addAndGet(statId, amount);
+        Totals t = totals;
+        if (t != null) {
+            StatAggregates.Member member = t.table.memberOf(statId);
+            if (member != StatAggregates.Member.NONE) {
+                addToTotals(t, member, value - amount, value);
+            }
+        }
+        modCount.incrementAndGet();
+        return value;
+    }
 
-        Map<String, Long> categoryStats =
-                stats.computeIfAbsent(category, k -> new ConcurrentHashMap<>());
+    private void addToTotals(@Nonnull Totals t, @Nonnull StatAggregates.Member member, long before, long after) {
+        // Only positive values count, as in StatQuery.sum; telescopes over
+        // concurrent increments since each sees its own before / after.
+        long delta = Math.max(0L, after) - Math.max(0L, before);
+        if (delta != 0L) {
+            for (int slot : member.slots()) {
+                t.values.getAndAdd(slot, delta);
+            }
+        }
+        if (member.aliasSlots().length > 0 && after > counters.get(member.canonical())) {
+            for (int slot : member.aliasSlots()) {
+                t.diverged.set(slot, 1);
+            }
+        }
+        // A canonical block key going down may drop behind one of its aliases.
+        if (after < before) {
+            for (int slot : member.blockSlots()) {
+                t.diverged.set(slot, 1);
+            }
+        }
+    }
 
-        categoryStats.merge(stat, amount, Long::sum);
+    /**
+     * @return the stat's value after the increment
+     */
+    public long increment(@Nonnull String category,
+                          @Nonnull String stat,
+                          long amount) {
+        if (amount == 0L) {
+            return get(category, stat);
+        }
+        return increment(StatKeys.id(category, stat), amount);
+    }
+
+    public long get(int statId) {
+        return counters.get(statId);
+    }
+
+    public long get(@Nonnull String category, @Nonnull String stat) {
+        int id = StatKeys.find(category, stat);
+        return id < 0 ? 0L : counters.get(id);
+    }
 
-        // Remove zeros to keep data sparse
-        Long newValue = categoryStats.get(stat);
-        if (newValue != null && newValue == 0L) {
-            categoryStats.remove(stat);
+    /**
+     * {@code query}'s sum for this player. Recomputed only when a stat has
+     * changed since the last call; otherwise a map lookup.
+     */
+    long sum(@Nonnull StatQuery query) {
+        long version = modCount.get();
+        long[] cached = sums.get(query);
+        if (cached != null && cached[0] == version) {
+            return cached[1];
         }
-        if (categoryStats.isEmpty()) {
-            stats.remove(category);
+        long total = query.sum(this);
+        sums.put(query, new long[]{version, total});
+        return total;
+    }
+
+    /**
+     * Drop the cached {@link #sum} results (their queries were discarded).
+     */
+    void clearSums() {
+        sums.clear();
+    }
+
+    /**
+     * Running total of the key in {@code slot} of {@code table}, or -1 if the
+     * caller must sum it by query instead: the totals could not be seeded
+     * (increments kept racing the initial scan), or this slot diverged.
+     */
+    long total(@Nonnull StatAggregates table, int slot) {
+        Totals t = totals;
+        if (t == null || t.table != table) {
+            t = seedTotals(table);
+            if (t == null) {
+                return -1L;
+            }
         }
+        return t.diverged.get(slot) != 0 ? -1L : t.values.get(slot);
     }
 
-    public long get(@Nonnull String category, @Nonnull String stat) {
-        Map<String, Long> categoryStats = stats.get(category);
-        if (categoryStats == null) {
-            return 0L;
+    /**
+     * Sums the current stats into fresh totals and publishes them. Only a
+     * scan with no increment in flight or started during it is kept: one
+     * that finished before is in the scan, one that starts after adds
+     * itself to the published totals.
+     */
+    private synchronized Totals seedTotals(@Nonnull StatAggregates table) {
+        Totals t = totals;
+        if (t != null && t.table == table) {
+            return t;
+        }
+
+        for (int attempt = 0; attempt < 16; attempt++) {
+            long done = modCount.get();
+            long begun = started.get();
+            if (begun != done) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            long[] seed = new long[table.size()];
+            counters.forEach((id, value) -> {
+                if (value > 0L) {
+                    for (int slot : table.memberOf(id).slots()) {
+                        seed[slot] += value;
+                    }
+                }
+            });
+            // Slots where an alias is already ahead of its canonical key
+            AtomicIntegerArray diverged = new AtomicIntegerArray(seed.length);
+            for (int slot = 0; slot < seed.length; slot++) {
+                if (seed[slot] != table.query(slot).sum(this)) {
+                    diverged.set(slot, 1);
+                }
+            }
+            Totals built = new Totals(table, new AtomicLongArray(seed), diverged);
+            totals = built;
+            if (started.get() == begun) {
+                return built;
+            }
+            totals = null;
         }
-        return categoryStats.getOrDefault(stat, 0L);
+        return null;
     }
 
+    /**
+     * Snapshot of one category's non-zero stats.
+     */
     @Nonnull
     public Map<String, Long> getCategory(@Nonnull String category) {
-        Map<String, Long> categoryStats = stats.get(category);
-        if (categoryStats == null || categoryStats.isEmpty()) {
-            return Collections.emptyMap();
-        }
-        return Map.copyOf(categoryStats);
+        Map<String, Long> copy = new HashMap<>();
+        counters.forEach((id, value) -> {
+            if (value != 0L && StatKeys.category(id).equals(category)) {
+                copy.put(StatKeys.stat(id), value);
+            }
+        });
+        return copy.isEmpty() ? Collections.emptyMap() : Map.copyOf(copy);
     }
 
     /**
-     * Read-only view of all stats.
+     * Snapshot of all non-zero stats.
      * Useful for serializers and general inspection.
      */
     @Nonnull
     public Map<String, Map<String, Long>> getAll() {
-        Map<String, Map<String, Long>> copy = new LinkedHashMap<>();
-        for (Map.Entry<String, Map<String, Long>> entry : stats.entrySet()) {
-            Map<String, Long> inner = entry.getValue();
-            if (inner == null || inner.isEmpty()) {
-                continue;
+        Map<String, Map<String, Long>> grouped = new LinkedHashMap<>();
+        counters.forEach((id, value) -> {
+            if (value != 0L) {
+                grouped.computeIfAbsent(StatKeys.category(id), k -> new HashMap<>())
+                        .put(StatKeys.stat(id), value);
             }
-            copy.put(entry.getKey(), Map.copyOf(inner));
+        });
+
+        Map<String, Map<String, Long>> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Long>> entry : grouped.entrySet()) {
+            copy.put(entry.getKey(), Map.copyOf(entry.getValue()));
         }
         return Map.copyOf(copy);
     }
@@ -111,8 +266,35 @@ public final class PlayerStatsData {
     }
 
     public boolean hasCategory(@Nonnull String category) {
-        Map<String, Long> categoryStats = stats.get(category);
-        return categoryStats != null && !categoryStats.isEmpty();
+        boolean[] found = new boolean[1];
+        counters.forEach((id, value) -> {
+            if (value != 0L && StatKeys.category(id).equals(category)) {
+                found[0] = true;
+            }
+        });
+        return found[0];
+    }
+
+    /**
+     * Detached snapshot of the stats, without running totals.
+     */
+    @Nonnull
+    public PlayerStatsData copy() {
+        PlayerStatsData copy = new PlayerStatsData();
+        copy.dataVersion = dataVersion;
+        counters.forEach((id, value) -> {
+            if (value != 0L) {
+                copy.counters.set(id, value);
+            }
+        });
+        return copy;
+    }
+
+    /**
+     * Visits every stat by id, zeros included.
+     */
+    void forEach(@Nonnull StatCounters.Visitor visitor) {
+        counters.forEach(visitor);
     }
 
     // --------------------------------------------------
@@ -120,7 +302,9 @@ public final class PlayerStatsData {
     // --------------------------------------------------
 
     void setStats(@Nonnull Map<String, Map<String, Long>> loadedStats) {
-        stats.clear();
+        started.incrementAndGet();
+        totals = null;
+        counters.clear();
 
         for (Map.Entry<String, Map<String, Long>> entry : loadedStats.entrySet()) {
             String category = entry.getKey();
@@ -130,7 +314,6 @@ public final class PlayerStatsData {
                 continue;
             }
 
-            Map<String, Long> cleaned = new ConcurrentHashMap<>();
             for (Map.Entry<String, Long> statEntry : categoryStats.entrySet()) {
                 String statKey = statEntry.getKey();
                 Long value = statEntry.getValue();
@@ -139,12 +322,9 @@ public final class PlayerStatsData {
                     continue;
                 }
 
-                cleaned.put(statKey, value);
-            }
-
-            if (!cleaned.isEmpty()) {
-                stats.put(category, cleaned);
+                counters.set(StatKeys.id(category, statKey), value);
             }
         }
+        modCount.incrementAndGet();
     }
-}
\ No newline at end of file
+}
@@ -2,9 +2,17 @@ package com.mystichorizons.mysticnametags.stats;
 
 import com.google.gson.Gson;
 import com.hypixel.hytale.logger.HytaleLogger;
+import com.mystichorizons.mysticnametags.storage.FolderMigration;
+import com.mystichorizons.mysticnametags.storage.SqlConnectionPool;
 
 import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.sql.*;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 import java.util.logging.Level;
 
@@ -17,34 +25,72 @@ import java.util.logging.Level;
  *       data_json TEXT NOT NULL
  *   )
  *
- * data_json stores the PlayerStatsData JSON generated by GSON.
+ * data_json stores the PlayerStatsData JSON generated by GSON, or, with the
+ * binary format selected, "msb64:" + base64 of the {@link BinaryStatsCodec}
+ * payload. Loads accept both, whatever the current setting.
+ *
+ * Reads borrow connections from the shared {@link SqlConnectionPool};
+ * writes go through {@link SqlConnectionPool#write}.
  */
 public final class SqlPlayerStatStore implements PlayerStatStore {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
 
-    private final String jdbcUrl;
-    private final String user;
-    private final String password;
+    // Rows per executeBatch() call inside a saveAll transaction
+    private static final int BATCH_SIZE = 500;
+
+    // Marks a base64 binary payload in the data_json column
+    private static final String BINARY_PREFIX = "msb64:";
+
+    private final SqlConnectionPool pool;
     private final Gson gson;
+    private final boolean binary;
+
+    // Running stats/ -> SQL copy, if any (see migrateFromFolder)
+    private volatile FolderMigration<PlayerStatsData> folderMigration;
 
-    public SqlPlayerStatStore(@Nonnull String jdbcUrl,
-                              @Nonnull String user,
-                              @Nonnull String password,
+    public SqlPlayerStatStore(@Nonnull SqlConnectionPool pool,
                               @Nonnull Gson gson) {
-        this.jdbcUrl = jdbcUrl;
-        this.user = user;
-        this.password = password;
+        this(pool, gson, false);
+    }
+
+    public SqlPlayerStatStore(@Nonnull SqlConnectionPool pool,
+                              @Nonnull Gson gson,
+                              boolean binary) {
+        this.pool = pool;
         this.gson = gson;
+        this.binary = binary;
 
         initSchema();
     }
 
-    private Connection getConnection() throws SQLException {
-        if (user.isEmpty()) {
-            return DriverManager.getConnection(jdbcUrl);
+    @Nonnull
+    private String encode(@Nonnull PlayerStatsData data) {
+        if (binary) {
+            return BINARY_PREFIX + Base64.getEncoder().encodeToString(BinaryStatsCodec.encode(data));
         }
-        return DriverManager.getConnection(jdbcUrl, user, password);
+        return gson.toJson(data);
+    }
+
+    /**
+     * Decode a data_json value written in either format.
+     */
+    @Nonnull
+    static PlayerStatsData decode(@Nonnull String column, @Nonnull Gson gson) {
+        if (column.startsWith(BINARY_PREFIX)) {
+            byte[] bytes = Base64.getDecoder().decode(column.substring(BINARY_PREFIX.length()));
+            try {
+                return BinaryStatsCodec.decode(new ByteArrayInputStream(bytes));
+            } catch (IOException e) {
+                throw new IllegalStateException("Corrupt binary stats payload", e);
+            }
+        }
+        PlayerStatsData data = gson.fromJson(column, PlayerStatsData.class);
+        return (data != null) ? data : new PlayerStatsData();
+    }
+
+    private Connection getConnection() throws SQLException {
+        return pool.getConnection();
     }
 
     private void initSchema() {
@@ -55,9 +101,12 @@ public final class SqlPlayerStatStore implements PlayerStatStore {
                 )
                 """;
 
-        try (Connection c = getConnection();
-             Statement st = c.createStatement()) {
-            st.execute(sql);
+        try {
+            pool.write(c -> {
+                try (Statement st = c.createStatement()) {
+                    st.execute(sql);
+                }
+            });
         } catch (SQLException e) {
             LOGGER.at(Level.SEVERE).withCause(e)
                     .log("[MysticNameTags] Failed to initialize mystic_stats_players schema.");
@@ -66,6 +115,11 @@ public final class SqlPlayerStatStore implements PlayerStatStore {
 
     @Override
     public @Nonnull PlayerStatsData load(@Nonnull UUID uuid) {
+        FolderMigration<PlayerStatsData> migration = folderMigration;
+        if (migration != null) {
+            migration.claim(uuid);
+        }
+
         String sql = "SELECT data_json FROM mystic_stats_players WHERE uuid = ?";
 
         try (Connection c = getConnection();
@@ -76,12 +130,11 @@ public final class SqlPlayerStatStore implements PlayerStatStore {
                 if (rs.next()) {
                     String json = rs.getString(1);
                     if (json != null && !json.isEmpty()) {
-                        PlayerStatsData data = gson.fromJson(json, PlayerStatsData.class);
-                        return (data != null) ? data : new PlayerStatsData();
+                        return decode(json, gson);
                     }
                 }
             }
-        } catch (SQLException e) {
+        } catch (SQLException | RuntimeException e) {
             LOGGER.at(Level.WARNING).withCause(e)
                     .log("[MysticNameTags] Failed to load stats row for " + uuid);
         }
@@ -89,45 +142,140 @@ public final class SqlPlayerStatStore implements PlayerStatStore {
         return new PlayerStatsData();
     }
 
-    @Override
-    public void save(@Nonnull UUID uuid, @Nonnull PlayerStatsData data) {
-        String json = gson.toJson(data);
+    /**
+     * {@code batch} minus the players that already have rows in {@code table}.
+     */
+    @Nonnull
+    static Map<UUID, PlayerStatsData> withoutExisting(@Nonnull SqlConnectionPool pool,
+                                                      @Nonnull String table,
+                                                      @Nonnull Map<UUID, PlayerStatsData> batch) throws SQLException {
+        if (batch.isEmpty()) {
+            return batch;
+        }
 
-        String sql = """
+        StringBuilder sql = new StringBuilder("SELECT DISTINCT uuid FROM ").append(table).append(" WHERE uuid IN (");
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        sql.append(')');
+
+        Map<UUID, PlayerStatsData> missing = new HashMap<>(batch);
+        try (Connection c = pool.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql.toString())) {
+            int i = 1;
+            for (UUID uuid : batch.keySet()) {
+                ps.setString(i++, uuid.toString());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    missing.remove(UUID.fromString(rs.getString(1)));
+                }
+            }
+        }
+        return missing;
+    }
+
+    @Nonnull
+    private String upsertSql() {
+        // SQLite doesn't support ON DUPLICATE KEY; fallback to REPLACE INTO
+        if (pool.isSqlite()) {
+            return "REPLACE INTO mystic_stats_players (uuid, data_json) VALUES (?, ?)";
+        }
+        return """
                 INSERT INTO mystic_stats_players (uuid, data_json)
                 VALUES (?, ?)
                 ON DUPLICATE KEY UPDATE data_json = VALUES(data_json)
                 """;
+    }
 
-        // SQLite doesn't support ON DUPLICATE KEY; fallback to REPLACE INTO
-        boolean sqlite = jdbcUrl.startsWith("jdbc:sqlite:");
-        if (sqlite) {
-            sql = "REPLACE INTO mystic_stats_players (uuid, data_json) VALUES (?, ?)";
+    @Override
+    public void save(@Nonnull UUID uuid, @Nonnull PlayerStatsData data) {
+        String json = encode(data);
+
+        try {
+            pool.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement(upsertSql())) {
+                    ps.setString(1, uuid.toString());
+                    ps.setString(2, json);
+                    ps.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to save stats row for " + uuid, e);
         }
+    }
 
-        try (Connection c = getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
+    /**
+     * One JDBC batch in one transaction for the whole map. On failure the
+     * batch is rolled back and each player is retried on its own.
+     */
+    @Override
+    public void saveAll(@Nonnull Map<UUID, PlayerStatsData> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
 
-            ps.setString(1, uuid.toString());
-            ps.setString(2, json);
-            ps.executeUpdate();
+        try {
+            pool.write(c -> {
+                c.setAutoCommit(false);
+                try (PreparedStatement ps = c.prepareStatement(upsertSql())) {
+                    int queued = 0;
+                    for (Map.Entry<UUID, PlayerStatsData> e : batch.entrySet()) {
+                        ps.setString(1, e.getKey().toString());
+                        ps.setString(2, encode(e.getValue()));
+                        ps.addBatch();
+
+                        if (++queued % BATCH_SIZE == 0) {
+                            ps.executeBatch();
+                        }
+                    }
+                    ps.executeBatch();
+                    c.commit();
+                } catch (SQLException e) {
+                    c.rollback();
+                    throw e;
+                }
+            });
+            return;
         } catch (SQLException e) {
             LOGGER.at(Level.WARNING).withCause(e)
-                    .log("[MysticNameTags] Failed to save stats row for " + uuid);
+                    .log("[MysticNameTags] Batched stats save failed for " + batch.size()
+                            + " players; retrying individually.");
         }
+
+        PlayerStatStore.super.saveAll(batch);
     }
 
     @Override
     public void delete(@Nonnull UUID uuid) {
         String sql = "DELETE FROM mystic_stats_players WHERE uuid = ?";
 
-        try (Connection c = getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, uuid.toString());
-            ps.executeUpdate();
+        try {
+            pool.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    ps.setString(1, uuid.toString());
+                    ps.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
             LOGGER.at(Level.WARNING).withCause(e)
                     .log("[MysticNameTags] Failed to delete stats row for " + uuid);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Copy stats/ into this table in the background. Players that already
+     * have a row keep it: stats were never migrated before, so an existing
+     * row is newer than the file.
+     */
+    @Override
+    public void migrateFromFolder(@Nonnull File folder, @Nonnull Gson gson) {
+        if (!folder.exists() || !folder.isDirectory()) {
+            return;
+        }
+
+        FilePlayerStatStore source = new FilePlayerStatStore(folder, gson);
+        folderMigration = FolderMigration.start("stats", folder, source.knownPlayers(), source::load,
+                batch -> saveAll(SqlPlayerStatStore.withoutExisting(pool, "mystic_stats_players", batch)), BATCH_SIZE);
+    }
+}
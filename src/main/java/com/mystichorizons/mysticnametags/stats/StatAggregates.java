@@ -0,0 +1,137 @@
+package com.mystichorizons.mysticnametags.stats;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The wildcard stat keys registered for running per-player totals (those
+ * tags.json requirements use), each with a slot, plus a stat id -> slots
+ * membership table.
+ *
+ * PlayerStatsData adds every increment to the player's total for each slot
+ * its id belongs to, so reading a registered key is one array load.
+ * Membership is worked out once per id and extended as new ids register.
+ * Like {@link StatQuery#sum}, only positive values count: a stat adds
+ * max(0, after) - max(0, before).
+ *
+ * Block categories count canonical namespaced keys only. Every block event
+ * increments the canonical key before its bare alias, and loading raises
+ * canonical keys to at least their aliases, so the canonical key normally
+ * holds the per-block max the query takes. An alias that gets ahead of its
+ * canonical key (an admin edit of "mined.stone") marks the slot diverged
+ * for that player, and the key is summed by its query instead. So does a
+ * canonical key going down, since an alias may now be ahead of it.
+ */
+final class StatAggregates {
+
+    static final StatAggregates EMPTY = new StatAggregates(Map.of(), new StatQuery[0]);
+
+    private static final int[] NO_SLOTS = new int[0];
+
+    /**
+     * What one stat id feeds: the slots it counts towards (blockSlots being
+     * those where it is a canonical block key), and the block slots it is an
+     * alias in, with the canonical id it is compared to.
+     */
+    record Member(int[] slots, int[] blockSlots, int[] aliasSlots, int canonical) {
+        static final Member NONE = new Member(NO_SLOTS, NO_SLOTS, NO_SLOTS, -1);
+    }
+
+    private final Map<String, Integer> slots;
+    private final StatQuery[] queries;
+
+    // Indexed by stat id; covers ids below its length
+    private volatile Member[] members = new Member[0];
+
+    private StatAggregates(@Nonnull Map<String, Integer> slots, @Nonnull StatQuery[] queries) {
+        this.slots = slots;
+        this.queries = queries;
+    }
+
+    @Nonnull
+    static StatAggregates build(@Nonnull Collection<String> keys,
+                                @Nonnull Function<String, StatQuery> compiler) {
+        Map<String, Integer> slots = new HashMap<>();
+        List<StatQuery> queries = new ArrayList<>();
+        for (String key : keys) {
+            if (key != null && key.indexOf('*') >= 0 && !slots.containsKey(key)) {
+                slots.put(key, queries.size());
+                queries.add(compiler.apply(key));
+            }
+        }
+        if (queries.isEmpty()) {
+            return EMPTY;
+        }
+        return new StatAggregates(Map.copyOf(slots), queries.toArray(new StatQuery[0]));
+    }
+
+    int size() {
+        return queries.length;
+    }
+
+    @Nonnull
+    StatQuery query(int slot) {
+        return queries[slot];
+    }
+
+    /**
+     * Slot of a registered key (exactly as registered), or -1.
+     */
+    int slotOf(@Nonnull String key) {
+        Integer slot = slots.get(key);
+        return slot != null ? slot : -1;
+    }
+
+    @Nonnull
+    Member memberOf(int id) {
+        if (queries.length == 0) {
+            return Member.NONE;
+        }
+        Member[] m = members;
+        return id < m.length ? m[id] : extend(id);
+    }
+
+    private synchronized Member extend(int id) {
+        Member[] m = members;
+        int size = Math.max(id + 1, StatKeys.size());
+        if (m.length < size) {
+            int from = m.length;
+            m = Arrays.copyOf(m, size);
+            int[] counted = new int[queries.length];
+            int[] canonicals = new int[queries.length];
+            int[] aliased = new int[queries.length];
+            for (int i = from; i < size; i++) {
+                int n = 0;
+                int b = 0;
+                int a = 0;
+                for (int slot = 0; slot < queries.length; slot++) {
+                    if (queries[slot].counts(i)) {
+                        counted[n++] = slot;
+                        if (queries[slot].block()) {
+                            canonicals[b++] = slot;
+                        }
+                    } else if (queries[slot].isAlias(i)) {
+                        aliased[a++] = slot;
+                    }
+                }
+                if (n == 0 && a == 0) {
+                    m[i] = Member.NONE;
+                    continue;
+                }
+                int canonical = a == 0 ? -1 : StatKeys.id(StatKeys.category(i),
+                        PlayerStatManager.normalizeBlockId(StatKeys.stat(i)));
+                m[i] = new Member(n == 0 ? NO_SLOTS : Arrays.copyOf(counted, n),
+                        b == 0 ? NO_SLOTS : Arrays.copyOf(canonicals, b),
+                        a == 0 ? NO_SLOTS : Arrays.copyOf(aliased, a), canonical);
+            }
+            members = m;
+        }
+        return m[id];
+    }
+}
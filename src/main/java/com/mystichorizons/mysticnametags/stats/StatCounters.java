@@ -0,0 +1,147 @@
+package com.mystichorizons.mysticnametags.stats;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Primitive stat-id -> long map for one player.
+ *
+ * Open addressing over a long[] of entries, each packing (id + 1) in the
+ * high half and a value slot in the low half (0 = free). Values live in
+ * fixed-size long[] segments that never move, so increments of existing
+ * stats are a probe plus one atomic add, with no locks and no allocation;
+ * only adding a new stat (and growing the table) takes the lock. Entries
+ * are published with release/acquire, after the slot they point to.
+ *
+ * Stats are never removed; a stat that drops to 0 keeps its slot.
+ */
+final class StatCounters {
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final int SEGMENT_BITS = 5;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    @FunctionalInterface
+    interface Visitor {
+        void accept(int id, long value);
+    }
+
+    private volatile long[] entries = new long[16];
+    private volatile long[][] segments = new long[1][];
+    private int size; // guarded by this
+
+    long get(int id) {
+        int slot = find(entries, id);
+        return slot < 0 ? 0L : (long) LONGS.getVolatile(segments[slot >>> SEGMENT_BITS], slot & SEGMENT_MASK);
+    }
+
+    /**
+     * @return the value after adding {@code delta}
+     */
+    long addAndGet(int id, long delta) {
+        int slot = find(entries, id);
+        if (slot < 0) {
+            slot = insert(id);
+        }
+        long[] segment = segments[slot >>> SEGMENT_BITS];
+        return (long) LONGS.getAndAdd(segment, slot & SEGMENT_MASK, delta) + delta;
+    }
+
+    void set(int id, long value) {
+        int slot = find(entries, id);
+        if (slot < 0) {
+            slot = insert(id);
+        }
+        LONGS.setVolatile(segments[slot >>> SEGMENT_BITS], slot & SEGMENT_MASK, value);
+    }
+
+    /**
+     * Visits every stat that has a slot, zeros included.
+     */
+    void forEach(Visitor visitor) {
+        long[] table = entries;
+        long[][] segs = segments;
+        for (int i = 0; i < table.length; i++) {
+            long entry = (long) LONGS.getAcquire(table, i);
+            if (entry == 0L) {
+                continue;
+            }
+            int slot = (int) entry;
+            long value = (long) LONGS.getVolatile(segs[slot >>> SEGMENT_BITS], slot & SEGMENT_MASK);
+            visitor.accept((int) (entry >>> 32) - 1, value);
+        }
+    }
+
+    synchronized void clear() {
+        entries = new long[16];
+        segments = new long[1][];
+        size = 0;
+    }
+
+    private static int find(long[] table, int id) {
+        int mask = table.length - 1;
+        long tag = (long) (id + 1) << 32;
+        for (int i = mix(id) & mask; ; i = (i + 1) & mask) {
+            long entry = (long) LONGS.getAcquire(table, i);
+            if (entry == 0L) {
+                return -1;
+            }
+            if ((entry & 0xFFFF_FFFF_0000_0000L) == tag) {
+                return (int) entry;
+            }
+        }
+    }
+
+    private synchronized int insert(int id) {
+        int existing = find(entries, id);
+        if (existing >= 0) {
+            return existing;
+        }
+
+        int slot = size++;
+        long[][] segs = segments;
+        int segment = slot >>> SEGMENT_BITS;
+        if (segment == segs.length) {
+            segs = Arrays.copyOf(segs, segs.length * 2);
+        }
+        if (segs[segment] == null) {
+            segs[segment] = new long[SEGMENT_SIZE];
+        }
+        segments = segs;
+
+        long[] table = entries;
+        if (size * 2 > table.length) {
+            table = rehash(table, table.length * 2);
+            entries = table;
+        }
+        put(table, id, slot);
+        return slot;
+    }
+
+    private static long[] rehash(long[] table, int capacity) {
+        long[] grown = new long[capacity];
+        for (long entry : table) {
+            if (entry != 0L) {
+                put(grown, (int) (entry >>> 32) - 1, (int) entry);
+            }
+        }
+        return grown;
+    }
+
+    private static void put(long[] table, int id, int slot) {
+        int mask = table.length - 1;
+        int i = mix(id) & mask;
+        while ((long) LONGS.getAcquire(table, i) != 0L) {
+            i = (i + 1) & mask;
+        }
+        LONGS.setRelease(table, i, ((long) (id + 1) << 32) | slot);
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,110 @@
+package com.mystichorizons.mysticnametags.stats;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global dictionary of stat keys: each (category, stat) pair gets a small
+ * int id the first time it is seen, for the lifetime of the server.
+ *
+ * Hot paths resolve their keys once (a constant, or a per-block cache)
+ * and then count by id, without building or hashing "category.stat"
+ * strings per event. Ids are process-local; storage always uses the
+ * strings.
+ */
+public final class StatKeys {
+
+    private static final Map<String, Map<String, Integer>> IDS = new ConcurrentHashMap<>();
+    private static final Object LOCK = new Object();
+
+    // Indexed by id; replaced (never mutated below "next") when grown.
+    private static volatile String[] categories = new String[256];
+    private static volatile String[] stats = new String[256];
+    private static volatile String[] keys = new String[256];
+    private static int next; // guarded by LOCK
+    private static volatile int size; // ids below this have their names set
+
+    private StatKeys() {
+    }
+
+    /**
+     * Id of {@code category}.{@code stat}, registering it if new.
+     */
+    public static int id(@Nonnull String category, @Nonnull String stat) {
+        Map<String, Integer> byStat = IDS.get(category);
+        if (byStat != null) {
+            Integer id = byStat.get(stat);
+            if (id != null) {
+                return id;
+            }
+        }
+        return register(category, stat);
+    }
+
+    /**
+     * Id of {@code category}.{@code stat}, or -1 if it was never registered
+     * (so no player can have a value for it).
+     */
+    public static int find(@Nonnull String category, @Nonnull String stat) {
+        Map<String, Integer> byStat = IDS.get(category);
+        if (byStat == null) {
+            return -1;
+        }
+        Integer id = byStat.get(stat);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Number of ids registered so far; every id below it can be named.
+     */
+    public static int size() {
+        return size;
+    }
+
+    @Nonnull
+    public static String category(int id) {
+        return categories[id];
+    }
+
+    @Nonnull
+    public static String stat(int id) {
+        return stats[id];
+    }
+
+    /**
+     * "category.stat" for {@code id} (built once at registration).
+     */
+    @Nonnull
+    public static String key(int id) {
+        return keys[id];
+    }
+
+    private static int register(@Nonnull String category, @Nonnull String stat) {
+        synchronized (LOCK) {
+            Map<String, Integer> byStat = IDS.computeIfAbsent(category, k -> new ConcurrentHashMap<>());
+            Integer existing = byStat.get(stat);
+            if (existing != null) {
+                return existing;
+            }
+
+            int id = next++;
+            if (id == keys.length) {
+                int capacity = keys.length * 2;
+                categories = Arrays.copyOf(categories, capacity);
+                stats = Arrays.copyOf(stats, capacity);
+                keys = Arrays.copyOf(keys, capacity);
+            }
+
+            categories[id] = category;
+            stats[id] = stat;
+            keys[id] = category + "." + stat;
+            size = id + 1;
+
+            // Published last: whoever reads the id from the map sees the names.
+            byStat.put(stat, id);
+            return id;
+        }
+    }
+}
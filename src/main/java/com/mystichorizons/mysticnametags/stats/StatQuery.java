@@ -0,0 +1,215 @@
+package com.mystichorizons.mysticnametags.stats;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled wildcard stat key ("killed.*", "mined.*_ore", ...).
+ *
+ * Which {@link StatKeys} ids match is worked out once per id: the query
+ * remembers how far into the id space it has looked and only tests ids
+ * registered since. Summing a player is then a lookup per matching id,
+ * with no key strings built and no regex run.
+ *
+ * Block categories keep the alias rules of the string matcher: a stat
+ * matches on its namespaced or bare form, and the raw / canonical keys of
+ * one block count once (the larger value).
+ */
+final class StatQuery {
+
+    /**
+     * Matching ids, ordered so ids of one block are adjacent; group[i]
+     * numbers the block of ids[i]. {@code scanned} is how many ids have
+     * been tested.
+     */
+    private record Matches(int[] ids, int[] groups, int scanned) {
+    }
+
+    private static final Matches NONE = new Matches(new int[0], new int[0], 0);
+
+    @Nullable
+    private final String category;   // null: match the full "category.stat" key
+    private final boolean block;
+    private final Glob statGlob;     // stat part, or the full key if category is null
+    private final Glob bareGlob;     // block categories: pattern without namespace
+
+    private volatile Matches matches = NONE;
+
+    // Guarded by this
+    private final List<int[]> found = new ArrayList<>();
+    private final Map<String, Integer> blockGroups = new HashMap<>();
+
+    private StatQuery(@Nullable String category, boolean block, @Nonnull Glob statGlob, @Nullable Glob bareGlob) {
+        this.category = category;
+        this.block = block;
+        this.statGlob = statGlob;
+        this.bareGlob = bareGlob;
+    }
+
+    /**
+     * @param pattern   the whole trimmed key
+     * @param category  its category part (or "custom" when it has none)
+     * @param stat      its stat part
+     */
+    @Nonnull
+    static StatQuery compile(@Nonnull String pattern, @Nonnull String category, @Nonnull String stat) {
+        if (PlayerStatManager.isBlockCategory(category)) {
+            String normalized = PlayerStatManager.normalizeBlockPattern(stat);
+            return new StatQuery(category, true, Glob.compile(normalized),
+                    Glob.compile(PlayerStatManager.stripNamespace(normalized)));
+        }
+        if (pattern.indexOf('.') > 0 && category.indexOf('*') < 0 && pattern.startsWith(category + ".")) {
+            return new StatQuery(category, false, Glob.compile(stat), null);
+        }
+        return new StatQuery(null, false, Glob.compile(pattern), null);
+    }
+
+    /**
+     * Sum of the player's positive values over every matching stat.
+     */
+    long sum(@Nonnull PlayerStatsData data) {
+        Matches m = current();
+        int[] ids = m.ids;
+        long total = 0L;
+
+        if (!block) {
+            for (int id : ids) {
+                long value = data.get(id);
+                if (value > 0L) {
+                    total += value;
+                }
+            }
+            return total;
+        }
+
+        int[] groups = m.groups;
+        long groupMax = 0L;
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0 && groups[i] != groups[i - 1]) {
+                total += groupMax;
+                groupMax = 0L;
+            }
+            groupMax = Math.max(groupMax, data.get(ids[i]));
+        }
+        return total + groupMax;
+    }
+
+    @Nonnull
+    private Matches current() {
+        Matches m = matches;
+        return m.scanned < StatKeys.size() ? extend() : m;
+    }
+
+    private synchronized Matches extend() {
+        Matches m = matches;
+        int size = StatKeys.size();
+        if (m.scanned >= size) {
+            return m;
+        }
+
+        boolean added = false;
+        for (int id = m.scanned; id < size; id++) {
+            int group = test(id);
+            if (group >= 0) {
+                found.add(new int[]{group, id});
+                added = true;
+            }
+        }
+
+        if (added) {
+            found.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+            int[] ids = new int[found.size()];
+            int[] groups = new int[found.size()];
+            for (int i = 0; i < ids.length; i++) {
+                groups[i] = found.get(i)[0];
+                ids[i] = found.get(i)[1];
+            }
+            m = new Matches(ids, groups, size);
+        } else {
+            m = new Matches(m.ids, m.groups, size);
+        }
+        matches = m;
+        return m;
+    }
+
+    /**
+     * Whether this is a block-category query (per-block max of canonical
+     * and alias keys).
+     */
+    boolean block() {
+        return block;
+    }
+
+    /**
+     * Whether {@code id} goes into a running total of this query
+     * ({@link StatAggregates}): a matching stat, and for block categories
+     * only the canonical namespaced key of each block.
+     */
+    boolean counts(int id) {
+        if (!matches(id)) {
+            return false;
+        }
+        if (!block) {
+            return true;
+        }
+        String raw = StatKeys.stat(id);
+        return PlayerStatManager.normalizeBlockId(raw).equals(raw);
+    }
+
+    /**
+     * Whether {@code id} is a matching block stat that is not a canonical
+     * key (a bare or mixed-case alias), so it only counts through the
+     * per-block max of {@link #sum}.
+     */
+    boolean isAlias(int id) {
+        return block && matches(id) && !counts(id);
+    }
+
+    private boolean matches(int id) {
+        if (category == null) {
+            return statGlob.matches(StatKeys.key(id));
+        }
+        if (!category.equals(StatKeys.category(id))) {
+            return false;
+        }
+
+        String raw = StatKeys.stat(id);
+        if (!block) {
+            return statGlob.matches(raw);
+        }
+        if (raw.isBlank()) {
+            return false;
+        }
+
+        String normalized = PlayerStatManager.normalizeBlockId(raw);
+        return statGlob.matches(normalized)
+                || bareGlob.matches(PlayerStatManager.stripNamespace(normalized))
+                || statGlob.matches(raw)
+                || bareGlob.matches(raw);
+    }
+
+    /**
+     * Group of {@code id} if it matches, else -1. Non-block ids are each
+     * their own group.
+     */
+    private int test(int id) {
+        if (!matches(id)) {
+            return -1;
+        }
+        if (!block) {
+            return id;
+        }
+
+        String normalized = PlayerStatManager.normalizeBlockId(StatKeys.stat(id));
+        Integer group = blockGroups.get(normalized);
+        if (group == null) {
+            group = blockGroups.size();
+            blockGroups.put(normalized, group);
+        }
+        return group;
+    }
+}
@@ -0,0 +1,359 @@
+package com.mystichorizons.mysticnametags.stats;
+
+import com.google.gson.Gson;
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Write-behind layer in front of another PlayerStatStore.
+ *
+ * save() and applyDeltas() / addDelta() only touch memory: a save marks the
+ * player dirty (the latest live PlayerStatsData is written), deltas are
+ * summed per stat id.
+ * A single background writer drains everything at most
+ * {@code maxStalenessMs} after the first change, handing the delegate at
+ * most {@code maxBatch} players per saveAll / applyDeltasAll call.
+ * {@link #flushPlayer} writes one player early (quit), {@link #close}
+ * drains the rest.
+ *
+ * A write that fails is put back in the queue for the next drain: saves
+ * only if no newer save was queued meanwhile, deltas summed into whatever
+ * has been queued since.
+ */
+public final class WriteBehindPlayerStatStore implements PlayerStatStore {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    /**
+     * Summed deltas of one player. Once drained it is marked flushed and
+     * removed; a writer that still holds it retries with a fresh one.
+     */
+    private static final class PendingDeltas {
+        private final StatCounters deltas = new StatCounters();
+        private boolean flushed; // guarded by this
+    }
+
+    private final PlayerStatStore delegate;
+    private final long maxStalenessMs;
+    private final int maxBatch;
+
+    // Dirty players waiting for the next drain (full-save delegates)
+    private final Map<UUID, PlayerStatsData> pendingSaves = new ConcurrentHashMap<>();
+
+    // Unwritten increments (delta delegates)
+    private final Map<UUID, PendingDeltas> pendingDeltas = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final ScheduledThreadPoolExecutor writer;
+
+    public WriteBehindPlayerStatStore(@Nonnull PlayerStatStore delegate, long maxStalenessMs, int maxBatch) {
+        this.delegate = delegate;
+        this.maxStalenessMs = Math.max(1L, maxStalenessMs);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.writer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "MysticNameTags-StatWriter");
+            t.setDaemon(true);
+            return t;
+        });
+        // close() drains on the caller; don't wait out a pending drain delay.
+        this.writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    @Nonnull
+    public PlayerStatStore getDelegate() {
+        return delegate;
+    }
+
+    public int getPendingCount() {
+        return pendingSaves.size() + pendingDeltas.size();
+    }
+
+    @Nonnull
+    @Override
+    public PlayerStatsData load(@Nonnull UUID uuid) {
+        PlayerStatsData queued = pendingSaves.get(uuid);
+        if (queued != null) {
+            // Detached, with any deltas queued after it, like the store will hold it.
+            PlayerStatsData copy = queued.copy();
+            PendingDeltas pending = pendingDeltas.get(uuid);
+            if (pending != null) {
+                synchronized (pending) {
+                    pending.deltas.forEach(copy::increment);
+                }
+            }
+            return copy;
+        }
+        if (pendingDeltas.containsKey(uuid)) {
+            // The stored rows don't include them yet: write them on the
+            // writer, ordered with any drain in progress.
+            try {
+                writer.submit(() -> flushPlayerNow(uuid)).get();
+            } catch (RejectedExecutionException e) {
+                flushPlayerNow(uuid);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                LOGGER.at(Level.WARNING).withCause(e)
+                        .log("[MysticNameTags] Failed to write queued stat deltas for " + uuid);
+            }
+        }
+        return delegate.load(uuid);
+    }
+
+    @Override
+    public void save(@Nonnull UUID uuid, @Nonnull PlayerStatsData data) {
+        pendingSaves.put(uuid, data);
+        scheduleFlush();
+    }
+
+    @Override
+    public void saveAll(@Nonnull Map<UUID, PlayerStatsData> batch) {
+        pendingSaves.putAll(batch);
+        scheduleFlush();
+    }
+
+    @Override
+    public boolean supportsDeltas() {
+        return delegate.supportsDeltas();
+    }
+
+    @Override
+    public void applyDeltas(@Nonnull UUID uuid, @Nonnull Map<String, Long> deltas) {
+        for (Map.Entry<String, Long> e : deltas.entrySet()) {
+            String key = e.getKey();
+            int dot = key.indexOf('.');
+            if (e.getValue() != null && dot > 0) {
+                addDelta(uuid, StatKeys.id(key.substring(0, dot), key.substring(dot + 1)), e.getValue());
+            }
+        }
+    }
+
+    /**
+     * {@link #applyDeltas} for one stat by {@link StatKeys} id, without
+     * building a key or map.
+     */
+    public void addDelta(@Nonnull UUID uuid, int statId, long delta) {
+        if (delta == 0L) {
+            return;
+        }
+        queueDelta(uuid, statId, delta);
+        scheduleFlush();
+    }
+
+    private void queueDelta(@Nonnull UUID uuid, int statId, long delta) {
+        while (true) {
+            PendingDeltas pending = pendingDeltas.get(uuid);
+            if (pending == null) {
+                pending = pendingDeltas.computeIfAbsent(uuid, u -> new PendingDeltas());
+            }
+            synchronized (pending) {
+                if (pending.flushed) {
+                    continue;
+                }
+                pending.deltas.addAndGet(statId, delta);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Put a failed write back for the next drain. Not flushed from here
+     * once the writer is shut down, so a dead backend can't make close()
+     * loop; whatever is still queued then is reported by close().
+     */
+    private void requeue(@Nonnull UUID uuid, PlayerStatsData data, Map<String, Long> deltas) {
+        if (data != null) {
+            pendingSaves.putIfAbsent(uuid, data);
+        }
+        if (deltas != null) {
+            for (Map.Entry<String, Long> e : deltas.entrySet()) {
+                String key = e.getKey();
+                int dot = key.indexOf('.');
+                if (e.getValue() != null && e.getValue() != 0L && dot > 0) {
+                    queueDelta(uuid, StatKeys.id(key.substring(0, dot), key.substring(dot + 1)), e.getValue());
+                }
+            }
+        }
+        if (!writer.isShutdown()) {
+            scheduleFlush();
+        }
+    }
+
+    @Override
+    public void delete(@Nonnull UUID uuid) {
+        pendingSaves.remove(uuid);
+        drainDeltas(uuid);
+
+        // Run on the writer so the delete is ordered after any in-flight write.
+        try {
+            writer.submit(() -> delegate.delete(uuid)).get();
+        } catch (RejectedExecutionException e) {
+            delegate.delete(uuid);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Failed to delete queued stats for " + uuid);
+        }
+    }
+
+    @Override
+    public void migrateFromFolder(@Nonnull File folder, @Nonnull Gson gson) {
+        delegate.migrateFromFolder(folder, gson);
+    }
+
+    /**
+     * Write {@code uuid}'s pending changes on the writer without waiting
+     * for the next drain (player quit).
+     */
+    public void flushPlayer(@Nonnull UUID uuid) {
+        if (!pendingSaves.containsKey(uuid) && !pendingDeltas.containsKey(uuid)) {
+            return;
+        }
+        try {
+            writer.execute(() -> flushPlayerNow(uuid));
+        } catch (RejectedExecutionException e) {
+            flushPlayerNow(uuid);
+        }
+    }
+
+    private synchronized void flushPlayerNow(@Nonnull UUID uuid) {
+        PlayerStatsData data = pendingSaves.remove(uuid);
+        Map<String, Long> deltas = drainDeltas(uuid);
+        try {
+            if (data != null) {
+                delegate.save(uuid, data);
+            }
+        } catch (Throwable t) {
+            LOGGER.at(Level.WARNING).withCause(t)
+                    .log("[MysticNameTags] Failed to write stats for " + uuid + "; re-queued.");
+            requeue(uuid, data, null);
+        }
+        try {
+            if (deltas != null) {
+                delegate.applyDeltas(uuid, deltas);
+            }
+        } catch (Throwable t) {
+            LOGGER.at(Level.WARNING).withCause(t)
+                    .log("[MysticNameTags] Failed to write stat deltas for " + uuid + "; re-queued.");
+            requeue(uuid, null, deltas);
+        }
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            writer.schedule(this::flush, maxStalenessMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: write through on the caller.
+            flushScheduled.set(false);
+            flush();
+        }
+    }
+
+    /**
+     * Write every dirty player now, {@code maxBatch} at a time. Runs on the
+     * writer thread normally, and on the caller during shutdown.
+     */
+    public synchronized void flush() {
+        flushScheduled.set(false);
+
+        List<UUID> dirty = new ArrayList<>(pendingSaves.keySet());
+        for (int from = 0; from < dirty.size(); from += maxBatch) {
+            Map<UUID, PlayerStatsData> batch = new HashMap<>();
+            for (UUID uuid : dirty.subList(from, Math.min(dirty.size(), from + maxBatch))) {
+                PlayerStatsData data = pendingSaves.remove(uuid);
+                if (data != null) {
+                    batch.put(uuid, data);
+                }
+            }
+            try {
+                delegate.saveAll(batch);
+            } catch (Throwable t) {
+                LOGGER.at(Level.WARNING).withCause(t)
+                        .log("[MysticNameTags] Write-behind stats save failed for " + batch.size() + " players; re-queued.");
+                for (Map.Entry<UUID, PlayerStatsData> e : batch.entrySet()) {
+                    requeue(e.getKey(), e.getValue(), null);
+                }
+            }
+        }
+
+        List<UUID> withDeltas = new ArrayList<>(pendingDeltas.keySet());
+        for (int from = 0; from < withDeltas.size(); from += maxBatch) {
+            Map<UUID, Map<String, Long>> batch = new HashMap<>();
+            for (UUID uuid : withDeltas.subList(from, Math.min(withDeltas.size(), from + maxBatch))) {
+                Map<String, Long> deltas = drainDeltas(uuid);
+                if (deltas != null) {
+                    batch.put(uuid, deltas);
+                }
+            }
+            try {
+                delegate.applyDeltasAll(batch);
+            } catch (Throwable t) {
+                LOGGER.at(Level.WARNING).withCause(t)
+                        .log("[MysticNameTags] Write-behind stat deltas failed for " + batch.size() + " players; re-queued.");
+                for (Map.Entry<UUID, Map<String, Long>> e : batch.entrySet()) {
+                    requeue(e.getKey(), null, e.getValue());
+                }
+            }
+        }
+    }
+
+    private Map<String, Long> drainDeltas(@Nonnull UUID uuid) {
+        PendingDeltas pending = pendingDeltas.remove(uuid);
+        if (pending == null) {
+            return null;
+        }
+        Map<String, Long> deltas = new HashMap<>();
+        synchronized (pending) {
+            pending.flushed = true;
+            pending.deltas.forEach((id, value) -> {
+                if (value != 0L) {
+                    deltas.put(StatKeys.key(id), value);
+                }
+            });
+        }
+        return deltas.isEmpty() ? null : deltas;
+    }
+
+    /**
+     * Stop the writer and drain everything still queued.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+        int left = getPendingCount();
+        if (left > 0) {
+            LOGGER.at(Level.SEVERE).log("[MysticNameTags] " + left
+                    + " players' stat changes could not be written on shutdown.");
+        } else {
+            LOGGER.at(Level.INFO).log("[MysticNameTags] Stat write-behind queue drained.");
+        }
+        delegate.close();
+    }
+}
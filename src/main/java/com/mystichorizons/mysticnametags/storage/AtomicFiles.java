@@ -0,0 +1,83 @@
+package com.mystichorizons.mysticnametags.storage;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Crash-safe file replacement.
+ *
+ * Content is written to a temp file next to the target, synced to disk,
+ * then renamed over the target. Readers see either the old file or the
+ * new one, never a half-written file. Every write gets its own uniquely
+ * named temp file, so concurrent writers of one target (a write-behind
+ * drain and a shutdown save) can't clobber each other before the rename.
+ */
+public final class AtomicFiles {
+
+    private AtomicFiles() {
+    }
+
+    @FunctionalInterface
+    public interface WriterAction {
+        void write(@Nonnull Writer writer) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface StreamAction {
+        void write(@Nonnull OutputStream out) throws IOException;
+    }
+
+    /**
+     * Replace {@code target} with whatever {@code action} writes (UTF-8).
+     */
+    public static void write(@Nonnull File target, @Nonnull WriterAction action) throws IOException {
+        writeBytes(target, out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            action.write(writer);
+            writer.flush();
+        });
+    }
+
+    /**
+     * Replace {@code target} with the raw bytes {@code action} writes.
+     */
+    public static void writeBytes(@Nonnull File target, @Nonnull StreamAction action) throws IOException {
+        File dir = target.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs() && !dir.exists()) {
+            throw new IOException("Could not create directory " + dir);
+        }
+
+        Path tmp = Files.createTempFile(dir != null ? dir.toPath() : Path.of("."), target.getName() + ".", ".tmp");
+
+        try {
+            try (FileOutputStream out = new FileOutputStream(tmp.toFile())) {
+                BufferedOutputStream buffered = new BufferedOutputStream(out);
+                action.write(buffered);
+                buffered.flush();
+                out.getFD().sync();
+            }
+
+            try {
+                Files.move(tmp, target.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package com.mystichorizons.mysticnametags.storage;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Background copy of a per-player folder (FILE backend) into a SQL store.
+ *
+ * Players are processed in UUID order, one batch at a time: the next batch
+ * is parsed in parallel on a small reader pool while the current one is
+ * written with a single saveAll() (one transaction). The server keeps
+ * booting while this runs.
+ *
+ * Progress is appended to {@code <folder>.migration} next to the folder:
+ *
+ *   B <uuid>   every player up to and including this UUID is migrated
+ *   C <uuid>   this player was migrated early ("claimed", see below)
+ *   D          finished; only the folder rename is left
+ *
+ * An interrupted run resumes after the last B line. A torn last line is
+ * ignored.
+ *
+ * Claim-on-load: a player who joins mid-migration is copied on the spot,
+ * before the store reads them, and the background run skips them from then
+ * on, so it never overwrites newer data with the old file.
+ *
+ * When every player is copied the folder is renamed to
+ * {@code <folder>_legacy} and the checkpoint file is deleted.
+ */
+public final class FolderMigration<T> {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private static final long PROGRESS_LOG_INTERVAL_MS = 5000L;
+    private static final long STOP_WAIT_MS = 10_000L;
+
+    private static final List<FolderMigration<?>> MIGRATIONS = new CopyOnWriteArrayList<>();
+
+    @FunctionalInterface
+    public interface Reader<T> {
+        /**
+         * @return the player's data, or null to skip them
+         */
+        @Nullable
+        T read(@Nonnull UUID uuid) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface BatchWriter<T> {
+        void write(@Nonnull Map<UUID, T> batch) throws Exception;
+    }
+
+    public enum State { RUNNING, DONE, FAILED, STOPPED }
+
+    public record Progress(String name, State state, int total, int migrated,
+                           int claimed, int skipped, long elapsedMs) {
+    }
+
+    private final String name;
+    private final File folder;
+    private final File checkpointFile;
+    private final Reader<T> reader;
+    private final BatchWriter<T> writer;
+    private final int batchSize;
+
+    // Players still to copy, in UUID order
+    private final List<UUID> queue;
+    private final Set<UUID> remaining = ConcurrentHashMap.newKeySet();
+    private final int total;
+
+    // Guards writes against claims, and the checkpoint file
+    private final Object lock = new Object();
+
+    private final AtomicInteger migrated = new AtomicInteger();
+    private final AtomicInteger claimed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    private volatile State state = State.RUNNING;
+    private volatile boolean stopRequested = false;
+    private volatile Thread thread;
+    private final long startedAt = System.currentTimeMillis();
+    private volatile long finishedAt;
+
+    // From the checkpoint file: highest "B" UUID, and whether "D" was reached
+    private UUID checkpointUpTo;
+    private boolean checkpointFinished;
+
+    private FolderMigration(@Nonnull String name,
+                            @Nonnull File folder,
+                            @Nonnull Set<UUID> players,
+                            @Nonnull Reader<T> reader,
+                            @Nonnull BatchWriter<T> writer,
+                            int batchSize) {
+        this.name = name;
+        this.folder = folder;
+        this.checkpointFile = checkpointFile(folder);
+        this.reader = reader;
+        this.writer = writer;
+        this.batchSize = Math.max(1, batchSize);
+
+        Set<UUID> done = new HashSet<>();
+        readCheckpoint(done);
+        UUID resumeAfter = checkpointUpTo;
+
+        List<UUID> sorted = new ArrayList<>(players);
+        sorted.sort(null);
+        this.total = sorted.size();
+
+        List<UUID> todo = new ArrayList<>();
+        for (UUID uuid : sorted) {
+            if ((resumeAfter != null && uuid.compareTo(resumeAfter) <= 0) || done.contains(uuid)) {
+                continue;
+            }
+            todo.add(uuid);
+        }
+        this.queue = todo;
+        this.remaining.addAll(todo);
+        this.migrated.set(total - todo.size());
+    }
+
+    /**
+     * Start migrating {@code folder} in the background, resuming from its
+     * checkpoint if there is one.
+     *
+     * @param players every player with data in the folder
+     * @return the running migration, or null if there is nothing to do
+     */
+    @Nullable
+    public static <T> FolderMigration<T> start(@Nonnull String name,
+                                               @Nonnull File folder,
+                                               @Nonnull Set<UUID> players,
+                                               @Nonnull Reader<T> reader,
+                                               @Nonnull BatchWriter<T> writer,
+                                               int batchSize) {
+        if (players.isEmpty()) {
+            //noinspection ResultOfMethodCallIgnored
+            checkpointFile(folder).delete();
+            return null;
+        }
+
+        FolderMigration<T> migration = new FolderMigration<>(name, folder, players, reader, writer, batchSize);
+        if (migration.checkpointFinished) {
+            // Copied last time, only the rename failed.
+            migration.finish();
+            return null;
+        }
+
+        MIGRATIONS.add(migration);
+        Thread t = new Thread(migration::run, "MysticNameTags-Migration-" + name);
+        t.setDaemon(true);
+        migration.thread = t;
+        t.start();
+        return migration;
+    }
+
+    /**
+     * Progress of every migration started since boot.
+     */
+    @Nonnull
+    public static List<Progress> getProgress() {
+        List<Progress> out = new ArrayList<>();
+        for (FolderMigration<?> m : MIGRATIONS) {
+            out.add(m.progress());
+        }
+        return out;
+    }
+
+    /**
+     * Ask running migrations to stop after their current batch and wait for
+     * them. The checkpoint lets the next start carry on. Call before the SQL
+     * pools are closed.
+     */
+    public static void stopAll() {
+        for (FolderMigration<?> m : MIGRATIONS) {
+            m.stopRequested = true;
+        }
+        for (FolderMigration<?> m : MIGRATIONS) {
+            Thread t = m.thread;
+            if (t == null) continue;
+            try {
+                t.join(STOP_WAIT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Nonnull
+    private static File checkpointFile(@Nonnull File folder) {
+        return new File(folder.getAbsoluteFile().getParentFile(), folder.getName() + ".migration");
+    }
+
+    @Nonnull
+    public Progress progress() {
+        long end = (state == State.RUNNING) ? System.currentTimeMillis() : finishedAt;
+        return new Progress(name, state, total, migrated.get(), claimed.get(), skipped.get(),
+                Math.max(0L, end - startedAt));
+    }
+
+    public boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    /**
+     * Copy one player right now if the background run hasn't reached them.
+     * Call from the target store's load() before reading.
+     */
+    public void claim(@Nonnull UUID uuid) {
+        if (!remaining.contains(uuid)) {
+            return;
+        }
+
+        synchronized (lock) {
+            if (!remaining.contains(uuid)) {
+                return;
+            }
+
+            T data = readQuietly(uuid);
+            if (data != null) {
+                Map<UUID, T> single = new HashMap<>();
+                single.put(uuid, data);
+                try {
+                    writer.write(single);
+                } catch (Exception e) {
+                    // Leave it to the background run.
+                    LOGGER.at(Level.WARNING).withCause(e)
+                            .log("[MysticNameTags] Failed to migrate " + name + " for " + uuid + " on load.");
+                    return;
+                }
+            }
+
+            remaining.remove(uuid);
+            appendCheckpoint("C " + uuid);
+            claimed.incrementAndGet();
+            migrated.incrementAndGet();
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Background run
+    // ------------------------------------------------------------------
+
+    private void run() {
+        LOGGER.at(Level.INFO)
+                .log("[MysticNameTags] Migrating " + queue.size() + " of " + total + " " + name
+                        + " players into SQL in the background"
+                        + (migrated.get() > 0 ? " (resuming, " + migrated.get() + " already done)." : "."));
+
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        ExecutorService readers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "MysticNameTags-MigrationReader");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            long lastLog = System.currentTimeMillis();
+
+            // Parse one batch ahead of the one being written.
+            int from = 0;
+            List<CompletableFuture<Parsed<T>>> current = submit(readers, from);
+
+            while (!current.isEmpty()) {
+                int to = from + current.size();
+                List<CompletableFuture<Parsed<T>>> ahead =
+                        stopRequested ? List.of() : submit(readers, to);
+
+                writeBatch(current, queue.get(to - 1));
+                current = ahead;
+                from = to;
+
+                long now = System.currentTimeMillis();
+                if (now - lastLog >= PROGRESS_LOG_INTERVAL_MS) {
+                    lastLog = now;
+                    logProgress();
+                }
+
+                if (stopRequested) {
+                    break;
+                }
+            }
+
+            if (stopRequested && !remaining.isEmpty()) {
+                state = State.STOPPED;
+                LOGGER.at(Level.INFO)
+                        .log("[MysticNameTags] " + name + " migration paused at " + migrated.get() + "/" + total
+                                + "; it resumes on next start.");
+                return;
+            }
+
+            appendCheckpoint("D");
+            finish();
+            state = State.DONE;
+            LOGGER.at(Level.INFO)
+                    .log("[MysticNameTags] " + name + " migration complete: " + migrated.get() + " players ("
+                            + claimed.get() + " on load, " + skipped.get() + " unreadable) in "
+                            + (System.currentTimeMillis() - startedAt) + "ms.");
+        } catch (Throwable t) {
+            state = State.FAILED;
+            LOGGER.at(Level.SEVERE).withCause(t)
+                    .log("[MysticNameTags] " + name + " migration failed at " + migrated.get() + "/" + total
+                            + "; it resumes from the checkpoint on next start.");
+        } finally {
+            finishedAt = System.currentTimeMillis();
+            readers.shutdownNow();
+        }
+    }
+
+    @Nonnull
+    private List<CompletableFuture<Parsed<T>>> submit(@Nonnull ExecutorService readers, int from) {
+        int to = Math.min(queue.size(), from + batchSize);
+        List<CompletableFuture<Parsed<T>>> futures = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            UUID uuid = queue.get(i);
+            futures.add(CompletableFuture.supplyAsync(() ->
+                    new Parsed<>(uuid, remaining.contains(uuid) ? readQuietly(uuid) : null), readers));
+        }
+        return futures;
+    }
+
+    /**
+     * Write one parsed batch in a single saveAll() and checkpoint it.
+     *
+     * @param last last UUID of the batch in queue order
+     */
+    private void writeBatch(@Nonnull List<CompletableFuture<Parsed<T>>> futures,
+                            @Nonnull UUID last) throws Exception {
+        List<Parsed<T>> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<Parsed<T>> f : futures) {
+            results.add(f.join());
+        }
+
+        synchronized (lock) {
+            // Players claimed while this batch was parsing already have newer data.
+            Map<UUID, T> batch = new HashMap<>();
+            int handled = 0;
+            for (Parsed<T> p : results) {
+                if (!remaining.contains(p.uuid())) {
+                    continue;
+                }
+                handled++;
+                if (p.data() != null) {
+                    batch.put(p.uuid(), p.data());
+                } else {
+                    skipped.incrementAndGet();
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                writer.write(batch);
+            }
+
+            for (Parsed<T> p : results) {
+                remaining.remove(p.uuid());
+            }
+            migrated.addAndGet(handled);
+            appendCheckpoint("B " + last);
+        }
+    }
+
+    private void logProgress() {
+        int done = migrated.get();
+        LOGGER.at(Level.INFO)
+                .log("[MysticNameTags] Migrating " + name + ": " + done + "/" + total
+                        + " (" + (total == 0 ? 100 : done * 100L / total) + "%)");
+    }
+
+    @Nullable
+    private T readQuietly(@Nonnull UUID uuid) {
+        try {
+            return reader.read(uuid);
+        } catch (Exception e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Skipping unreadable " + name + " data for " + uuid);
+            return null;
+        }
+    }
+
+    private void finish() {
+        File legacy = new File(folder.getAbsoluteFile().getParentFile(), folder.getName() + "_legacy");
+        if (folder.exists() && !folder.renameTo(legacy)) {
+            LOGGER.at(Level.WARNING)
+                    .log("[MysticNameTags] Could not rename " + folder.getName() + " after migration;"
+                            + " it will be skipped on next start.");
+            return;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        checkpointFile.delete();
+    }
+
+    // ------------------------------------------------------------------
+    // Checkpoint file
+    // ------------------------------------------------------------------
+
+    private void readCheckpoint(@Nonnull Set<UUID> claimedOut) {
+        if (!checkpointFile.exists()) {
+            return;
+        }
+
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(checkpointFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                try {
+                    if (line.equals("D")) {
+                        checkpointFinished = true;
+                    } else if (line.startsWith("B ")) {
+                        UUID uuid = UUID.fromString(line.substring(2));
+                        if (checkpointUpTo == null || uuid.compareTo(checkpointUpTo) > 0) {
+                            checkpointUpTo = uuid;
+                        }
+                    } else if (line.startsWith("C ")) {
+                        claimedOut.add(UUID.fromString(line.substring(2)));
+                    }
+                } catch (IllegalArgumentException ignored) {
+                    // torn line from a crash mid-append
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Could not read " + checkpointFile.getName() + "; starting over.");
+        }
+    }
+
+    private void appendCheckpoint(@Nonnull String line) {
+        try (FileOutputStream fos = new FileOutputStream(checkpointFile, true);
+             Writer out = new OutputStreamWriter(fos, StandardCharsets.UTF_8)) {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Could not update " + checkpointFile.getName());
+        }
+    }
+
+    private record Parsed<T>(@Nonnull UUID uuid, @Nullable T data) {
+    }
+}
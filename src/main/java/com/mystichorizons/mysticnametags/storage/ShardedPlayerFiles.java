@@ -0,0 +1,303 @@
+package com.mystichorizons.mysticnametags.storage;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Sharded per-player file layout plus a compact index of known players.
+ *
+ * Files live at {@code <root>/ab/cd/<uuid><suffix>}, where "ab" and "cd" are
+ * the first two hex pairs of the UUID, so no directory grows past a few
+ * hundred entries. Flat {@code <root>/<uuid><suffix>} files from older
+ * versions are moved into place on startup.
+ *
+ * {@code <root>/index.bin} lists every known UUID with its last-modified
+ * time (24 bytes per player), so bulk operations don't have to walk and
+ * stat the whole tree. While the in-memory index has unsaved changes an
+ * {@code index.dirty} marker exists; if the server dies before the index is
+ * written, the marker triggers a rebuild from disk on the next start.
+ */
+public final class ShardedPlayerFiles {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private static final String INDEX_FILE = "index.bin";
+    private static final String INDEX_DIRTY_MARKER = "index.dirty";
+    private static final int INDEX_MAGIC = 0x4D4E5449; // "MNTI"
+    private static final int INDEX_VERSION = 1;
+
+    private final File root;
+    private final String[] suffixes;
+
+    // uuid -> last modified (epoch millis)
+    private final Map<UUID, Long> index = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    /**
+     * @param suffixes file suffixes that belong to a player, e.g. ".json", ".log"
+     */
+    public ShardedPlayerFiles(@Nonnull File root, @Nonnull String... suffixes) {
+        this.root = root;
+        this.suffixes = suffixes.clone();
+
+        //noinspection ResultOfMethodCallIgnored
+        root.mkdirs();
+
+        int moved = migrateFlatLayout();
+        if (moved > 0 || !loadIndex()) {
+            rebuildIndex();
+        }
+    }
+
+    // --------------------------------------------------
+    // Paths
+    // --------------------------------------------------
+
+    @Nonnull
+    public File getRoot() {
+        return root;
+    }
+
+    @Nonnull
+    public File file(@Nonnull UUID uuid, @Nonnull String suffix) {
+        String id = uuid.toString();
+        return new File(new File(new File(root, id.substring(0, 2)), id.substring(2, 4)), id + suffix);
+    }
+
+    // --------------------------------------------------
+    // Index
+    // --------------------------------------------------
+
+    /**
+     * Record that this player's files were just written.
+     */
+    public void touch(@Nonnull UUID uuid) {
+        index.put(uuid, System.currentTimeMillis());
+        markDirty();
+    }
+
+    /**
+     * Drop a player whose files were deleted.
+     */
+    public void forget(@Nonnull UUID uuid) {
+        if (index.remove(uuid) != null) {
+            markDirty();
+        }
+    }
+
+    /**
+     * Snapshot of known players -> last modified time.
+     */
+    @Nonnull
+    public Map<UUID, Long> knownPlayers() {
+        return Map.copyOf(index);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    private void markDirty() {
+        if (dirty.get()) {
+            return;
+        }
+        synchronized (this) {
+            if (dirty.get()) {
+                return;
+            }
+            try {
+                //noinspection ResultOfMethodCallIgnored
+                new File(root, INDEX_DIRTY_MARKER).createNewFile();
+            } catch (IOException e) {
+                LOGGER.at(Level.FINE).withCause(e)
+                        .log("[MysticNameTags] Could not create index marker in " + root.getName());
+            }
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Persist the index if it changed. Call on shutdown.
+     */
+    public synchronized void saveIndex() {
+        if (!dirty.get()) {
+            return;
+        }
+        dirty.set(false);
+
+        Map<UUID, Long> snapshot = Map.copyOf(index);
+        try {
+            AtomicFiles.writeBytes(new File(root, INDEX_FILE), raw -> {
+                DataOutputStream out = new DataOutputStream(raw);
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(INDEX_VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<UUID, Long> e : snapshot.entrySet()) {
+                    out.writeLong(e.getKey().getMostSignificantBits());
+                    out.writeLong(e.getKey().getLeastSignificantBits());
+                    out.writeLong(e.getValue());
+                }
+                out.flush();
+            });
+
+            //noinspection ResultOfMethodCallIgnored
+            new File(root, INDEX_DIRTY_MARKER).delete();
+        } catch (IOException e) {
+            dirty.set(true);
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Failed to write player index for " + root.getName());
+        }
+    }
+
+    /**
+     * @return false if the index is missing, stale or unreadable
+     */
+    private boolean loadIndex() {
+        File file = new File(root, INDEX_FILE);
+        if (!file.exists() || new File(root, INDEX_DIRTY_MARKER).exists()) {
+            return false;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                return false;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                index.put(uuid, in.readLong());
+            }
+            return true;
+        } catch (IOException e) {
+            index.clear();
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Player index for " + root.getName() + " is unreadable; rebuilding.");
+            return false;
+        }
+    }
+
+    /**
+     * Number of players in {@code <root>/index.bin} without loading it,
+     * or -1 if there is no usable index.
+     */
+    public static int readIndexedCount(@Nonnull File root) {
+        File file = new File(root, INDEX_FILE);
+        if (!file.exists()) {
+            return -1;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                return -1;
+            }
+            return in.readInt();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private void rebuildIndex() {
+        index.clear();
+
+        File[] level1 = root.listFiles(File::isDirectory);
+        if (level1 != null) {
+            for (File d1 : level1) {
+                File[] level2 = d1.listFiles(File::isDirectory);
+                if (level2 == null) continue;
+
+                for (File d2 : level2) {
+                    File[] files = d2.listFiles(File::isFile);
+                    if (files == null) continue;
+
+                    for (File f : files) {
+                        UUID uuid = parsePlayerFile(f.getName());
+                        if (uuid != null) {
+                            index.merge(uuid, f.lastModified(), Math::max);
+                        }
+                    }
+                }
+            }
+        }
+
+        dirty.set(true);
+        saveIndex();
+        LOGGER.at(Level.INFO)
+                .log("[MysticNameTags] Rebuilt player index for " + root.getName() + " (" + index.size() + " players).");
+    }
+
+    // --------------------------------------------------
+    // Flat -> sharded migration
+    // --------------------------------------------------
+
+    private int migrateFlatLayout() {
+        File[] flat = root.listFiles(File::isFile);
+        if (flat == null) {
+            return 0;
+        }
+
+        int moved = 0;
+        for (File f : flat) {
+            UUID uuid = parsePlayerFile(f.getName());
+            if (uuid == null) {
+                continue;
+            }
+
+            String suffix = f.getName().substring(36);
+            File target = file(uuid, suffix);
+            try {
+                Files.createDirectories(target.getParentFile().toPath());
+                Files.move(f.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                moved++;
+            } catch (IOException e) {
+                LOGGER.at(Level.WARNING).withCause(e)
+                        .log("[MysticNameTags] Failed to move " + f.getName() + " into sharded layout.");
+            }
+        }
+
+        if (moved > 0) {
+            LOGGER.at(Level.INFO)
+                    .log("[MysticNameTags] Moved " + moved + " files in " + root.getName() + " into sharded layout.");
+        }
+        return moved;
+    }
+
+    @Nullable
+    private UUID parsePlayerFile(@Nonnull String name) {
+        if (name.length() <= 36) {
+            return null;
+        }
+
+        String suffix = name.substring(36).toLowerCase(Locale.ROOT);
+        boolean known = false;
+        for (String s : suffixes) {
+            if (s.equals(suffix)) {
+                known = true;
+                break;
+            }
+        }
+        if (!known) {
+            return null;
+        }
+
+        try {
+            return UUID.fromString(name.substring(0, 36));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
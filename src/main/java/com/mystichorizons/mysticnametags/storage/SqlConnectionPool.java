@@ -0,0 +1,499 @@
+package com.mystichorizons.mysticnametags.storage;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.mystichorizons.mysticnametags.config.Settings;
+import com.mystichorizons.mysticnametags.tags.StorageBackend;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Small built-in JDBC connection pool shared by the SQL tag and stat stores.
+ *
+ * - Fixed upper bound (sqlPoolSize), connections opened lazily.
+ * - Validation on borrow for connections that sat idle for a while.
+ * - Idle eviction on a background timer (sqlPoolIdleTimeoutSeconds).
+ * - Handed-out connections are proxies; close() returns them to the pool,
+ *   so callers keep using plain try-with-resources.
+ *
+ * One pool exists per JDBC URL, so the tag and stat stores pointing at the
+ * same database share connections.
+ *
+ * With sqliteTunedMode the SQLite file runs in WAL mode: all writes go
+ * through {@link #write(SqlTask)} to one {@link SqliteWriter}, and pooled
+ * connections are opened read-only with a prepared statement cache.
+ */
+public final class SqlConnectionPool {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    // Connections returned within this window are trusted without a ping.
+    private static final long VALIDATION_SKIP_MS = 500L;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long EVICTION_INTERVAL_SECONDS = 30L;
+
+    // SQLITE_OPEN_READONLY for reader connections in tuned mode
+    private static final String SQLITE_OPEN_READONLY = "1";
+    private static final int READER_STATEMENT_CACHE_SIZE = 32;
+
+    private static final Map<String, SqlConnectionPool> SHARED = new ConcurrentHashMap<>();
+
+    private final String jdbcUrl;
+    private final String user;
+    private final String password;
+    private final boolean sqlite;
+
+    // Only set for SQLite in tuned mode
+    @Nullable
+    private final SqliteWriter writer;
+
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final long borrowTimeoutMs;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed = false;
+
+    // Metrics
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private SqlConnectionPool(@Nonnull String jdbcUrl,
+                              @Nonnull String user,
+                              @Nonnull String password,
+                              int maxSize,
+                              long idleTimeoutMs,
+                              long borrowTimeoutMs,
+                              boolean sqliteTuned) {
+        this.jdbcUrl = jdbcUrl;
+        this.user = user;
+        this.password = password;
+        this.sqlite = jdbcUrl.startsWith("jdbc:sqlite:");
+        this.maxSize = Math.max(1, maxSize);
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.permits = new Semaphore(this.maxSize, true);
+        this.writer = (sqlite && sqliteTuned) ? openWriter(jdbcUrl) : null;
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "MysticNameTags-SqlPool");
+            t.setDaemon(true);
+            return t;
+        });
+        this.evictor.scheduleWithFixedDelay(this::evictIdle,
+                EVICTION_INTERVAL_SECONDS, EVICTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // --------------------------------------------------
+    // Shared pools
+    // --------------------------------------------------
+
+    /**
+     * Pool for the configured SQL backend. Both stores resolve the same
+     * instance, so they share connections.
+     */
+    @Nonnull
+    public static SqlConnectionPool shared(@Nonnull StorageBackend backend,
+                                           @Nonnull File dataFolder) {
+        Settings settings = Settings.get();
+
+        String jdbcUrl;
+        String user;
+        String pass;
+
+        if (backend == StorageBackend.SQLITE) {
+            File sqliteFile = new File(dataFolder, settings.getSqliteFile());
+            jdbcUrl = "jdbc:sqlite:" + sqliteFile.getAbsolutePath();
+            user = "";
+            pass = "";
+        } else if (backend == StorageBackend.MYSQL) {
+            jdbcUrl = "jdbc:mysql://" + settings.getMysqlHost() + ":" + settings.getMysqlPort() + "/" +
+                    settings.getMysqlDatabase() +
+                    "?useSSL=false&autoReconnect=true&characterEncoding=UTF-8" +
+                    "&rewriteBatchedStatements=true";
+            user = settings.getMysqlUser();
+            pass = settings.getMysqlPassword();
+        } else {
+            throw new IllegalArgumentException("No SQL pool for backend " + backend);
+        }
+
+        return SHARED.computeIfAbsent(jdbcUrl, url -> {
+            SqlConnectionPool pool = new SqlConnectionPool(
+                    url,
+                    user,
+                    pass,
+                    settings.getSqlPoolSize(),
+                    settings.getSqlPoolIdleTimeoutSeconds() * 1000L,
+                    settings.getSqlPoolBorrowTimeoutMs(),
+                    settings.isSqliteTunedMode()
+            );
+            LOGGER.at(Level.INFO).log("[MysticNameTags] Created " + backend + " connection pool (max="
+                    + pool.maxSize + (pool.writer != null ? ", WAL single-writer" : "") + ").");
+            return pool;
+        });
+    }
+
+    @Nonnull
+    public static Collection<SqlConnectionPool> getSharedPools() {
+        return List.copyOf(SHARED.values());
+    }
+
+    /**
+     * Close every shared pool. Call after the stores have flushed.
+     */
+    public static void closeAll() {
+        for (SqlConnectionPool pool : SHARED.values()) {
+            pool.close();
+        }
+        SHARED.clear();
+    }
+
+    /**
+     * Unshared plain pool on one SQLite file, with the default sizing. Not
+     * covered by {@link #closeAll()}; the caller closes it.
+     */
+    @Nonnull
+    public static SqlConnectionPool sqlite(@Nonnull File file) {
+        return new SqlConnectionPool("jdbc:sqlite:" + file.getAbsolutePath(), "", "",
+                4, 300_000L, 5_000L, false);
+    }
+
+    // --------------------------------------------------
+    // Borrow / return
+    // --------------------------------------------------
+
+    public boolean isSqlite() {
+        return sqlite;
+    }
+
+    /**
+     * True when this is a SQLite pool running in WAL / single-writer mode.
+     */
+    public boolean isSqliteTuned() {
+        return writer != null;
+    }
+
+    /**
+     * Writes waiting for the SQLite writer thread (0 when not tuned).
+     */
+    public int getQueuedWrites() {
+        return writer != null ? writer.getQueued() : 0;
+    }
+
+    /**
+     * Run a write. In SQLite tuned mode it runs on the single writer
+     * connection / thread; otherwise on a connection borrowed from the pool.
+     * Either way the call blocks until the task has finished.
+     */
+    public void write(@Nonnull SqlTask task) throws SQLException {
+        if (writer != null) {
+            writer.execute(task);
+            return;
+        }
+        try (Connection conn = getConnection()) {
+            task.run(conn);
+        }
+    }
+
+    @Nullable
+    private static SqliteWriter openWriter(@Nonnull String jdbcUrl) {
+        try {
+            return new SqliteWriter(jdbcUrl);
+        } catch (SQLException e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Could not open SQLite writer in WAL mode; using plain pooled connections.");
+            return null;
+        }
+    }
+
+    @Nonnull
+    public String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+    /**
+     * Borrow a connection. close() on the returned object hands it back.
+     */
+    @Nonnull
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Timed out after " + borrowTimeoutMs + "ms waiting for a pooled connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+
+        try {
+            PooledEntry entry = takeValidIdle();
+            if (entry == null) {
+                entry = new PooledEntry(openRaw());
+                created.incrementAndGet();
+            }
+
+            recordWait(System.nanoTime() - start);
+            active.incrementAndGet();
+            return wrap(entry);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Nullable
+    private PooledEntry takeValidIdle() {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (isUsable(entry)) {
+                return entry;
+            }
+            closeQuietly(entry.raw);
+            evicted.incrementAndGet();
+        }
+        return null;
+    }
+
+    private boolean isUsable(@Nonnull PooledEntry entry) {
+        try {
+            if (entry.raw.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - entry.lastUsedMs < VALIDATION_SKIP_MS) {
+                return true;
+            }
+            return entry.raw.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Nonnull
+    private Connection openRaw() throws SQLException {
+        if (writer != null) {
+            // Readers: read-only, never take the write lock.
+            Properties props = new Properties();
+            props.setProperty("open_mode", SQLITE_OPEN_READONLY);
+            props.setProperty("busy_timeout", String.valueOf(SqliteWriter.BUSY_TIMEOUT_MS));
+            return StatementCachingConnection.wrap(
+                    DriverManager.getConnection(jdbcUrl, props), READER_STATEMENT_CACHE_SIZE);
+        }
+        if (user.isEmpty() && password.isEmpty()) {
+            return DriverManager.getConnection(jdbcUrl);
+        }
+        return DriverManager.getConnection(jdbcUrl, user, password);
+    }
+
+    private void release(@Nonnull PooledEntry entry) {
+        boolean reusable = !closed;
+
+        try {
+            if (entry.raw.isClosed()) {
+                reusable = false;
+            } else if (!entry.raw.getAutoCommit()) {
+                // Never hand out a connection with a half-finished transaction.
+                entry.raw.rollback();
+                entry.raw.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        active.decrementAndGet();
+
+        if (reusable) {
+            entry.lastUsedMs = System.currentTimeMillis();
+            // LIFO: keep the hottest connections busy and let the rest idle out.
+            idle.offerFirst(entry);
+        } else {
+            closeQuietly(entry.raw);
+        }
+
+        permits.release();
+    }
+
+    @Nonnull
+    private Connection wrap(@Nonnull PooledEntry entry) {
+        AtomicBoolean returned = new AtomicBoolean(false);
+
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+
+            switch (name) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || entry.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.raw + "]";
+                default:
+                    break;
+            }
+
+            if (returned.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            try {
+                return method.invoke(entry.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+
+        return (Connection) Proxy.newProxyInstance(
+                SqlConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                handler
+        );
+    }
+
+    // --------------------------------------------------
+    // Eviction / shutdown
+    // --------------------------------------------------
+
+    private void evictIdle() {
+        try {
+            long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+            List<PooledEntry> stale = new ArrayList<>();
+
+            for (PooledEntry entry : idle) {
+                if (entry.lastUsedMs < cutoff) {
+                    stale.add(entry);
+                }
+            }
+
+            for (PooledEntry entry : stale) {
+                // Only close it if nobody borrowed it in the meantime.
+                if (idle.remove(entry)) {
+                    closeQuietly(entry.raw);
+                    evicted.incrementAndGet();
+                }
+            }
+        } catch (Throwable t) {
+            LOGGER.at(Level.FINE).withCause(t)
+                    .log("[MysticNameTags] SQL pool idle eviction failed.");
+        }
+    }
+
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            evictor.shutdownNow();
+        } catch (Throwable ignored) {
+        }
+
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            closeQuietly(entry.raw);
+        }
+
+        if (writer != null) {
+            writer.close();
+        }
+
+        LOGGER.at(Level.INFO).log("[MysticNameTags] Closed SQL connection pool.");
+    }
+
+    private static void closeQuietly(@Nonnull Connection raw) {
+        try {
+            raw.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    // --------------------------------------------------
+    // Metrics
+    // --------------------------------------------------
+
+    private void recordWait(long nanos) {
+        borrows.increment();
+        totalWaitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    @Nonnull
+    public PoolStats getStats() {
+        long borrowCount = borrows.sum();
+        double avgWaitMs = borrowCount == 0 ? 0.0D : (totalWaitNanos.sum() / (double) borrowCount) / 1_000_000.0D;
+
+        return new PoolStats(
+                maxSize,
+                active.get(),
+                idle.size(),
+                created.get(),
+                evicted.get(),
+                borrowCount,
+                timeouts.get(),
+                avgWaitMs,
+                maxWaitNanos.get() / 1_000_000.0D
+        );
+    }
+
+    public record PoolStats(int maxSize,
+                            int active,
+                            int idle,
+                            long created,
+                            long evicted,
+                            long borrows,
+                            long timeouts,
+                            double avgWaitMs,
+                            double maxWaitMs) {}
+
+    private static final class PooledEntry {
+        private final Connection raw;
+        private volatile long lastUsedMs = System.currentTimeMillis();
+
+        private PooledEntry(@Nonnull Connection raw) {
+            this.raw = raw;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.mystichorizons.mysticnametags.storage;
+
+import javax.annotation.Nonnull;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A unit of write work handed to {@link SqlConnectionPool#write(SqlTask)}.
+ *
+ * The connection is only valid for the duration of {@link #run}; do not
+ * close it or keep a reference to it.
+ */
+@FunctionalInterface
+public interface SqlTask {
+
+    void run(@Nonnull Connection conn) throws SQLException;
+}
@@ -0,0 +1,134 @@
+package com.mystichorizons.mysticnametags.storage;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import javax.annotation.Nonnull;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * The single write connection of a tuned SQLite database.
+ *
+ * SQLite allows one writer at a time, so instead of letting the tag and
+ * stat stores fight over the file lock, every write is funnelled through
+ * one long-lived connection owned by one thread. The file is switched to
+ * WAL with synchronous=NORMAL, so readers never block the writer and
+ * commits don't fsync on every statement.
+ */
+final class SqliteWriter {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private static final int STATEMENT_CACHE_SIZE = 64;
+    static final int BUSY_TIMEOUT_MS = 5000;
+
+    private final Connection conn;
+    private final ExecutorService executor;
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile Thread writerThread;
+
+    SqliteWriter(@Nonnull String jdbcUrl) throws SQLException {
+        Connection raw = DriverManager.getConnection(jdbcUrl);
+        try (Statement st = raw.createStatement()) {
+            st.execute("PRAGMA journal_mode=WAL");
+            st.execute("PRAGMA synchronous=NORMAL");
+            st.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MS);
+        } catch (SQLException e) {
+            raw.close();
+            throw e;
+        }
+
+        this.conn = StatementCachingConnection.wrap(raw, STATEMENT_CACHE_SIZE);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "MysticNameTags-SqliteWriter");
+            t.setDaemon(true);
+            writerThread = t;
+            return t;
+        });
+    }
+
+    int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * Run {@code task} on the writer thread and wait for it. Nested calls
+     * from the writer thread itself run inline.
+     */
+    void execute(@Nonnull SqlTask task) throws SQLException {
+        if (Thread.currentThread() == writerThread) {
+            runOnWriter(task);
+            return;
+        }
+
+        Future<?> future;
+        queued.incrementAndGet();
+        try {
+            future = executor.submit(() -> {
+                queued.decrementAndGet();
+                runOnWriter(task);
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            throw new SQLException("SQLite writer is shut down", e);
+        }
+
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the SQLite writer", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sql) {
+                throw sql;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    private void runOnWriter(@Nonnull SqlTask task) throws SQLException {
+        try {
+            task.run(conn);
+        } finally {
+            // Never leave a half-finished transaction for the next task.
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Failed to close SQLite writer connection.");
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.mystichorizons.mysticnametags.storage;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Wraps a long-lived connection so prepareStatement(sql) reuses an already
+ * compiled statement for the same SQL text.
+ *
+ * Cached statements ignore close() (they only clear parameters / batch) and
+ * are really closed when they fall out of the LRU or the connection closes.
+ * Callers keep their usual try-with-resources code.
+ */
+final class StatementCachingConnection {
+
+    private StatementCachingConnection() {
+    }
+
+    @Nonnull
+    static Connection wrap(@Nonnull Connection raw, int maxStatements) {
+        Map<String, PreparedStatement> cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= maxStatements) {
+                    return false;
+                }
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+
+            if ("prepareStatement".equals(name) && args != null && args.length == 1) {
+                String sql = (String) args[0];
+                synchronized (cache) {
+                    PreparedStatement cached = cache.get(sql);
+                    if (cached == null || cached.isClosed()) {
+                        cached = raw.prepareStatement(sql);
+                        cache.put(sql, cached);
+                    }
+                    return reusable(cached);
+                }
+            }
+
+            if ("close".equals(name)) {
+                synchronized (cache) {
+                    for (PreparedStatement ps : cache.values()) {
+                        closeQuietly(ps);
+                    }
+                    cache.clear();
+                }
+                raw.close();
+                return null;
+            }
+
+            return invoke(raw, method, args);
+        };
+
+        return (Connection) Proxy.newProxyInstance(
+                StatementCachingConnection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                handler
+        );
+    }
+
+    @Nonnull
+    private static PreparedStatement reusable(@Nonnull PreparedStatement real) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    try {
+                        real.clearParameters();
+                        real.clearBatch();
+                    } catch (SQLException ignored) {
+                    }
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return invoke(real, method, args);
+            }
+        };
+
+        return (PreparedStatement) Proxy.newProxyInstance(
+                StatementCachingConnection.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                handler
+        );
+    }
+
+    private static Object invoke(@Nonnull Object target, @Nonnull Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(@Nonnull PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.mystichorizons.mysticnametags.storage;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.mystichorizons.mysticnametags.config.Settings;
+import com.mystichorizons.mysticnametags.stats.PlayerStatManager;
+import com.mystichorizons.mysticnametags.tags.PlayerTagData;
+import com.mystichorizons.mysticnametags.tags.StorageBackend;
+import com.mystichorizons.mysticnametags.tags.TagManager;
+import com.mystichorizons.mysticnametags.tags.TagRegistry;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Hot player caches carried across a restart.
+ *
+ * On shutdown, {@link #capture} copies the tag ownership (as bits over the
+ * tag registry) and full stats of everyone online or recently active;
+ * {@link #write} stores them in warm-restart.bin once the stores have been
+ * flushed. On the next start, {@link #restore} seeds the tag and stat
+ * caches from it, so returning players don't all hit the store at once.
+ *
+ * The file is deleted as soon as it is read, so only a clean shutdown
+ * immediately before this start can be restored. It is also ignored when:
+ * - it is older than warmRestartMaxAgeSeconds
+ * - the storage backend / schema changed
+ * - tags.json changed (the ownership bits would point at other tags)
+ * - the backend is MYSQL, which other servers may have written to meanwhile
+ *
+ * Layout (DataOutputStream): magic "MWR", version byte, created-at millis,
+ * store id (UTF), registry hash, player count, then per player: uuid,
+ * equipped id (flag + UTF), owned bits (long count + longs), owned ids that
+ * aren't loaded tags (count + UTFs), stats (length + BinaryStatsCodec bytes,
+ * -1 if none).
+ */
+public final class WarmRestartSnapshot {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private static final String FILE_NAME = "warm-restart.bin";
+    private static final byte[] MAGIC = {'M', 'W', 'R'};
+    private static final int FORMAT_VERSION = 1;
+
+    private record PlayerEntry(UUID uuid,
+                               @Nullable PlayerTagData tags,
+                               @Nullable byte[] stats) {
+    }
+
+    private final long createdAt;
+    private final String storeId;
+    private final TagRegistry registry;
+    private final List<PlayerEntry> players;
+
+    private WarmRestartSnapshot(long createdAt,
+                                @Nonnull String storeId,
+                                @Nonnull TagRegistry registry,
+                                @Nonnull List<PlayerEntry> players) {
+        this.createdAt = createdAt;
+        this.storeId = storeId;
+        this.registry = registry;
+        this.players = players;
+    }
+
+    /**
+     * Copy the hot caches. Call on shutdown before TagManager /
+     * PlayerStatManager release them; returns null if disabled or unsupported.
+     */
+    @Nullable
+    public static WarmRestartSnapshot capture() {
+        Settings settings = Settings.get();
+        int maxAgeSeconds = settings.getWarmRestartMaxAgeSeconds();
+        TagManager tags = TagManager.get();
+        if (maxAgeSeconds <= 0 || tags == null || storeId(settings) == null) {
+            return null;
+        }
+
+        PlayerStatManager stats = PlayerStatManager.get();
+        List<PlayerEntry> players = new ArrayList<>();
+
+        for (UUID uuid : tags.getRecentlyActivePlayers(maxAgeSeconds * 1000L)) {
+            PlayerTagData data = tags.peekPlayerData(uuid);
+            byte[] encoded = null;
+            try {
+                encoded = stats != null ? stats.exportCached(uuid) : null;
+            } catch (Throwable t) {
+                LOGGER.at(Level.FINE).withCause(t)
+                        .log("[MysticNameTags] Could not snapshot stats for " + uuid);
+            }
+            if (data != null || encoded != null) {
+                players.add(new PlayerEntry(uuid, data, encoded));
+            }
+        }
+
+        return new WarmRestartSnapshot(System.currentTimeMillis(), storeId(settings),
+                tags.getRegistry(), players);
+    }
+
+    /**
+     * Write the snapshot into {@code dataFolder}. Call after the stores have
+     * been flushed.
+     */
+    public void write(@Nonnull File dataFolder) {
+        File target = new File(dataFolder, FILE_NAME);
+        try {
+            AtomicFiles.writeBytes(target, raw -> {
+                DataOutputStream out = new DataOutputStream(raw);
+                out.write(MAGIC);
+                out.writeByte(FORMAT_VERSION);
+                out.writeLong(createdAt);
+                out.writeUTF(storeId);
+                out.writeLong(registry.contentHash());
+                out.writeInt(players.size());
+
+                for (PlayerEntry entry : players) {
+                    out.writeLong(entry.uuid.getMostSignificantBits());
+                    out.writeLong(entry.uuid.getLeastSignificantBits());
+                    writeTags(out, entry.tags);
+
+                    if (entry.stats == null) {
+                        out.writeInt(-1);
+                    } else {
+                        out.writeInt(entry.stats.length);
+                        out.write(entry.stats);
+                    }
+                }
+                out.flush();
+            });
+            LOGGER.at(Level.INFO).log("[MysticNameTags] Saved warm-restart snapshot for "
+                    + players.size() + " players.");
+        } catch (Throwable t) {
+            LOGGER.at(Level.WARNING).withCause(t)
+                    .log("[MysticNameTags] Failed to write warm-restart snapshot");
+        }
+    }
+
+    /**
+     * Seed the tag and stat caches from a valid snapshot in
+     * {@code dataFolder}, then delete it. Call after TagManager and
+     * PlayerStatManager are initialized.
+     */
+    public static void restore(@Nonnull File dataFolder) {
+        File file = new File(dataFolder, FILE_NAME);
+        if (!file.isFile()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            String rejected = restore(in);
+            if (rejected != null) {
+                LOGGER.at(Level.INFO).log("[MysticNameTags] Ignoring warm-restart snapshot: " + rejected);
+            }
+        } catch (Throwable t) {
+            LOGGER.at(Level.WARNING).withCause(t)
+                    .log("[MysticNameTags] Failed to read warm-restart snapshot");
+        } finally {
+            if (!file.delete()) {
+                LOGGER.at(Level.WARNING).log("[MysticNameTags] Could not delete " + file);
+            }
+        }
+
+        LOGGER.at(Level.FINE).log("[MysticNameTags] Warm-restart restore took "
+                + (System.nanoTime() - start) / 1_000_000L + "ms");
+    }
+
+    /**
+     * @return why the snapshot was not used, or null if it was restored
+     */
+    @Nullable
+    private static String restore(@Nonnull DataInputStream in) throws IOException {
+        byte[] magic = in.readNBytes(MAGIC.length);
+        if (magic.length != MAGIC.length || magic[0] != MAGIC[0] || magic[1] != MAGIC[1] || magic[2] != MAGIC[2]) {
+            return "not a snapshot file";
+        }
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            return "unsupported version " + version;
+        }
+
+        Settings settings = Settings.get();
+        long ageMs = System.currentTimeMillis() - in.readLong();
+        if (ageMs < 0 || ageMs > settings.getWarmRestartMaxAgeSeconds() * 1000L) {
+            return "older than warmRestartMaxAgeSeconds";
+        }
+
+        String expectedStore = storeId(settings);
+        String store = in.readUTF();
+        if (expectedStore == null || !expectedStore.equals(store)) {
+            return "storage backend changed (" + store + " -> " + expectedStore + ")";
+        }
+
+        TagManager tags = TagManager.get();
+        PlayerStatManager stats = PlayerStatManager.get();
+        if (tags == null) {
+            return "TagManager not initialized";
+        }
+
+        // Bits are only meaningful against the same tags at the same indexes.
+        TagRegistry registry = tags.getRegistry();
+        boolean tagsValid = in.readLong() == registry.contentHash();
+
+        int count = in.readInt();
+        int seededTags = 0;
+        int seededStats = 0;
+
+        for (int i = 0; i < count; i++) {
+            UUID uuid = new UUID(in.readLong(), in.readLong());
+
+            PlayerTagData data = readTags(in, registry);
+            if (tagsValid && data != null && tags.seedPlayerData(uuid, data)) {
+                seededTags++;
+            }
+
+            int length = in.readInt();
+            if (length >= 0) {
+                byte[] encoded = in.readNBytes(length);
+                if (encoded.length != length) {
+                    throw new IOException("Truncated snapshot");
+                }
+                if (stats != null && stats.seedCached(uuid, encoded)) {
+                    seededStats++;
+                }
+            }
+        }
+
+        LOGGER.at(Level.INFO).log("[MysticNameTags] Warm restart: restored tag data for " + seededTags
+                + " and stats for " + seededStats + " of " + count + " players"
+                + (tagsValid ? "." : " (tags.json changed; tag data reloads from storage)."));
+        return null;
+    }
+
+    // --------------------------------------------------
+    // Tag data
+    // --------------------------------------------------
+
+    private void writeTags(@Nonnull DataOutputStream out, @Nullable PlayerTagData data) throws IOException {
+        if (data == null) {
+            out.writeBoolean(false);
+            return;
+        }
+        out.writeBoolean(true);
+
+        String equipped = data.getEquipped();
+        out.writeBoolean(equipped != null);
+        if (equipped != null) {
+            out.writeUTF(equipped);
+        }
+
+        long[] bits = data.ownedIndexes(registry).toLongArray();
+        out.writeInt(bits.length);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+
+        // Owned ids without a loaded tag aren't in the bits.
+        List<String> extra = new ArrayList<>();
+        for (String id : data.getOwned()) {
+            if (registry.indexOf(id) < 0) {
+                extra.add(id);
+            }
+        }
+        out.writeInt(extra.size());
+        for (String id : extra) {
+            out.writeUTF(id);
+        }
+    }
+
+    @Nullable
+    private static PlayerTagData readTags(@Nonnull DataInputStream in,
+                                          @Nonnull TagRegistry registry) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        PlayerTagData data = new PlayerTagData();
+        if (in.readBoolean()) {
+            data.setEquipped(in.readUTF());
+        }
+
+        long[] words = new long[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        BitSet bits = BitSet.valueOf(words);
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            // Out of range only if the registry changed; the caller drops
+            // the data in that case anyway.
+            if (i < registry.size()) {
+                data.addOwned(registry.idAt(i));
+            }
+        }
+
+        int extra = in.readInt();
+        for (int i = 0; i < extra; i++) {
+            data.addOwned(in.readUTF());
+        }
+        return data;
+    }
+
+    /**
+     * Identifies the store the caches came from, or null if the backend
+     * can be written by other servers while this one is down.
+     */
+    @Nullable
+    private static String storeId(@Nonnull Settings settings) {
+        StorageBackend backend = StorageBackend.fromString(settings.getStorageBackendRaw());
+        switch (backend) {
+            case MYSQL:
+                return null;
+            case SQLITE:
+                return "SQLITE:" + settings.getSqliteFile() + (settings.isSqlNormalizedSchema() ? ":normalized" : "");
+            case FILE:
+            default:
+                return "FILE";
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.mystichorizons.mysticnametags.tags;
+
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.mystichorizons.mysticnametags.integrations.IntegrationManager;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+
+/**
+ * A tag's unlock requirements, prepared once when the registry is built.
+ *
+ * Required tag ids are resolved to registry indexes, stat keys are split
+ * into category / stat, placeholder operators become {@link Op} values and
+ * expected values are pre-parsed, so {@link #isMet} does no string work of
+ * its own. Checks run cheapest first: owned tags (bit tests), playtime,
+ * exact stats, wildcard / external stats, and placeholders last.
+ */
+final class CompiledRequirements {
+
+    static final CompiledRequirements NONE = new CompiledRequirements(
+            new int[0], new String[0], 0, new StatCheck[0], new PlaceholderCheck[0], false, false);
+
+    enum Op {
+        TRUE, FALSE, EQ, NE, GT, GE, LT, LE, CONTAINS, UNKNOWN;
+
+        @Nonnull
+        static Op parse(@Nonnull String raw) {
+            String op = raw.trim();
+            if (op.equalsIgnoreCase("true")) return TRUE;
+            if (op.equalsIgnoreCase("false")) return FALSE;
+            switch (op) {
+                case "==": return EQ;
+                case "!=": return NE;
+                case ">": return GT;
+                case ">=": return GE;
+                case "<": return LT;
+                case "<=": return LE;
+                case "contains": return CONTAINS;
+                default: return UNKNOWN;
+            }
+        }
+    }
+
+    /**
+     * @param key      original key, for external / wildcard lookups
+     * @param category category for direct lookups, or null if {@code key} must be used
+     */
+    record StatCheck(@Nonnull String key, @Nullable String category, @Nonnull String stat, long min) {
+    }
+
+    private record PlaceholderCheck(@Nonnull String placeholder,
+                                    @Nonnull String rawOperator,
+                                    @Nonnull String rawExpected,
+                                    @Nonnull Op op,
+                                    @Nonnull String expected,
+                                    @Nonnull String expectedLower,
+                                    @Nullable Boolean expectedBool,
+                                    double expectedNumber) {
+    }
+
+    private final int[] requiredTags;
+    // Lowercase required ids that aren't loaded tags; checked against stored ids
+    private final String[] unresolvedTags;
+    private final int playtimeMinutes;
+    private final StatCheck[] stats;
+    private final PlaceholderCheck[] placeholders;
+    // A malformed requirement makes the tag unobtainable, as before
+    private final boolean alwaysFails;
+    private final boolean placeholderFails;
+
+    private CompiledRequirements(int[] requiredTags,
+                                 String[] unresolvedTags,
+                                 int playtimeMinutes,
+                                 StatCheck[] stats,
+                                 PlaceholderCheck[] placeholders,
+                                 boolean alwaysFails,
+                                 boolean placeholderFails) {
+        this.requiredTags = requiredTags;
+        this.unresolvedTags = unresolvedTags;
+        this.playtimeMinutes = playtimeMinutes;
+        this.stats = stats;
+        this.placeholders = placeholders;
+        this.alwaysFails = alwaysFails;
+        this.placeholderFails = placeholderFails;
+    }
+
+    /**
+     * @param indexOf resolves a tag id to its index in the registry being built
+     */
+    @Nonnull
+    static CompiledRequirements compile(@Nonnull TagDefinition def,
+                                        @Nonnull ToIntFunction<String> indexOf) {
+        boolean alwaysFails = false;
+        boolean placeholderFails = false;
+
+        List<Integer> resolved = new ArrayList<>();
+        List<String> unresolved = new ArrayList<>();
+        for (String id : def.getRequiredOwnedTags()) {
+            if (id == null || id.isBlank()) continue;
+            int index = indexOf.applyAsInt(id.toLowerCase(Locale.ROOT));
+            if (index >= 0) {
+                resolved.add(index);
+            } else {
+                unresolved.add(id.toLowerCase(Locale.ROOT));
+            }
+        }
+
+        Integer minutes = def.getRequiredPlaytimeMinutes();
+        int playtime = (minutes != null && minutes > 0) ? minutes : 0;
+
+        List<StatCheck> stats = new ArrayList<>();
+        for (TagDefinition.StatRequirement req : def.getRequiredStats()) {
+            if (req == null || !req.isValid()) {
+                alwaysFails = true;
+                continue;
+            }
+            String key = req.getKey();
+            String trimmed = key.trim();
+            if (trimmed.startsWith("endlessleveling.") || trimmed.indexOf('*') >= 0) {
+                stats.add(new StatCheck(key, null, trimmed, req.getMin()));
+                continue;
+            }
+            int dot = trimmed.indexOf('.');
+            if (dot <= 0 || dot == trimmed.length() - 1) {
+                stats.add(new StatCheck(key, "custom", trimmed, req.getMin()));
+            } else {
+                stats.add(new StatCheck(key, trimmed.substring(0, dot), trimmed.substring(dot + 1), req.getMin()));
+            }
+        }
+        // Direct lookups first; wildcard sums and external bridges after.
+        stats.sort(Comparator.comparingInt(check -> check.category != null ? 0 : 1));
+
+        List<PlaceholderCheck> placeholders = new ArrayList<>();
+        for (TagDefinition.PlaceholderRequirement req : def.getPlaceholderRequirements()) {
+            if (req == null) continue;
+            String placeholder = req.getPlaceholder();
+            String op = req.getOperator();
+            String expected = req.getValue();
+            if (placeholder == null || op == null || expected == null) {
+                alwaysFails = true;
+                placeholderFails = true;
+                continue;
+            }
+            placeholders.add(compilePlaceholder(placeholder, op, expected));
+        }
+
+        if (!alwaysFails && resolved.isEmpty() && unresolved.isEmpty() && playtime == 0
+                && stats.isEmpty() && placeholders.isEmpty()) {
+            return NONE;
+        }
+
+        return new CompiledRequirements(
+                resolved.stream().mapToInt(Integer::intValue).toArray(),
+                unresolved.toArray(new String[0]),
+                playtime,
+                stats.toArray(new StatCheck[0]),
+                placeholders.toArray(new PlaceholderCheck[0]),
+                alwaysFails,
+                placeholderFails);
+    }
+
+    @Nonnull
+    private static PlaceholderCheck compilePlaceholder(@Nonnull String placeholder,
+                                                       @Nonnull String op,
+                                                       @Nonnull String expected) {
+        String exp = expected.trim();
+        Boolean expBool = "true".equalsIgnoreCase(exp) ? Boolean.TRUE
+                : "false".equalsIgnoreCase(exp) ? Boolean.FALSE : null;
+        return new PlaceholderCheck(placeholder, op, expected, Op.parse(op), exp,
+                exp.toLowerCase(Locale.ROOT), expBool, parseNumber(exp));
+    }
+
+    /**
+     * Indexes of the loaded tags this tag requires. Do not modify.
+     */
+    @Nonnull
+    int[] requiredTags() {
+        return requiredTags;
+    }
+
+    /**
+     * Stat checks, direct lookups first. Do not modify.
+     */
+    @Nonnull
+    StatCheck[] stats() {
+        return stats;
+    }
+
+    boolean hasPlaceholders() {
+        return placeholders.length > 0;
+    }
+
+    boolean isMet(@Nonnull UUID uuid,
+                  @Nonnull PlayerRef playerRef,
+                  @Nonnull PlayerTagData data,
+                  @Nonnull TagRegistry registry,
+                  @Nonnull IntegrationManager integrations) {
+        if (alwaysFails) {
+            return false;
+        }
+
+        for (int index : requiredTags) {
+            if (!data.owns(registry, index)) {
+                return false;
+            }
+        }
+        for (String id : unresolvedTags) {
+            if (!data.owns(id)) {
+                return false;
+            }
+        }
+
+        if (playtimeMinutes > 0) {
+            Integer playtime = integrations.getPlaytimeMinutes(uuid);
+            if (playtime == null || playtime < playtimeMinutes) {
+                return false;
+            }
+        }
+
+        for (StatCheck check : stats) {
+            if (!statMet(statValue(uuid, check, integrations), check.min)) {
+                return false;
+            }
+        }
+
+        return placeholdersMet(playerRef, integrations);
+    }
+
+    /**
+     * The player's value for a stat check, or null if they have none: the
+     * stat provider reports 0 and below as missing, and so does a failed
+     * lookup.
+     */
+    @Nullable
+    private static Long statValue(@Nonnull UUID uuid,
+                                  @Nonnull StatCheck check,
+                                  @Nonnull IntegrationManager integrations) {
+        try {
+            if (check.category != null) {
+                long value = integrations.getStatLong(uuid, check.category, check.stat);
+                return value > 0L ? value : null;
+            }
+            Integer value = integrations.getStatValue(uuid, check.key);
+            return value != null ? value.longValue() : null;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /**
+     * A missing stat never meets a requirement, whatever its min, as
+     * before requirements were compiled.
+     */
+    static boolean statMet(@Nullable Long current, long min) {
+        return current != null && current >= min;
+    }
+
+    /**
+     * Placeholder checks only (previews without a player UUID).
+     */
+    boolean placeholdersMet(@Nonnull PlayerRef playerRef, @Nonnull IntegrationManager integrations) {
+        if (placeholderFails) {
+            return false;
+        }
+        for (PlaceholderCheck check : placeholders) {
+            String actual = integrations.resolvePlaceholderRequirement(
+                    playerRef, check.placeholder, check.rawOperator, check.rawExpected);
+            if (!matches(actual, check)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(@Nullable String actual, @Nonnull PlaceholderCheck check) {
+        if (actual == null) {
+            return false;
+        }
+        String a = actual.trim();
+
+        switch (check.op) {
+            case TRUE:
+                return "true".equalsIgnoreCase(a);
+            case FALSE:
+                return "false".equalsIgnoreCase(a);
+            case UNKNOWN:
+                return false;
+            default:
+                break;
+        }
+
+        if (check.expectedBool != null && (check.op == Op.EQ || check.op == Op.NE)) {
+            boolean actualIsBool = "true".equalsIgnoreCase(a) || "false".equalsIgnoreCase(a);
+            if (actualIsBool) {
+                boolean same = Boolean.parseBoolean(a) == check.expectedBool;
+                return check.op == Op.EQ ? same : !same;
+            }
+        }
+
+        // NaN doubles as "not a number"; a literal NaN compares the same
+        // way through the string fallback below.
+        if (!Double.isNaN(check.expectedNumber) && check.op != Op.CONTAINS) {
+            double actualNum = parseNumber(a);
+            if (!Double.isNaN(actualNum)) {
+                double exp = check.expectedNumber;
+                switch (check.op) {
+                    case EQ: return Double.compare(actualNum, exp) == 0;
+                    case NE: return Double.compare(actualNum, exp) != 0;
+                    case GT: return actualNum > exp;
+                    case GE: return actualNum >= exp;
+                    case LT: return actualNum < exp;
+                    case LE: return actualNum <= exp;
+                    default: break;
+                }
+            }
+        }
+
+        switch (check.op) {
+            case EQ: return a.equalsIgnoreCase(check.expected);
+            case NE: return !a.equalsIgnoreCase(check.expected);
+            case CONTAINS: return a.toLowerCase(Locale.ROOT).contains(check.expectedLower);
+            default: return false;
+        }
+    }
+
+    /**
+     * Double.parseDouble without the exception for the common non-numeric
+     * case; NaN if {@code s} isn't a number.
+     */
+    private static double parseNumber(@Nonnull String s) {
+        if (s.isEmpty()) {
+            return Double.NaN;
+        }
+        char c = s.charAt(0);
+        boolean plausible = (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.'
+                || c == 'N' || c == 'I';
+        if (!plausible) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.mystichorizons.mysticnametags.tags;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cached canUseTag decisions per player.
+ *
+ * Each decision remembers which inputs it was computed from (see
+ * {@link Dependencies}) and stays valid until one of them changes: a
+ * permission recalculation, a stat change, an ownership change or a
+ * tags.json reload. Inputs that can change without any notification
+ * (placeholders, external stats, permission backends without change events)
+ * mark the decision as TTL-bound instead.
+ *
+ * Every invalidation bumps the player's epoch; a decision computed while an
+ * invalidation happened is dropped rather than cached.
+ */
+final class EligibilityCache {
+
+    /**
+     * What a decision depends on besides ownership, which every decision
+     * reads.
+     *
+     * @param permission  reads a permission node
+     * @param statKeys    lowercase "category.stat" keys, "category.*" for
+     *                    wildcard requirements, or {@link #ANY_STAT} for
+     *                    wildcards that can match any category
+     * @param ttlBound    reads something without change events
+     */
+    record Dependencies(boolean permission, @Nonnull String[] statKeys, boolean ttlBound) {
+    }
+
+    /**
+     * Stat dependency invalidated by a change to any stat.
+     */
+    static final String ANY_STAT = "*";
+
+    private record Decision(boolean value, @Nonnull Dependencies deps, long expiresAt) {
+    }
+
+    private static final class PlayerDecisions {
+        private final Map<String, Decision> byTag = new ConcurrentHashMap<>();
+        // stat key -> tag keys whose decision read it
+        private final Map<String, Set<String>> byStat = new ConcurrentHashMap<>();
+        private final AtomicLong epoch = new AtomicLong();
+    }
+
+    private final Map<UUID, PlayerDecisions> players = new ConcurrentHashMap<>();
+    private final long ttlMs;
+
+    EligibilityCache(long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Cached decision, or null if there is none or it expired.
+     */
+    @Nullable
+    Boolean get(@Nonnull UUID uuid, @Nonnull String tagKey, long now) {
+        PlayerDecisions pd = players.get(uuid);
+        if (pd == null) {
+            return null;
+        }
+        Decision decision = pd.byTag.get(tagKey);
+        if (decision == null || decision.expiresAt <= now) {
+            return null;
+        }
+        return decision.value;
+    }
+
+    /**
+     * Read before computing a decision and hand it to {@link #put}.
+     */
+    long epoch(@Nonnull UUID uuid) {
+        return players.computeIfAbsent(uuid, u -> new PlayerDecisions()).epoch.get();
+    }
+
+    void put(@Nonnull UUID uuid,
+             @Nonnull String tagKey,
+             boolean value,
+             @Nonnull Dependencies deps,
+             long epochAtStart,
+             long now) {
+        PlayerDecisions pd = players.get(uuid);
+        if (pd == null || pd.epoch.get() != epochAtStart) {
+            return;
+        }
+
+        long expiresAt = deps.ttlBound() ? now + ttlMs : Long.MAX_VALUE;
+        Decision decision = new Decision(value, deps, expiresAt);
+        pd.byTag.put(tagKey, decision);
+        for (String stat : deps.statKeys()) {
+            pd.byStat.computeIfAbsent(stat, k -> ConcurrentHashMap.newKeySet()).add(tagKey);
+        }
+
+        // An invalidation slipped in between the check and the put.
+        if (pd.epoch.get() != epochAtStart) {
+            pd.byTag.remove(tagKey, decision);
+        }
+    }
+
+    /**
+     * Forget everything about {@code uuid} (ownership reset, player left).
+     */
+    void invalidatePlayer(@Nonnull UUID uuid) {
+        PlayerDecisions pd = players.remove(uuid);
+        if (pd != null) {
+            pd.epoch.incrementAndGet();
+        }
+    }
+
+    /**
+     * {@code uuid}'s permissions were recalculated.
+     */
+    void invalidatePermissions(@Nonnull UUID uuid) {
+        PlayerDecisions pd = players.get(uuid);
+        if (pd == null) {
+            return;
+        }
+        pd.epoch.incrementAndGet();
+        pd.byTag.values().removeIf(d -> d.deps.permission());
+    }
+
+    /**
+     * A stat of {@code uuid} changed; {@code category} / {@code stat} as
+     * stored. Null category means all of the player's stats changed.
+     */
+    void invalidateStat(@Nonnull UUID uuid, @Nullable String category, @Nullable String stat) {
+        PlayerDecisions pd = players.get(uuid);
+        if (pd == null || pd.byStat.isEmpty()) {
+            return;
+        }
+
+        if (category == null) {
+            pd.epoch.incrementAndGet();
+            for (Set<String> tags : pd.byStat.values()) {
+                pd.byTag.keySet().removeAll(tags);
+            }
+            pd.byStat.clear();
+            return;
+        }
+
+        String lowerCategory = category.toLowerCase(Locale.ROOT);
+        Set<String> exact = stat != null
+                ? pd.byStat.remove(lowerCategory + "." + stat.toLowerCase(Locale.ROOT))
+                : null;
+        Set<String> wildcard = pd.byStat.remove(lowerCategory + ".*");
+        Set<String> any = pd.byStat.remove(ANY_STAT);
+        if (exact == null && wildcard == null && any == null) {
+            return;
+        }
+
+        pd.epoch.incrementAndGet();
+        if (exact != null) {
+            pd.byTag.keySet().removeAll(exact);
+        }
+        if (wildcard != null) {
+            pd.byTag.keySet().removeAll(wildcard);
+        }
+        if (any != null) {
+            pd.byTag.keySet().removeAll(any);
+        }
+    }
+
+    /**
+     * Ownership of these tag keys changed for {@code uuid}.
+     */
+    void invalidateTags(@Nonnull UUID uuid, @Nonnull Collection<String> tagKeys) {
+        PlayerDecisions pd = players.get(uuid);
+        if (pd == null) {
+            return;
+        }
+        pd.epoch.incrementAndGet();
+        pd.byTag.keySet().removeAll(tagKeys);
+    }
+
+    /**
+     * These tag definitions changed (reload); drop them for every player.
+     */
+    void invalidateTags(@Nonnull Set<String> tagKeys) {
+        for (PlayerDecisions pd : players.values()) {
+            pd.epoch.incrementAndGet();
+            pd.byTag.keySet().removeAll(tagKeys);
+        }
+    }
+
+    void clear() {
+        for (PlayerDecisions pd : players.values()) {
+            pd.epoch.incrementAndGet();
+        }
+        players.clear();
+    }
+}
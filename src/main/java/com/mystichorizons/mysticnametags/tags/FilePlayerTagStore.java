@@ -1,35 +1,204 @@
 package com.mystichorizons.mysticnametags.tags;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.hypixel.hytale.logger.HytaleLogger;
+import com.mystichorizons.mysticnametags.storage.AtomicFiles;
+import com.mystichorizons.mysticnametags.storage.ShardedPlayerFiles;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
 
 /**
- * Backwards-compatible file-based storage using playerdata/*.json.
+ * File-based storage using playerdata/ab/cd/<uuid>.json (see
+ * {@link ShardedPlayerFiles}; flat playerdata/*.json files are moved
+ * into the sharded layout on startup).
+ *
+ * Snapshots are always replaced atomically (temp file + rename), so a crash
+ * mid-save can't leave a torn JSON file behind.
+ *
+ * In journal mode, a save appends one small change record to
+ * a <uuid>.log next to the snapshot instead of rewriting it:
+ *
+ *   {"a":["tag1"],"r":["tag2"],"e":"tag1"}
+ *
+ *   a = tags added, r = tags removed, e = new equipped tag (null = none,
+ *   absent = unchanged).
+ *
+ * Records are idempotent, and a torn last line is ignored on replay. After
+ * {@code compactEvery} records (on load, and on close) the journal is
+ * folded into a fresh snapshot and deleted.
  */
 public final class FilePlayerTagStore implements PlayerTagStore {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
 
-    private final File playerDataFolder;
+    private final ShardedPlayerFiles files;
     private final Gson gson;
+    private final boolean journal;
+    private final int compactEvery;
+
+    // Journal mode only: last persisted state for players with an open journal
+    private final Map<UUID, JournalState> journals = new HashMap<>();
 
     public FilePlayerTagStore(@Nonnull File playerDataFolder,
                               @Nonnull Gson gson) {
-        this.playerDataFolder = playerDataFolder;
+        this(playerDataFolder, gson, false, 0);
+    }
+
+    public FilePlayerTagStore(@Nonnull File playerDataFolder,
+                              @Nonnull Gson gson,
+                              boolean journal,
+                              int compactEvery) {
+        this.files = new ShardedPlayerFiles(playerDataFolder, ".json", ".log");
         this.gson = gson;
-        this.playerDataFolder.mkdirs();
+        this.journal = journal;
+        this.compactEvery = Math.max(1, compactEvery);
     }
 
     @Nonnull
+    private File snapshotFile(@Nonnull UUID uuid) {
+        return files.file(uuid, ".json");
+    }
+
+    @Nonnull
+    private File journalFile(@Nonnull UUID uuid) {
+        return files.file(uuid, ".log");
+    }
+
+    /**
+     * Every player with data on disk (from the index, no directory walk).
+     */
+    @Nonnull
+    public Set<UUID> knownPlayers() {
+        return files.knownPlayers().keySet();
+    }
+
+    @Nonnull
+    @Override
+    public synchronized PlayerTagData load(@Nonnull UUID uuid) {
+        PlayerTagData data = readSnapshot(uuid);
+
+        File log = journalFile(uuid);
+        if (log.exists()) {
+            int replayed = replay(log, data);
+            if (replayed > 0) {
+                // Start the session from a clean snapshot.
+                JournalState state = new JournalState(data.copy());
+                state.records = replayed;
+                journals.put(uuid, state);
+                compact(uuid, state);
+            } else {
+                deleteQuietly(log);
+            }
+        }
+
+        return data;
+    }
+
+    @Override
+    public synchronized void save(@Nonnull UUID uuid, @Nonnull PlayerTagData data) {
+        if (!journal) {
+            writeSnapshot(uuid, data);
+            return;
+        }
+
+        JournalState state = journals.get(uuid);
+        if (state == null) {
+            state = new JournalState(load(uuid));
+            journals.put(uuid, state);
+        }
+
+        JsonObject record = diff(state.persisted, data);
+        if (record == null) {
+            return;
+        }
+
+        File log = journalFile(uuid);
+        //noinspection ResultOfMethodCallIgnored
+        log.getParentFile().mkdirs();
+        try (FileOutputStream out = new FileOutputStream(log, true)) {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writer.write(record.toString());
+            writer.write('\n');
+            writer.flush();
+            // The record must survive a crash, like the snapshot it replaces.
+            out.getFD().sync();
+        } catch (IOException e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Failed to append tag journal for " + uuid + "; writing snapshot instead.");
+            // Throws if this fails too, leaving the journal state as it was.
+            writeSnapshot(uuid, data);
+            deleteQuietly(log);
+            journals.remove(uuid);
+            return;
+        }
+
+        state.persisted = data.copy();
+        files.touch(uuid);
+        if (++state.records >= compactEvery) {
+            compact(uuid, state);
+        }
+    }
+
     @Override
-    public PlayerTagData load(@Nonnull UUID uuid) {
-        File file = new File(playerDataFolder, uuid.toString() + ".json");
+    public synchronized void delete(@Nonnull UUID uuid) {
+        journals.remove(uuid);
+        deleteQuietly(journalFile(uuid));
+        files.forget(uuid);
+
+        File file = snapshotFile(uuid);
+        if (file.exists() && !file.delete()) {
+            // non-fatal
+            LOGGER.at(Level.FINE)
+                    .log("[MysticNameTags] Could not delete playerdata file for " + uuid);
+        }
+    }
+
+    /**
+     * Fold every open journal into its snapshot and persist the index.
+     */
+    @Override
+    public synchronized void close() {
+        for (Map.Entry<UUID, JournalState> e : new HashMap<>(journals).entrySet()) {
+            compact(e.getKey(), e.getValue());
+        }
+        files.saveIndex();
+    }
+
+    /**
+     * Snapshot plus journal for one player, without touching the open
+     * journal state. Thread-safe; used to migrate FILE -> SQL in parallel.
+     */
+    @Nonnull
+    PlayerTagData read(@Nonnull UUID uuid) {
+        PlayerTagData data = readSnapshot(uuid);
+        File log = journalFile(uuid);
+        if (log.exists()) {
+            replay(log, data);
+        }
+        return data;
+    }
+
+    // ------------------------------------------------------------------
+    // Snapshot
+    // ------------------------------------------------------------------
+
+    @Nonnull
+    private PlayerTagData readSnapshot(@Nonnull UUID uuid) {
+        File file = snapshotFile(uuid);
         if (!file.exists()) {
             return new PlayerTagData();
         }
@@ -46,26 +215,143 @@ public final class FilePlayerTagStore implements PlayerTagStore {
         }
     }
 
-    @Override
-    public void save(@Nonnull UUID uuid, @Nonnull PlayerTagData data) {
-        File file = new File(playerDataFolder, uuid.toString() + ".json");
-        try (OutputStreamWriter writer = new OutputStreamWriter(
-                new FileOutputStream(file), StandardCharsets.UTF_8)) {
-
-            gson.toJson(data, writer);
+    /**
+     * @throws IllegalStateException if the snapshot could not be written
+     */
+    private void writeSnapshot(@Nonnull UUID uuid, @Nonnull PlayerTagData data) {
+        try {
+            AtomicFiles.write(snapshotFile(uuid), writer -> gson.toJson(data, writer));
         } catch (Exception e) {
+            throw new IllegalStateException("Failed to save tag data for " + uuid, e);
+        }
+        files.touch(uuid);
+    }
+
+    /**
+     * Snapshot first, then drop the journal. A crash in between just
+     * replays already-applied (idempotent) records on the next load.
+     */
+    private void compact(@Nonnull UUID uuid, @Nonnull JournalState state) {
+        try {
+            writeSnapshot(uuid, state.persisted);
+        } catch (IllegalStateException e) {
+            // The journal still holds everything; compaction retries later.
             LOGGER.at(Level.WARNING).withCause(e)
-                    .log("[MysticNameTags] Failed to save tag data for " + uuid);
+                    .log("[MysticNameTags] Failed to compact tag journal for " + uuid);
+            return;
         }
+        deleteQuietly(journalFile(uuid));
+        journals.remove(uuid);
     }
 
-    @Override
-    public void delete(@Nonnull UUID uuid) {
-        File file = new File(playerDataFolder, uuid.toString() + ".json");
+    // ------------------------------------------------------------------
+    // Journal records
+    // ------------------------------------------------------------------
+
+    @Nullable
+    private static JsonObject diff(@Nonnull PlayerTagData before, @Nonnull PlayerTagData after) {
+        Set<String> now;
+        String equipped;
+        synchronized (after) {
+            now = after.getOwned();
+            equipped = after.getEquipped();
+        }
+
+        JsonArray added = new JsonArray();
+        for (String id : now) {
+            if (!before.owns(id)) {
+                added.add(id);
+            }
+        }
+
+        JsonArray removed = new JsonArray();
+        for (String id : before.getOwned()) {
+            if (!now.contains(id)) {
+                removed.add(id);
+            }
+        }
+
+        boolean equipChanged = !Objects.equals(before.getEquipped(), equipped);
+        if (added.isEmpty() && removed.isEmpty() && !equipChanged) {
+            return null;
+        }
+
+        JsonObject record = new JsonObject();
+        if (!added.isEmpty()) {
+            record.add("a", added);
+        }
+        if (!removed.isEmpty()) {
+            record.add("r", removed);
+        }
+        if (equipChanged) {
+            record.addProperty("e", equipped);
+        }
+        return record;
+    }
+
+    /**
+     * Apply every readable record in {@code log} to {@code data}.
+     *
+     * @return number of records applied
+     */
+    private int replay(@Nonnull File log, @Nonnull PlayerTagData data) {
+        int applied = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(log), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                JsonObject record;
+                try {
+                    record = JsonParser.parseString(line).getAsJsonObject();
+                } catch (Exception e) {
+                    // Torn tail from a crash mid-append; everything before it is good.
+                    LOGGER.at(Level.FINE)
+                            .log("[MysticNameTags] Ignoring unreadable journal record in " + log.getName());
+                    continue;
+                }
+
+                if (record.has("a")) {
+                    for (JsonElement id : record.getAsJsonArray("a")) {
+                        data.addOwned(id.getAsString());
+                    }
+                }
+                if (record.has("r")) {
+                    for (JsonElement id : record.getAsJsonArray("r")) {
+                        data.removeOwned(id.getAsString());
+                    }
+                }
+                if (record.has("e")) {
+                    JsonElement e = record.get("e");
+                    data.setEquipped(e == null || e instanceof JsonNull ? null : e.getAsString());
+                }
+                applied++;
+            }
+        } catch (IOException e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Failed to read tag journal " + log.getName());
+        }
+
+        return applied;
+    }
+
+    private static void deleteQuietly(@Nonnull File file) {
         if (file.exists() && !file.delete()) {
-            // non-fatal
             LOGGER.at(Level.FINE)
-                    .log("[MysticNameTags] Could not delete playerdata file for " + uuid);
+                    .log("[MysticNameTags] Could not delete " + file.getName());
+        }
+    }
+
+    private static final class JournalState {
+        private PlayerTagData persisted;
+        private int records;
+
+        private JournalState(@Nonnull PlayerTagData persisted) {
+            this.persisted = persisted;
         }
     }
 }
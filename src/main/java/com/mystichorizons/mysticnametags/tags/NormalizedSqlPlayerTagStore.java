@@ -0,0 +1,446 @@
+package com.mystichorizons.mysticnametags.tags;
+
+import com.google.gson.Gson;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.mystichorizons.mysticnametags.storage.FolderMigration;
+import com.mystichorizons.mysticnametags.storage.SqlConnectionPool;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Relational storage for player tags: one row per owned tag.
+ *
+ * Tables:
+ *   mystic_player_tags(
+ *       uuid        VARCHAR(36),
+ *       tag_id      VARCHAR(128),
+ *       acquired_at BIGINT,          -- epoch millis
+ *       PRIMARY KEY (uuid, tag_id)
+ *   )
+ *   mystic_player_equipped(
+ *       uuid   VARCHAR(36) PRIMARY KEY,
+ *       tag_id VARCHAR(128)
+ *   )
+ *
+ * Both tables are indexed on tag_id so "who owns X" is an index scan.
+ *
+ * save() diffs the new state against the rows already stored and only
+ * inserts / deletes what changed, instead of rewriting a whole JSON blob.
+ * On first start, rows from the legacy mystic_tags_players blob table are
+ * migrated page by page and the old table is renamed out of the way.
+ */
+public final class NormalizedSqlPlayerTagStore implements PlayerTagStore {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private static final String LEGACY_TABLE = "mystic_tags_players";
+    private static final String LEGACY_TABLE_RENAMED = "mystic_tags_players_legacy";
+
+    // Players per page / transaction while migrating the blob table
+    private static final int MIGRATION_PAGE_SIZE = 500;
+
+    private final SqlConnectionPool pool;
+    private final Gson gson;
+
+    // Running playerdata/ -> SQL copy, if any (see migrateFromFolder)
+    private volatile FolderMigration<PlayerTagData> folderMigration;
+
+    public NormalizedSqlPlayerTagStore(@Nonnull SqlConnectionPool pool,
+                                       @Nonnull Gson gson) {
+        this.pool = pool;
+        this.gson = gson;
+
+        initSchema();
+        migrateFromBlobTable();
+    }
+
+    private Connection getConnection() throws SQLException {
+        return pool.getConnection();
+    }
+
+    private void initSchema() {
+        List<String> ddl = new ArrayList<>();
+
+        if (pool.isSqlite()) {
+            ddl.add("CREATE TABLE IF NOT EXISTS mystic_player_tags (" +
+                    "uuid TEXT NOT NULL," +
+                    "tag_id TEXT NOT NULL," +
+                    "acquired_at INTEGER NOT NULL," +
+                    "PRIMARY KEY (uuid, tag_id)" +
+                    ")");
+            ddl.add("CREATE TABLE IF NOT EXISTS mystic_player_equipped (" +
+                    "uuid TEXT PRIMARY KEY," +
+                    "tag_id TEXT NOT NULL" +
+                    ")");
+            ddl.add("CREATE INDEX IF NOT EXISTS idx_mystic_player_tags_tag ON mystic_player_tags(tag_id)");
+            ddl.add("CREATE INDEX IF NOT EXISTS idx_mystic_player_equipped_tag ON mystic_player_equipped(tag_id)");
+        } else {
+            ddl.add("CREATE TABLE IF NOT EXISTS mystic_player_tags (" +
+                    "uuid VARCHAR(36) NOT NULL," +
+                    "tag_id VARCHAR(128) NOT NULL," +
+                    "acquired_at BIGINT NOT NULL," +
+                    "PRIMARY KEY (uuid, tag_id)," +
+                    "INDEX idx_mystic_player_tags_tag (tag_id)" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            ddl.add("CREATE TABLE IF NOT EXISTS mystic_player_equipped (" +
+                    "uuid VARCHAR(36) NOT NULL PRIMARY KEY," +
+                    "tag_id VARCHAR(128) NOT NULL," +
+                    "INDEX idx_mystic_player_equipped_tag (tag_id)" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+        }
+
+        try {
+            pool.write(conn -> {
+                try (Statement st = conn.createStatement()) {
+                    for (String sql : ddl) {
+                        st.execute(sql);
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            LOGGER.at(Level.SEVERE).withCause(e)
+                    .log("[MysticNameTags] Failed to initialize normalized SQL schema for player tags");
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Load / save
+    // ------------------------------------------------------------------
+
+    @Nonnull
+    @Override
+    public PlayerTagData load(@Nonnull UUID uuid) {
+        FolderMigration<PlayerTagData> migration = folderMigration;
+        if (migration != null) {
+            migration.claim(uuid);
+        }
+
+        PlayerTagData data = new PlayerTagData();
+
+        try (Connection conn = getConnection()) {
+            for (String tagId : selectOwned(conn, uuid)) {
+                data.addOwned(tagId);
+            }
+            data.setEquipped(selectEquipped(conn, uuid));
+        } catch (SQLException e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Failed to load SQL tag rows for " + uuid);
+            return new PlayerTagData();
+        }
+
+        return data;
+    }
+
+    @Override
+    public void save(@Nonnull UUID uuid, @Nonnull PlayerTagData data) {
+        try {
+            pool.write(conn -> {
+                conn.setAutoCommit(false);
+                try {
+                    writeDiff(conn, uuid, data);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            });
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to save SQL tag rows for " + uuid, e);
+        }
+    }
+
+    /**
+     * Diffs every player in one transaction on one connection.
+     */
+    @Override
+    public void saveAll(@Nonnull Map<UUID, PlayerTagData> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            pool.write(conn -> {
+                conn.setAutoCommit(false);
+                try {
+                    for (Map.Entry<UUID, PlayerTagData> e : batch.entrySet()) {
+                        writeDiff(conn, e.getKey(), e.getValue());
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            });
+            return;
+        } catch (SQLException e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Batched tag save failed for " + batch.size()
+                            + " players; retrying individually.");
+        }
+
+        PlayerTagStore.super.saveAll(batch);
+    }
+
+    @Override
+    public void delete(@Nonnull UUID uuid) {
+        try {
+            pool.write(conn -> {
+                conn.setAutoCommit(false);
+                try (PreparedStatement owned = conn.prepareStatement(
+                             "DELETE FROM mystic_player_tags WHERE uuid = ?");
+                     PreparedStatement equipped = conn.prepareStatement(
+                             "DELETE FROM mystic_player_equipped WHERE uuid = ?")) {
+                    owned.setString(1, uuid.toString());
+                    owned.executeUpdate();
+                    equipped.setString(1, uuid.toString());
+                    equipped.executeUpdate();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            });
+        } catch (SQLException e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Failed to delete SQL tag rows for " + uuid);
+        }
+    }
+
+    @Override
+    public int countOwners(@Nonnull String tagId) {
+        String sql = "SELECT COUNT(*) FROM mystic_player_tags WHERE tag_id = ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, tagId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Failed to count owners of tag " + tagId);
+            return -1;
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Row helpers
+    // ------------------------------------------------------------------
+
+    @Nonnull
+    private Set<String> selectOwned(@Nonnull Connection conn, @Nonnull UUID uuid) throws SQLException {
+        Set<String> owned = new HashSet<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT tag_id FROM mystic_player_tags WHERE uuid = ?")) {
+            ps.setString(1, uuid.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    owned.add(rs.getString(1));
+                }
+            }
+        }
+        return owned;
+    }
+
+    private String selectEquipped(@Nonnull Connection conn, @Nonnull UUID uuid) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT tag_id FROM mystic_player_equipped WHERE uuid = ?")) {
+            ps.setString(1, uuid.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Bring the rows for one player in line with {@code data}, touching only
+     * the tags that were added or removed since the last save.
+     */
+    private void writeDiff(@Nonnull Connection conn,
+                           @Nonnull UUID uuid,
+                           @Nonnull PlayerTagData data) throws SQLException {
+        String key = uuid.toString();
+
+        Set<String> stored = selectOwned(conn, uuid);
+        Set<String> wanted = data.getOwned();
+
+        Set<String> added = new HashSet<>(wanted);
+        added.removeAll(stored);
+
+        Set<String> removed = new HashSet<>(stored);
+        removed.removeAll(wanted);
+
+        if (!added.isEmpty()) {
+            long now = System.currentTimeMillis();
+            try (PreparedStatement ps = conn.prepareStatement(insertOwnedSql())) {
+                for (String tagId : added) {
+                    ps.setString(1, key);
+                    ps.setString(2, tagId);
+                    ps.setLong(3, now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+
+        if (!removed.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "DELETE FROM mystic_player_tags WHERE uuid = ? AND tag_id = ?")) {
+                for (String tagId : removed) {
+                    ps.setString(1, key);
+                    ps.setString(2, tagId);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+
+        String equipped = data.getEquipped();
+        String storedEquipped = selectEquipped(conn, uuid);
+        if (equipped == null) {
+            if (storedEquipped != null) {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "DELETE FROM mystic_player_equipped WHERE uuid = ?")) {
+                    ps.setString(1, key);
+                    ps.executeUpdate();
+                }
+            }
+        } else if (!equipped.equals(storedEquipped)) {
+            try (PreparedStatement ps = conn.prepareStatement(upsertEquippedSql())) {
+                ps.setString(1, key);
+                ps.setString(2, equipped);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    @Nonnull
+    private String insertOwnedSql() {
+        if (pool.isSqlite()) {
+            return "INSERT OR IGNORE INTO mystic_player_tags(uuid, tag_id, acquired_at) VALUES (?, ?, ?)";
+        }
+        return "INSERT IGNORE INTO mystic_player_tags(uuid, tag_id, acquired_at) VALUES (?, ?, ?)";
+    }
+
+    @Nonnull
+    private String upsertEquippedSql() {
+        if (pool.isSqlite()) {
+            return "INSERT INTO mystic_player_equipped(uuid, tag_id) VALUES (?, ?) " +
+                    "ON CONFLICT(uuid) DO UPDATE SET tag_id = excluded.tag_id";
+        }
+        return "INSERT INTO mystic_player_equipped(uuid, tag_id) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE tag_id = VALUES(tag_id)";
+    }
+
+    @Override
+    public void migrateFromFolder(@Nonnull File playerDataFolder,
+                                  @Nonnull Gson gson) {
+        if (!playerDataFolder.exists() || !playerDataFolder.isDirectory()) {
+            return;
+        }
+
+        // Reads the sharded layout / journals and moves any flat files first.
+        FilePlayerTagStore source = new FilePlayerTagStore(playerDataFolder, gson);
+        folderMigration = FolderMigration.start("playerdata", playerDataFolder,
+                source.knownPlayers(), source::read, this::saveAll, MIGRATION_PAGE_SIZE);
+    }
+
+    // ------------------------------------------------------------------
+    // Migration from the JSON blob table
+    // ------------------------------------------------------------------
+
+    private boolean tableExists(@Nonnull Connection conn, @Nonnull String table) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getTables(conn.getCatalog(), null, table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Streams mystic_tags_players into the normalized tables using keyset
+     * pagination (ORDER BY uuid, one page per transaction), so memory stays
+     * flat regardless of how many players the blob table holds. The blob
+     * table is renamed afterwards so this only runs once.
+     */
+    private void migrateFromBlobTable() {
+        try {
+            pool.write(conn -> {
+                if (!tableExists(conn, LEGACY_TABLE)) {
+                    return;
+                }
+
+                LOGGER.at(Level.INFO)
+                        .log("[MysticNameTags] Migrating " + LEGACY_TABLE + " JSON rows into normalized tag tables...");
+
+                int migrated = 0;
+                String lastUuid = "";
+
+                while (true) {
+                    Map<UUID, PlayerTagData> page = new LinkedHashMap<>();
+
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "SELECT uuid, data_json FROM " + LEGACY_TABLE +
+                                    " WHERE uuid > ? ORDER BY uuid LIMIT " + MIGRATION_PAGE_SIZE)) {
+                        ps.setString(1, lastUuid);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                lastUuid = rs.getString(1);
+                                try {
+                                    PlayerTagData data = gson.fromJson(rs.getString(2), PlayerTagData.class);
+                                    page.put(UUID.fromString(lastUuid), data != null ? data : new PlayerTagData());
+                                } catch (Exception e) {
+                                    LOGGER.at(Level.WARNING).withCause(e)
+                                            .log("[MysticNameTags] Skipping unreadable tag row for " + lastUuid);
+                                }
+                            }
+                        }
+                    }
+
+                    if (page.isEmpty()) {
+                        break;
+                    }
+
+                    conn.setAutoCommit(false);
+                    try {
+                        for (Map.Entry<UUID, PlayerTagData> e : page.entrySet()) {
+                            writeDiff(conn, e.getKey(), e.getValue());
+                        }
+                        conn.commit();
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw e;
+                    } finally {
+                        conn.setAutoCommit(true);
+                    }
+
+                    migrated += page.size();
+                }
+
+                // Keep any earlier backup instead of overwriting it.
+                String backup = tableExists(conn, LEGACY_TABLE_RENAMED)
+                        ? LEGACY_TABLE_RENAMED + "_" + System.currentTimeMillis()
+                        : LEGACY_TABLE_RENAMED;
+                try (Statement st = conn.createStatement()) {
+                    st.execute("ALTER TABLE " + LEGACY_TABLE + " RENAME TO " + backup);
+                }
+
+                LOGGER.at(Level.INFO)
+                        .log("[MysticNameTags] Tag table migration complete. Migrated " + migrated + " players.");
+            });
+        } catch (SQLException e) {
+            LOGGER.at(Level.SEVERE).withCause(e)
+                    .log("[MysticNameTags] Failed to migrate " + LEGACY_TABLE + " into normalized tag tables; " +
+                            "it will be retried on next start.");
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.mystichorizons.mysticnametags.tags;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * In-memory PlayerTagData for TagManager.
+ *
+ * Online players are pinned and never evicted. Everyone else (players who
+ * just left, offline lookups from admin commands / placeholders) stays
+ * until they are idle for {@code ttlMs}, or until more than
+ * {@code maxOffline} unpinned entries exist, in which case the least
+ * recently used go first. Every evicted entry is handed to the flush
+ * callback before it is dropped, so a change racing with the eviction is
+ * still written.
+ */
+public final class PlayerTagCache {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    public record CacheStats(int size, int pinned, long hits, long misses, long evictions) {
+    }
+
+    private static final class Entry {
+        private final PlayerTagData data;
+        private volatile long lastAccess;
+
+        private Entry(@Nonnull PlayerTagData data) {
+            this.data = data;
+            this.lastAccess = System.currentTimeMillis();
+        }
+    }
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<UUID> pinned = ConcurrentHashMap.newKeySet();
+
+    private final Function<UUID, PlayerTagData> loader;
+    private final BiConsumer<UUID, PlayerTagData> flusher;
+    private final int maxOffline;
+    private final long ttlMs;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final ScheduledExecutorService sweeper;
+
+    public PlayerTagCache(@Nonnull Function<UUID, PlayerTagData> loader,
+                          @Nonnull BiConsumer<UUID, PlayerTagData> flusher,
+                          int maxOffline,
+                          long ttlMs) {
+        this.loader = loader;
+        this.flusher = flusher;
+        this.maxOffline = Math.max(0, maxOffline);
+        this.ttlMs = Math.max(1000L, ttlMs);
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "MysticNameTags-TagCache");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(5_000L, Math.min(60_000L, this.ttlMs / 2));
+        sweeper.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cached data for {@code uuid}, loading it on a miss.
+     */
+    @Nonnull
+    public PlayerTagData get(@Nonnull UUID uuid) {
+        Entry entry = entries.get(uuid);
+        if (entry != null) {
+            hits.increment();
+            entry.lastAccess = System.currentTimeMillis();
+            return entry.data;
+        }
+
+        misses.increment();
+        entry = entries.computeIfAbsent(uuid, u -> new Entry(loader.apply(u)));
+        entry.lastAccess = System.currentTimeMillis();
+
+        if (!pinned.contains(uuid) && entries.size() - pinned.size() > maxOffline) {
+            evictOverflow();
+        }
+        return entry.data;
+    }
+
+    /**
+     * Cached data without loading, or null.
+     */
+    @Nullable
+    public PlayerTagData peek(@Nonnull UUID uuid) {
+        Entry entry = entries.get(uuid);
+        return entry != null ? entry.data : null;
+    }
+
+    /**
+     * Insert already-loaded data (e.g. restored from a warm-restart
+     * snapshot) unless {@code uuid} is cached already.
+     *
+     * @return true if the data was inserted
+     */
+    public boolean seed(@Nonnull UUID uuid, @Nonnull PlayerTagData data) {
+        return entries.putIfAbsent(uuid, new Entry(data)) == null;
+    }
+
+    /**
+     * Pinned players plus cached players used within the last {@code windowMs}.
+     */
+    @Nonnull
+    public List<UUID> recentlyUsed(long windowMs) {
+        long cutoff = System.currentTimeMillis() - windowMs;
+        List<UUID> out = new ArrayList<>();
+        for (Map.Entry<UUID, Entry> e : entries.entrySet()) {
+            if (pinned.contains(e.getKey()) || e.getValue().lastAccess >= cutoff) {
+                out.add(e.getKey());
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Keep {@code uuid} loaded until {@link #unpin}. Call when a player joins.
+     */
+    public void pin(@Nonnull UUID uuid) {
+        pinned.add(uuid);
+    }
+
+    /**
+     * Player left: the entry becomes evictable once idle for the TTL.
+     */
+    public void unpin(@Nonnull UUID uuid) {
+        pinned.remove(uuid);
+        Entry entry = entries.get(uuid);
+        if (entry != null) {
+            entry.lastAccess = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Drop {@code uuid} without flushing (e.g. after its stored data was deleted).
+     */
+    public void invalidate(@Nonnull UUID uuid) {
+        entries.remove(uuid);
+    }
+
+    @Nonnull
+    public CacheStats getStats() {
+        return new CacheStats(entries.size(), pinned.size(),
+                hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    // --------------------------------------------------
+    // Eviction
+    // --------------------------------------------------
+
+    private void sweep() {
+        try {
+            long cutoff = System.currentTimeMillis() - ttlMs;
+            for (Map.Entry<UUID, Entry> e : entries.entrySet()) {
+                if (e.getValue().lastAccess < cutoff) {
+                    evict(e.getKey(), e.getValue());
+                }
+            }
+            evictOverflow();
+        } catch (Throwable t) {
+            LOGGER.at(Level.WARNING).withCause(t)
+                    .log("[MysticNameTags] Tag cache sweep failed");
+        }
+    }
+
+    private synchronized void evictOverflow() {
+        int overflow = entries.size() - pinned.size() - maxOffline;
+        if (overflow <= 0) {
+            return;
+        }
+
+        List<Map.Entry<UUID, Entry>> candidates = new ArrayList<>();
+        for (Map.Entry<UUID, Entry> e : entries.entrySet()) {
+            if (!pinned.contains(e.getKey())) {
+                candidates.add(e);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+
+        for (int i = 0; i < overflow && i < candidates.size(); i++) {
+            evict(candidates.get(i).getKey(), candidates.get(i).getValue());
+        }
+    }
+
+    private void evict(@Nonnull UUID uuid, @Nonnull Entry entry) {
+        if (pinned.contains(uuid) || !entries.remove(uuid, entry)) {
+            return;
+        }
+        evictions.increment();
+        try {
+            flusher.accept(uuid, entry.data);
+        } catch (Throwable t) {
+            LOGGER.at(Level.WARNING).withCause(t)
+                    .log("[MysticNameTags] Failed to flush evicted tag data for " + uuid);
+        }
+    }
+}
@@ -1,30 +1,117 @@
 package com.mystichorizons.mysticnametags.tags;
 
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+/**
+ * Per-player tag ownership.
+ *
+ * Owned ids are persisted as strings. For lookups, a {@link BitSet} over
+ * {@link TagRegistry} indexes is built on first use and kept in step by the
+ * mutators; it is rebuilt whenever a different registry generation asks
+ * (tags.json reload). Owned ids with no loaded tag only live in the
+ * string set.
+ *
+ * Mutators are synchronized so a background writer can take a consistent
+ * {@link #copy()} while the world thread keeps equipping / unlocking.
+ */
 public class PlayerTagData {
 
     private Set<String> owned = new HashSet<>();
     private String equipped;
 
-    public Set<String> getOwned() {
-        return owned;
+    // Derived from owned; never serialized
+    private transient BitSet ownedBits;
+    private transient TagRegistry bitsRegistry;
+
+    /**
+     * Unmodifiable snapshot of the owned ids, safe to iterate while the
+     * world thread keeps unlocking.
+     */
+    public synchronized Set<String> getOwned() {
+        return Collections.unmodifiableSet(new HashSet<>(owned));
     }
 
-    public String getEquipped() {
+    public synchronized String getEquipped() {
         return equipped;
     }
 
-    public void setEquipped(String equipped) {
+    public synchronized void setEquipped(String equipped) {
         this.equipped = equipped;
     }
 
-    public boolean owns(String id) {
+    public synchronized boolean owns(String id) {
         return owned.contains(id);
     }
 
-    public void addOwned(String id) {
+    /**
+     * Bit test against {@code registry}'s index space.
+     */
+    public synchronized boolean owns(TagRegistry registry, int index) {
+        return bitsFor(registry).get(index);
+    }
+
+    /**
+     * Copy of the owned bits for {@code registry}; iterate with nextSetBit.
+     */
+    public synchronized BitSet ownedIndexes(TagRegistry registry) {
+        return (BitSet) bitsFor(registry).clone();
+    }
+
+    public synchronized void addOwned(String id) {
         owned.add(id);
+        if (bitsRegistry != null) {
+            int index = bitsRegistry.indexOf(id);
+            if (index >= 0) {
+                ownedBits.set(index);
+            }
+        }
+    }
+
+    public synchronized boolean removeOwned(String id) {
+        boolean removed = owned.remove(id);
+        if (removed) {
+            // Another spelling of the same id may still be owned; rebuild lazily.
+            bitsRegistry = null;
+        }
+        return removed;
+    }
+
+    public synchronized void clearOwned() {
+        owned.clear();
+        if (ownedBits != null) {
+            ownedBits.clear();
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return owned.isEmpty() && equipped == null;
+    }
+
+    /**
+     * Detached snapshot for persistence; safe to serialize off-thread.
+     */
+    public synchronized PlayerTagData copy() {
+        PlayerTagData copy = new PlayerTagData();
+        copy.owned = new HashSet<>(owned);
+        copy.equipped = equipped;
+        return copy;
+    }
+
+    private BitSet bitsFor(TagRegistry registry) {
+        if (bitsRegistry == null || bitsRegistry.generation() != registry.generation()) {
+            BitSet bits = new BitSet(registry.size());
+            for (String id : owned) {
+                int index = registry.indexOf(id);
+                if (index >= 0) {
+                    bits.set(index);
+                }
+            }
+            ownedBits = bits;
+            bitsRegistry = registry;
+        }
+        return ownedBits;
     }
 }
@@ -5,7 +5,10 @@ import com.google.gson.Gson;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.File;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Pluggable storage backend for player tag data.
@@ -20,9 +23,57 @@ public interface PlayerTagStore {
 
     /**
      * Persist player tag data for this player.
+     *
+     * @throws IllegalStateException if the data could not be written, so
+     *         the write-behind queue can retry the player
      */
     void save(@Nonnull UUID uuid, @Nonnull PlayerTagData data);
 
+    /**
+     * Persist many players at once. SQL backends write the whole map in a
+     * single batched transaction; the default calls {@link #save} for each
+     * player, carrying on past failures.
+     *
+     * @throws IllegalStateException if any player could not be written
+     */
+    default void saveAll(@Nonnull Map<UUID, PlayerTagData> batch) {
+        IllegalStateException failure = null;
+        int failed = 0;
+
+        for (Map.Entry<UUID, PlayerTagData> e : batch.entrySet()) {
+            try {
+                save(e.getKey(), e.getValue());
+            } catch (IllegalStateException ex) {
+                failed++;
+                if (failure == null) {
+                    failure = ex;
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw new IllegalStateException("Failed to save tag data for " + failed + " of "
+                    + batch.size() + " players", failure);
+        }
+    }
+
+    /**
+     * Optional: number of players owning {@code tagId}, or -1 if this
+     * backend can't answer without scanning every player.
+     */
+    default int countOwners(@Nonnull String tagId) {
+        return -1;
+    }
+
+    /**
+     * {@link #countOwners} run on {@code executor} instead of the caller's
+     * thread (it may hit the disk or database).
+     */
+    @Nonnull
+    default CompletableFuture<Integer> countOwnersAsync(@Nonnull String tagId, @Nonnull Executor executor) {
+        return CompletableFuture.supplyAsync(() -> countOwners(tagId), executor);
+    }
+
     /**
      * Optional: remove all data for this player (e.g., admin reset).
      */
@@ -30,11 +81,20 @@ public interface PlayerTagStore {
         // no-op by default
     }
 
+    /**
+     * Optional: release resources / finish pending file work on shutdown.
+     * Called after the last save.
+     */
+    default void close() {
+        // no-op by default
+    }
+
     /**
      * Optional, one-time migration from a folder of *.json files into
      * this backend (used when switching FILE -> SQL).
      *
-     * Implementations should be idempotent and best-effort.
+     * Implementations should be idempotent and best-effort, and may
+     * finish in the background (see FolderMigration).
      */
     default void migrateFromFolder(@Nonnull File playerDataFolder,
                                    @Nonnull Gson gson) {
@@ -2,11 +2,14 @@ package com.mystichorizons.mysticnametags.tags;
 
 import com.google.gson.Gson;
 import com.hypixel.hytale.logger.HytaleLogger;
+import com.mystichorizons.mysticnametags.storage.FolderMigration;
+import com.mystichorizons.mysticnametags.storage.SqlConnectionPool;
 
 import javax.annotation.Nonnull;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.util.Map;
 import java.util.UUID;
 import java.util.logging.Level;
 
@@ -20,39 +23,39 @@ import java.util.logging.Level;
  *   )
  *
  * The data_json column is just the standard PlayerTagData JSON blob.
+ *
+ * Reads borrow connections from the shared {@link SqlConnectionPool};
+ * writes go through {@link SqlConnectionPool#write}.
  */
 public final class SqlPlayerTagStore implements PlayerTagStore {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
 
-    private final String jdbcUrl;
-    private final String user;
-    private final String password;
+    // Rows per executeBatch() call inside a saveAll transaction
+    private static final int BATCH_SIZE = 500;
+
+    private final SqlConnectionPool pool;
     private final Gson gson;
 
-    public SqlPlayerTagStore(@Nonnull String jdbcUrl,
-                             @Nonnull String user,
-                             @Nonnull String password,
+    // Running playerdata/ -> SQL copy, if any (see migrateFromFolder)
+    private volatile FolderMigration<PlayerTagData> folderMigration;
+
+    public SqlPlayerTagStore(@Nonnull SqlConnectionPool pool,
                              @Nonnull Gson gson) {
-        this.jdbcUrl = jdbcUrl;
-        this.user = user;
-        this.password = password;
+        this.pool = pool;
         this.gson = gson;
 
         initSchema();
     }
 
     private Connection getConnection() throws SQLException {
-        if (user.isEmpty() && password.isEmpty()) {
-            return DriverManager.getConnection(jdbcUrl);
-        }
-        return DriverManager.getConnection(jdbcUrl, user, password);
+        return pool.getConnection();
     }
 
     private void initSchema() {
-        boolean isSqlite = jdbcUrl.startsWith("jdbc:sqlite:");
+        boolean isSqlite = pool.isSqlite();
 
-        String sql;
+        final String sql;
         if (isSqlite) {
             // SQLite: type names are mostly affinity-based, TEXT is totally fine
             sql = "CREATE TABLE IF NOT EXISTS mystic_tags_players (" +
@@ -67,9 +70,12 @@ public final class SqlPlayerTagStore implements PlayerTagStore {
                     ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
         }
 
-        try (Connection conn = getConnection();
-             Statement st = conn.createStatement()) {
-            st.execute(sql);
+        try {
+            pool.write(conn -> {
+                try (Statement st = conn.createStatement()) {
+                    st.execute(sql);
+                }
+            });
         } catch (SQLException e) {
             LOGGER.at(Level.SEVERE).withCause(e)
                     .log("[MysticNameTags] Failed to initialize SQL schema for player tags");
@@ -79,6 +85,11 @@ public final class SqlPlayerTagStore implements PlayerTagStore {
     @Nonnull
     @Override
     public PlayerTagData load(@Nonnull UUID uuid) {
+        FolderMigration<PlayerTagData> migration = folderMigration;
+        if (migration != null) {
+            migration.claim(uuid);
+        }
+
         String sql = "SELECT data_json FROM mystic_tags_players WHERE uuid = ?";
 
         try (Connection conn = getConnection();
@@ -100,40 +111,87 @@ public final class SqlPlayerTagStore implements PlayerTagStore {
         }
     }
 
-    @Override
-    public void save(@Nonnull UUID uuid, @Nonnull PlayerTagData data) {
-        String sql = "INSERT INTO mystic_tags_players(uuid, data_json) " +
+    @Nonnull
+    private String upsertSql() {
+        // SQLite and MySQL spell upsert differently, so we branch by driver.
+        if (pool.isSqlite()) {
+            return "INSERT INTO mystic_tags_players(uuid, data_json) VALUES (?, ?) " +
+                    "ON CONFLICT(uuid) DO UPDATE SET data_json = excluded.data_json";
+        }
+        return "INSERT INTO mystic_tags_players(uuid, data_json) " +
                 "VALUES (?, ?) " +
                 "ON DUPLICATE KEY UPDATE data_json = VALUES(data_json)";
+    }
 
-        // For SQLite, we need a different upsert syntax, so we branch by driver.
-        boolean isSqlite = jdbcUrl.startsWith("jdbc:sqlite:");
+    @Override
+    public void save(@Nonnull UUID uuid, @Nonnull PlayerTagData data) {
+        String json = gson.toJson(data);
 
-        if (isSqlite) {
-            sql = "INSERT INTO mystic_tags_players(uuid, data_json) VALUES (?, ?) " +
-                    "ON CONFLICT(uuid) DO UPDATE SET data_json = excluded.data_json";
+        try {
+            pool.write(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(upsertSql())) {
+                    ps.setString(1, uuid.toString());
+                    ps.setString(2, json);
+                    ps.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to save SQL tag data for " + uuid, e);
         }
+    }
 
-        String json = gson.toJson(data);
+    /**
+     * All rows go through one prepared statement as a JDBC batch inside a
+     * single transaction. If the batch fails it is rolled back and the
+     * players are retried one by one so a single bad row can't drop the rest.
+     */
+    @Override
+    public void saveAll(@Nonnull Map<UUID, PlayerTagData> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
 
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, uuid.toString());
-            ps.setString(2, json);
-            ps.executeUpdate();
+        try {
+            pool.write(conn -> {
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps = conn.prepareStatement(upsertSql())) {
+                    int queued = 0;
+                    for (Map.Entry<UUID, PlayerTagData> e : batch.entrySet()) {
+                        ps.setString(1, e.getKey().toString());
+                        ps.setString(2, gson.toJson(e.getValue()));
+                        ps.addBatch();
+
+                        if (++queued % BATCH_SIZE == 0) {
+                            ps.executeBatch();
+                        }
+                    }
+                    ps.executeBatch();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            });
+            return;
         } catch (SQLException e) {
             LOGGER.at(Level.WARNING).withCause(e)
-                    .log("[MysticNameTags] Failed to save SQL tag data for " + uuid);
+                    .log("[MysticNameTags] Batched tag save failed for " + batch.size()
+                            + " players; retrying individually.");
         }
+
+        PlayerTagStore.super.saveAll(batch);
     }
 
     @Override
     public void delete(@Nonnull UUID uuid) {
         String sql = "DELETE FROM mystic_tags_players WHERE uuid = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, uuid.toString());
-            ps.executeUpdate();
+        try {
+            pool.write(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, uuid.toString());
+                    ps.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
             LOGGER.at(Level.WARNING).withCause(e)
                     .log("[MysticNameTags] Failed to delete SQL tag data for " + uuid);
@@ -147,45 +205,9 @@ public final class SqlPlayerTagStore implements PlayerTagStore {
             return;
         }
 
-        File[] files = playerDataFolder.listFiles((dir, name) -> name.endsWith(".json"));
-        if (files == null || files.length == 0) {
-            return;
-        }
-
-        LOGGER.at(Level.INFO)
-                .log("[MysticNameTags] Migrating " + files.length + " playerdata JSON files into SQL backend...");
-
-        int migrated = 0;
-        for (File file : files) {
-            try {
-                String filename = file.getName();
-                String uuidPart = filename.substring(0, filename.length() - ".json".length());
-                UUID uuid = UUID.fromString(uuidPart);
-
-                try (java.io.InputStreamReader reader =
-                             new java.io.InputStreamReader(
-                                     new java.io.FileInputStream(file),
-                                     java.nio.charset.StandardCharsets.UTF_8)) {
-
-                    PlayerTagData data = gson.fromJson(reader, PlayerTagData.class);
-                    if (data == null) data = new PlayerTagData();
-                    save(uuid, data);
-                    migrated++;
-                }
-            } catch (Exception e) {
-                LOGGER.at(Level.WARNING).withCause(e)
-                        .log("[MysticNameTags] Failed to migrate " + file.getName() + " to SQL backend.");
-            }
-        }
-
-        LOGGER.at(Level.INFO)
-                .log("[MysticNameTags] Migration complete. Migrated " + migrated + " players.");
-
-        // Optional: rename original folder so we don't re-migrate next boot
-        File renamed = new File(playerDataFolder.getParentFile(), "playerdata_legacy");
-        if (!playerDataFolder.renameTo(renamed)) {
-            LOGGER.at(Level.WARNING)
-                    .log("[MysticNameTags] Could not rename playerdata folder after migration; it may attempt again on next boot.");
-        }
+        // Reads the sharded layout / journals and moves any flat files first.
+        FilePlayerTagStore source = new FilePlayerTagStore(playerDataFolder, gson);
+        folderMigration = FolderMigration.start("playerdata", playerDataFolder,
+                source.knownPlayers(), source::read, this::saveAll, BATCH_SIZE);
     }
 }
@@ -0,0 +1,124 @@
+package com.mystichorizons.mysticnametags.tags;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Every exact stat requirement in the registry, grouped by stat:
+ * lowercase category -> lowercase stat -> thresholds sorted ascending, each
+ * with the tag that needs it.
+ *
+ * Lets a stat increment find out with one binary search whether it just
+ * reached a requirement. Wildcard and external (endlessleveling) keys are
+ * not indexed; those tags are only re-evaluated when the UI asks.
+ */
+final class StatThresholdIndex {
+
+    static final StatThresholdIndex EMPTY = new StatThresholdIndex(Map.of());
+
+    private record Thresholds(long[] mins, int[] tags) {
+    }
+
+    private final Map<String, Map<String, Thresholds>> byCategory;
+
+    private StatThresholdIndex(@Nonnull Map<String, Map<String, Thresholds>> byCategory) {
+        this.byCategory = byCategory;
+    }
+
+    @Nonnull
+    static StatThresholdIndex build(@Nonnull CompiledRequirements[] requirements) {
+        Map<String, Map<String, List<long[]>>> pending = new HashMap<>();
+
+        for (int i = 0; i < requirements.length; i++) {
+            for (CompiledRequirements.StatCheck check : requirements[i].stats()) {
+                if (check.category() == null) {
+                    continue;
+                }
+                pending.computeIfAbsent(check.category().toLowerCase(Locale.ROOT), k -> new HashMap<>())
+                        .computeIfAbsent(check.stat().toLowerCase(Locale.ROOT), k -> new ArrayList<>())
+                        .add(new long[]{check.min(), i});
+            }
+        }
+        if (pending.isEmpty()) {
+            return EMPTY;
+        }
+
+        Map<String, Map<String, Thresholds>> byCategory = new HashMap<>(pending.size() * 2);
+        for (Map.Entry<String, Map<String, List<long[]>>> cat : pending.entrySet()) {
+            Map<String, Thresholds> byStat = new HashMap<>(cat.getValue().size() * 2);
+            for (Map.Entry<String, List<long[]>> stat : cat.getValue().entrySet()) {
+                List<long[]> entries = stat.getValue();
+                entries.sort((a, b) -> Long.compare(a[0], b[0]));
+
+                long[] mins = new long[entries.size()];
+                int[] tags = new int[entries.size()];
+                for (int j = 0; j < mins.length; j++) {
+                    mins[j] = entries.get(j)[0];
+                    tags[j] = (int) entries.get(j)[1];
+                }
+                byStat.put(stat.getKey(), new Thresholds(mins, tags));
+            }
+            byCategory.put(cat.getKey(), byStat);
+        }
+        return new StatThresholdIndex(byCategory);
+    }
+
+    boolean isEmpty() {
+        return byCategory.isEmpty();
+    }
+
+    /**
+     * Smallest threshold for category.stat above {@code value}, or
+     * Long.MAX_VALUE if there is none.
+     */
+    long nextAbove(@Nonnull String category, @Nonnull String stat, long value) {
+        Thresholds t = lookup(category, stat);
+        if (t == null) {
+            return Long.MAX_VALUE;
+        }
+        int i = firstAbove(t.mins, value);
+        return i < t.mins.length ? t.mins[i] : Long.MAX_VALUE;
+    }
+
+    /**
+     * Indexes of the tags whose threshold for category.stat lies in
+     * ({@code before}, {@code after}].
+     */
+    @Nonnull
+    int[] reached(@Nonnull String category, @Nonnull String stat, long before, long after) {
+        Thresholds t = lookup(category, stat);
+        if (t == null || after <= before) {
+            return new int[0];
+        }
+        int from = firstAbove(t.mins, before);
+        int to = firstAbove(t.mins, after);
+        return from < to ? Arrays.copyOfRange(t.tags, from, to) : new int[0];
+    }
+
+    private Thresholds lookup(@Nonnull String category, @Nonnull String stat) {
+        Map<String, Thresholds> byStat = byCategory.get(category.toLowerCase(Locale.ROOT));
+        return byStat != null ? byStat.get(stat.toLowerCase(Locale.ROOT)) : null;
+    }
+
+    /**
+     * Index of the first element greater than {@code value}.
+     */
+    private static int firstAbove(long[] sorted, long value) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
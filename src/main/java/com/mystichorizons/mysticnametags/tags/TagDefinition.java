@@ -31,6 +31,9 @@ public class TagDefinition {
     @SerializedName(value = "placeholderRequirements", alternate = {"requiredPlaceholders"})
     List<PlaceholderRequirement> placeholderRequirements = List.of();
 
+    // Assigned by TagRegistry on load; not part of tags.json
+    private transient int index = -1;
+
     public static class PlaceholderRequirement {
         String placeholder;
         String operator;
@@ -62,6 +65,12 @@ public class TagDefinition {
     }
 
     public String getId() { return id; }
+
+    /**
+     * Dense index in the {@link TagRegistry} this definition was loaded into, or -1.
+     */
+    public int getIndex() { return index; }
+    void setIndex(int index) { this.index = index; }
     public String getDisplay() { return display; }
     public String getDescription() { return description; }
     public double getPrice() { return price; }
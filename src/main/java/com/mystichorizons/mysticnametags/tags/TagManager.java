@@ -2,33 +2,47 @@ package com.mystichorizons.mysticnametags.tags;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.protocol.packets.interface_.NotificationStyle;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import com.mystichorizons.mysticnametags.MysticNameTagsPlugin;
+import com.mystichorizons.mysticnametags.config.LanguageManager;
 import com.mystichorizons.mysticnametags.config.Settings;
 import com.mystichorizons.mysticnametags.integrations.IntegrationManager;
+import com.mystichorizons.mysticnametags.integrations.InternalPlaytimeProvider;
 import com.mystichorizons.mysticnametags.nameplate.GlyphNameplateManager;
 import com.mystichorizons.mysticnametags.nameplate.NameplateManager;
 import com.mystichorizons.mysticnametags.nameplate.NameplateTextResolver;
+import com.mystichorizons.mysticnametags.playtime.PlaytimeService;
+import com.mystichorizons.mysticnametags.stats.PlayerStatManager;
+import com.mystichorizons.mysticnametags.storage.AtomicFiles;
+import com.mystichorizons.mysticnametags.storage.SqlConnectionPool;
 import com.mystichorizons.mysticnametags.util.ColorFormatter;
 import com.mystichorizons.mysticnametags.util.ConsoleCommandRunner;
+import com.mystichorizons.mysticnametags.util.MysticNotificationUtil;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
-import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 public class TagManager {
@@ -47,12 +61,13 @@ public class TagManager {
 
     private static TagManager instance;
 
+    // Only for decisions whose inputs have no change events (placeholders etc.)
     private static final long CAN_USE_CACHE_TTL_MS = 5000L;
 
-    private volatile List<TagDefinition> tagList = Collections.emptyList();
-    private final Map<String, TagDefinition> tags = new LinkedHashMap<>();
-    private final PlayerTagStore playerTagStore;
-    private final Map<UUID, PlayerTagData> playerData = new HashMap<>();
+    // Immutable; replaced wholesale on load / reload
+    private volatile TagRegistry registry = TagRegistry.EMPTY;
+    private final WriteBehindPlayerTagStore playerTagStore;
+    private final PlayerTagCache playerData;
 
     // Cache of the last applied nameplate text (colored or plain)
     private final Map<UUID, String> lastNameplateText = new ConcurrentHashMap<>();
@@ -62,11 +77,19 @@ public class TagManager {
 
     private final IntegrationManager integrations;
 
-    // Cache of "canUseTag" decisions per player + tag id (lowercase).
-    // Avoids repeated permission checks on large tag sets.
-    private final Map<UUID, Map<String, CanUseCacheEntry>> canUseCache = new ConcurrentHashMap<>();
+    // tags.json rewrites and registry warm-up; single thread keeps rewrites in order
+    private final ExecutorService background = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "MysticNameTags-TagsBackground");
+        t.setDaemon(true);
+        return t;
+    });
 
-    private volatile List<String> categories = Collections.emptyList();
+    // Cache of "canUseTag" decisions per player + tag id (lowercase),
+    // invalidated when the inputs of a decision change.
+    private final EligibilityCache canUseCache = new EligibilityCache(CAN_USE_CACHE_TTL_MS);
+
+    private final List<TagUnlockListener> unlockListeners = new CopyOnWriteArrayList<>();
+    private final UnlockWatcher thresholdWatcher = new UnlockWatcher();
 
     // When true, the tags UI will still LIST tags that would normally be
     // hidden by Full Permission Gate, so staff can see/debug them.
@@ -78,14 +101,46 @@ public class TagManager {
     public static void init(@Nonnull IntegrationManager integrations) {
         instance = new TagManager(integrations);
         instance.loadConfig();
+        instance.warmUpRegistry();
     }
 
     public static TagManager get() {
         return instance;
     }
 
+    /**
+     * Drain queued tag saves. Called from plugin shutdown.
+     */
+    public static void shutdown() {
+        TagManager mgr = instance;
+        if (mgr == null) {
+            return;
+        }
+        mgr.playerData.shutdown();
+        mgr.playerTagStore.shutdown();
+
+        // Let a pending tags.json rewrite finish.
+        mgr.background.shutdown();
+        try {
+            if (!mgr.background.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOGGER.at(Level.WARNING).log("[MysticNameTags] Timed out waiting for tags.json background work");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public List<String> getCategories() {
-        return categories;
+        return registry.categories();
+    }
+
+    /**
+     * Current tag snapshot. Hold on to it when several reads must agree
+     * with each other across a concurrent reload.
+     */
+    @Nonnull
+    public TagRegistry getRegistry() {
+        return registry;
     }
 
     public boolean isShowHiddenTagsForDebug() {
@@ -114,110 +169,118 @@ public class TagManager {
         PlayerTagStore store;
 
         switch (backend) {
-            case SQLITE: {
-                File sqliteFile = new File(dataFolder, settings.getSqliteFile());
-                String jdbcUrl = "jdbc:sqlite:" + sqliteFile.getAbsolutePath();
-
-                store = new SqlPlayerTagStore(
-                        jdbcUrl,
-                        "",
-                        "",
-                        GSON
-                );
-
-                store.migrateFromFolder(playerDataFolder, GSON);
-                break;
-            }
-
+            case SQLITE:
             case MYSQL: {
-                String host = settings.getMysqlHost();
-                int port = settings.getMysqlPort();
-                String db = settings.getMysqlDatabase();
-                String user = settings.getMysqlUser();
-                String pass = settings.getMysqlPassword();
-
-                String jdbcUrl = "jdbc:mysql://" + host + ":" + port + "/" + db +
-                        "?useSSL=false&autoReconnect=true&characterEncoding=UTF-8";
-
-                store = new SqlPlayerTagStore(jdbcUrl, user, pass, GSON);
+                SqlConnectionPool pool = SqlConnectionPool.shared(backend, dataFolder);
+                store = settings.isSqlNormalizedSchema()
+                        ? new NormalizedSqlPlayerTagStore(pool, GSON)
+                        : new SqlPlayerTagStore(pool, GSON);
                 store.migrateFromFolder(playerDataFolder, GSON);
                 break;
             }
 
             case FILE:
             default: {
-                store = new FilePlayerTagStore(playerDataFolder, GSON);
+                store = new FilePlayerTagStore(playerDataFolder, GSON,
+                        settings.isFileJournalMode(), settings.getFileJournalCompactEvery());
                 break;
             }
         }
 
-        this.playerTagStore = store;
+        // Saves are queued and written by a background writer so equips /
+        // purchases never wait on disk or database I/O on the world thread.
+        this.playerTagStore = new WriteBehindPlayerTagStore(store, settings.getTagSaveDelayMs());
+
+        // Online players are pinned; offline lookups expire and are queued
+        // for save on the way out.
+        this.playerData = new PlayerTagCache(this::loadPlayerData, playerTagStore::save,
+                settings.getTagCacheMaxOffline(), settings.getTagCacheTtlSeconds() * 1000L);
     }
 
     // ------------- Config -------------
 
     private void loadConfig() {
         try {
+            long startNanos = System.nanoTime();
+
             if (!configFile.exists()) {
                 saveDefaultConfig();
             }
 
-            List<TagDefinition> list;
-            try (InputStreamReader reader =
-                         new InputStreamReader(
-                                 new FileInputStream(configFile),
-                                 StandardCharsets.UTF_8)) {
-
-                Type listType = new TypeToken<List<TagDefinition>>() {}.getType();
-                list = GSON.fromJson(reader, listType);
-            }
-
-            int rawCount = (list != null) ? list.size() : 0;
+            int rawCount = 0;
             int skippedNull = 0;
             int skippedNoId = 0;
             int overwrittenDupes = 0;
-
-            boolean upgradedCategories = upgradeCategoriesIfNeeded(list);
-            boolean upgradedStats = upgradeStatRequirementsIfNeeded(list);
-
-            tags.clear();
-
-            if (list != null) {
-                for (TagDefinition def : list) {
-                    if (def == null) {
-                        skippedNull++;
-                        continue;
+            boolean upgradedCategories = false;
+            boolean upgradedStats = false;
+
+            // Built privately, then published in one write below.
+            Map<String, TagDefinition> tags = new LinkedHashMap<>();
+            // Every parsed entry, kept only in case the file needs rewriting.
+            List<TagDefinition> parsed = new ArrayList<>();
+
+            // Stream the array one entry at a time: each definition is
+            // upgraded, validated and indexed as soon as it is read.
+            if (configFile.length() > 0) {
+                try (JsonReader reader = new JsonReader(new BufferedReader(
+                        new InputStreamReader(new FileInputStream(configFile), StandardCharsets.UTF_8)))) {
+                    reader.setLenient(true);
+
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                    } else {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            rawCount++;
+                            if (reader.peek() == JsonToken.NULL) {
+                                reader.nextNull();
+                                skippedNull++;
+                                continue;
+                            }
+
+                            TagDefinition def = GSON.fromJson(reader, TagDefinition.class);
+                            if (def == null) {
+                                skippedNull++;
+                                continue;
+                            }
+                            parsed.add(def);
+
+                            upgradedCategories |= upgradeCategoryIfNeeded(def);
+                            upgradedStats |= upgradeStatRequirementIfNeeded(def);
+
+                            String id = def.getId();
+                            if (id == null || id.trim().isEmpty()) {
+                                skippedNoId++;
+                                continue;
+                            }
+
+                            String key = id.toLowerCase(Locale.ROOT);
+                            if (tags.containsKey(key)) {
+                                overwrittenDupes++;
+                                LOGGER.at(Level.FINE)
+                                        .log("[MysticNameTags] Duplicate tag id '" + key + "' – overwriting previous definition.");
+                            }
+
+                            tags.put(key, def);
+                        }
+                        reader.endArray();
                     }
-                    String id = def.getId();
-                    if (id == null || id.trim().isEmpty()) {
-                        skippedNoId++;
-                        continue;
-                    }
-
-                    String key = id.toLowerCase(Locale.ROOT);
-                    if (tags.containsKey(key)) {
-                        overwrittenDupes++;
-                        LOGGER.at(Level.FINE)
-                                .log("[MysticNameTags] Duplicate tag id '" + key + "' – overwriting previous definition.");
-                    }
-
-                    tags.put(key, def);
                 }
             }
 
-            tagList = List.copyOf(tags.values());
+            long parsedNanos = System.nanoTime();
 
-            Set<String> catSet = new LinkedHashSet<>();
-            for (TagDefinition def : tags.values()) {
-                String cat = def.getCategory();
-                if (cat != null) {
-                    cat = cat.trim();
-                    if (!cat.isEmpty()) {
-                        catSet.add(cat);
-                    }
-                }
+            TagRegistry built = TagRegistry.build(tags);
+            registry = built;
+
+            // On reload; the first load is registered by the plugin once stats exist.
+            PlayerStatManager stats = PlayerStatManager.get();
+            if (stats != null) {
+                stats.registerAggregatePatterns(built.wildcardStatKeys());
             }
-            categories = List.copyOf(catSet);
+            List<String> categories = built.categories();
+
+            long builtNanos = System.nanoTime();
 
             LOGGER.at(Level.INFO).log("[MysticNameTags] Parsed " + rawCount + " entries from tags.json");
             if (skippedNull > 0) {
@@ -233,116 +296,96 @@ public class TagManager {
             LOGGER.at(Level.INFO).log("[MysticNameTags] Loaded " + tags.size() + " unique tags.");
             LOGGER.at(Level.INFO).log("[MysticNameTags] Detected " + categories.size() + " categories: " + categories);
 
-            if ((upgradedCategories || upgradedStats) && list != null) {
-                saveConfig(list);
+            if (upgradedCategories) {
+                LOGGER.at(Level.INFO)
+                        .log("[MysticNameTags] Auto-updated tags.json: missing categories set to '" + DEFAULT_CATEGORY + "'.");
+            }
+            if (upgradedStats) {
+                LOGGER.at(Level.INFO)
+                        .log("[MysticNameTags] Auto-updated tags.json: legacy stat requirements migrated to requiredStats.");
+            }
+            if (upgradedCategories || upgradedStats) {
+                // The upgraded definitions are already live; writing them
+                // back can happen off the load path.
+                background.execute(() -> saveConfig(parsed));
             }
 
+            LOGGER.at(Level.INFO).log("[MysticNameTags] tags.json ready in " + millisSince(startNanos)
+                    + "ms (parse + index " + (parsedNanos - startNanos) / 1_000_000L
+                    + "ms, registry " + (builtNanos - parsedNanos) / 1_000_000L + "ms)");
+
         } catch (Exception e) {
             LOGGER.at(Level.WARNING).withCause(e)
                     .log("[MysticNameTags] Failed to load tags.json");
         }
     }
 
-    private boolean upgradeCategoriesIfNeeded(@Nullable List<TagDefinition> list) {
-        if (list == null || list.isEmpty()) {
-            return false;
-        }
-
-        boolean changed = false;
-
-        for (TagDefinition def : list) {
-            if (def == null) {
-                continue;
+    /**
+     * Build the registry's derived data (reload fingerprints, requirement
+     * graph) in the background so the first reload / requirement check
+     * doesn't pay for it.
+     */
+    private void warmUpRegistry() {
+        TagRegistry reg = registry;
+        reg.warmUpAsync(background).whenComplete((ms, error) -> {
+            if (error != null) {
+                LOGGER.at(Level.WARNING).withCause(error)
+                        .log("[MysticNameTags] Failed to warm up tag indexes");
+            } else {
+                LOGGER.at(Level.INFO).log("[MysticNameTags] Tag indexes for " + reg.size()
+                        + " tags built in " + ms + "ms (background)");
             }
+        });
+    }
 
-            String cat = def.getCategory();
-            if (cat == null || cat.trim().isEmpty()) {
-                def.setCategory(DEFAULT_CATEGORY);
-                changed = true;
-            }
-        }
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
 
-        if (changed) {
-            LOGGER.at(Level.INFO)
-                    .log("[MysticNameTags] Auto-updated tags.json: missing categories set to '" + DEFAULT_CATEGORY + "'.");
+    private boolean upgradeCategoryIfNeeded(@Nonnull TagDefinition def) {
+        String cat = def.getCategory();
+        if (cat == null || cat.trim().isEmpty()) {
+            def.setCategory(DEFAULT_CATEGORY);
+            return true;
         }
-
-        return changed;
+        return false;
     }
 
-    private boolean upgradeStatRequirementsIfNeeded(@Nullable List<TagDefinition> list) {
-        if (list == null || list.isEmpty()) {
+    private boolean upgradeStatRequirementIfNeeded(@Nonnull TagDefinition def) {
+        List<TagDefinition.StatRequirement> current = def.getRequiredStats();
+        boolean hasNewFormat =
+                current != null &&
+                        !current.isEmpty() &&
+                        (def.getRequiredStatKey() == null || def.getRequiredStatKey().isBlank());
+
+        if (hasNewFormat) {
             return false;
         }
 
-        boolean changed = false;
-
-        for (TagDefinition def : list) {
-            if (def == null) {
-                continue;
-            }
-
-            List<TagDefinition.StatRequirement> current = def.getRequiredStats();
-            boolean hasNewFormat =
-                    current != null &&
-                            !current.isEmpty() &&
-                            (def.getRequiredStatKey() == null || def.getRequiredStatKey().isBlank());
-
-            if (hasNewFormat) {
-                continue;
-            }
-
-            String legacyKey = def.getRequiredStatKey();
-            Integer legacyMin = def.getRequiredStatValue();
-
-            if (legacyKey == null || legacyKey.isBlank() || legacyMin == null || legacyMin <= 0) {
-                continue;
-            }
-
-            TagDefinition.StatRequirement migrated = new TagDefinition.StatRequirement();
-            migrated.key = legacyKey.trim();
-            migrated.min = legacyMin;
-
-            def.setRequiredStats(List.of(migrated));
-            def.clearLegacyStatRequirement();
-
-            changed = true;
-
-            LOGGER.at(Level.INFO).log(
-                    "[MysticNameTags] Auto-upgraded tag '" + def.getId() +
-                            "' from legacy requiredStatKey/requiredStatValue to requiredStats."
-            );
-        }
+        String legacyKey = def.getRequiredStatKey();
+        Integer legacyMin = def.getRequiredStatValue();
 
-        if (changed) {
-            LOGGER.at(Level.INFO)
-                    .log("[MysticNameTags] Auto-updated tags.json: legacy stat requirements migrated to requiredStats.");
+        if (legacyKey == null || legacyKey.isBlank() || legacyMin == null || legacyMin <= 0) {
+            return false;
         }
 
-        return changed;
-    }
+        TagDefinition.StatRequirement migrated = new TagDefinition.StatRequirement();
+        migrated.key = legacyKey.trim();
+        migrated.min = legacyMin;
 
-    private static final class CanUseCacheEntry {
-        private final boolean value;
-        private final long timestamp;
+        def.setRequiredStats(List.of(migrated));
+        def.clearLegacyStatRequirement();
 
-        private CanUseCacheEntry(boolean value, long timestamp) {
-            this.value = value;
-            this.timestamp = timestamp;
-        }
-
-        private boolean isExpired(long now) {
-            return now - timestamp >= CAN_USE_CACHE_TTL_MS;
-        }
+        LOGGER.at(Level.INFO).log(
+                "[MysticNameTags] Auto-upgraded tag '" + def.getId() +
+                        "' from legacy requiredStatKey/requiredStatValue to requiredStats."
+        );
+        return true;
     }
 
     private void saveConfig(@Nonnull List<TagDefinition> list) {
-        try (OutputStreamWriter writer =
-                     new OutputStreamWriter(
-                             new FileOutputStream(configFile),
-                             StandardCharsets.UTF_8)) {
-
-            GSON.toJson(list, writer);
+        try {
+            AtomicFiles.write(configFile, writer -> GSON.toJson(list, writer));
         } catch (Exception e) {
             LOGGER.at(Level.WARNING).withCause(e)
                     .log("[MysticNameTags] Failed to write upgraded tags.json");
@@ -394,62 +437,349 @@ public class TagManager {
 
         LOGGER.at(Level.INFO).log("[MysticNameTags] Reloading tags.json...");
 
+        TagRegistry before = instance.registry;
         instance.loadConfig();
-        instance.clearCanUseCache();
-        instance.refreshAllOnlineNameplates();
+        TagRegistry after = instance.registry;
+
+        if (after == before) {
+            LOGGER.at(Level.WARNING).log("[MysticNameTags] tags.json reload failed; keeping the previous tags.");
+            return;
+        }
 
-        LOGGER.at(Level.INFO).log("[MysticNameTags] tags.json reload complete.");
+        // Only tags whose definition changed need new decisions / nameplates.
+        TagRegistry.Diff diff = after.diffFrom(before);
+        Set<String> changed = diff.changed();
+        int refreshed = 0;
+        if (!changed.isEmpty()) {
+            instance.invalidateCanUse(changed);
+            refreshed = instance.refreshAffectedNameplates(changed, after);
+        }
+
+        LOGGER.at(Level.INFO).log("[MysticNameTags] tags.json reload complete: "
+                + diff.added().size() + " added, " + diff.removed().size() + " removed, "
+                + diff.modified().size() + " modified; refreshed " + refreshed + " nameplates.");
+        if (!diff.isEmpty()) {
+            LOGGER.at(Level.INFO).log("[MysticNameTags] Added: " + sample(diff.added())
+                    + " | Removed: " + sample(diff.removed())
+                    + " | Modified: " + sample(diff.modified()));
+        }
+    }
+
+    @Nonnull
+    private static String sample(@Nonnull Set<String> ids) {
+        if (ids.size() <= 10) {
+            return ids.toString();
+        }
+        List<String> first = new ArrayList<>(ids).subList(0, 10);
+        return first + " (+" + (ids.size() - 10) + " more)";
     }
 
     // ------------- Player data -------------
 
     @Nonnull
     private PlayerTagData getOrLoad(@Nonnull UUID uuid) {
-        return playerData.computeIfAbsent(uuid, this::loadPlayerData);
+        return playerData.get(uuid);
     }
 
     private PlayerTagData loadPlayerData(UUID uuid) {
         return playerTagStore.load(uuid);
     }
 
-    private void savePlayerData(UUID uuid) {
-        PlayerTagData data = playerData.get(uuid);
-        if (data == null) return;
+    /**
+     * Saves the instance the caller changed, not whatever the cache holds
+     * now: the entry may have been evicted (or reloaded) in between.
+     */
+    private void savePlayerData(@Nonnull UUID uuid, @Nonnull PlayerTagData data) {
         playerTagStore.save(uuid, data);
     }
 
     // ------------- Public API -------------
 
-    private void clearCanUseCache() {
+    public void clearCanUseCache(UUID uuid) {
+        if (uuid == null) return;
+        canUseCache.invalidatePlayer(uuid);
+    }
+
+    /**
+     * Drop every cached canUse decision, e.g. after settings that affect all
+     * of them (permission gates) were reloaded.
+     */
+    public void clearAllCanUseCaches() {
         canUseCache.clear();
     }
 
-    public void clearCanUseCache(UUID uuid) {
-        if (uuid == null) return;
-        canUseCache.remove(uuid);
+    /**
+     * A stat of {@code uuid} changed; drops decisions that read it. Null
+     * category means all of the player's stats changed (reset).
+     */
+    public void onStatChanged(@Nonnull UUID uuid, @Nullable String category, @Nullable String stat) {
+        canUseCache.invalidateStat(uuid, category, stat);
+    }
+
+    /**
+     * Drop cached canUse decisions for these (lowercase) tag ids only.
+     */
+    private void invalidateCanUse(@Nonnull Set<String> tagIds) {
+        canUseCache.invalidateTags(tagIds);
+    }
+
+    /**
+     * {@code uuid} gained or lost {@code keyId}: only that tag and the tags
+     * requiring it can decide differently now.
+     */
+    private void invalidateOwnershipChange(@Nonnull UUID uuid, @Nonnull String keyId) {
+        TagRegistry reg = registry;
+        int index = reg.indexOf(keyId);
+        if (index < 0) {
+            canUseCache.invalidateTags(uuid, List.of(keyId));
+            return;
+        }
+
+        int[] dependents = reg.dependentIndexes(index);
+        List<String> keys = new ArrayList<>(dependents.length + 1);
+        keys.add(keyId);
+        for (int dependent : dependents) {
+            keys.add(reg.idAt(dependent));
+        }
+        canUseCache.invalidateTags(uuid, keys);
+    }
+
+    // --------------------------------------------------
+    // Stat-gated unlocks
+    // --------------------------------------------------
+
+    /**
+     * Told when a stat increase makes a player eligible for a tag they
+     * don't own yet, on a background thread.
+     */
+    @FunctionalInterface
+    public interface TagUnlockListener {
+        void onTagUnlockable(@Nonnull UUID uuid, @Nonnull TagDefinition def);
+    }
+
+    public void addUnlockListener(@Nonnull TagUnlockListener listener) {
+        unlockListeners.add(listener);
+    }
+
+    /**
+     * Watches the stat requirements of the current registry; register with
+     * {@link PlayerStatManager#setThresholdWatcher}.
+     */
+    @Nonnull
+    public PlayerStatManager.ThresholdWatcher getThresholdWatcher() {
+        return thresholdWatcher;
+    }
+
+    private final class UnlockWatcher implements PlayerStatManager.ThresholdWatcher {
+
+        @Override
+        public long nextThreshold(@Nonnull String category, @Nonnull String stat, long value) {
+            return registry.statThresholds().nextAbove(category, stat, value);
+        }
+
+        @Override
+        public void onThresholdReached(@Nonnull UUID uuid,
+                                       @Nonnull String category,
+                                       @Nonnull String stat,
+                                       long before,
+                                       long after) {
+            TagRegistry reg = registry;
+            int[] reached = reg.statThresholds().reached(category, stat, before, after);
+            if (reached.length == 0) {
+                return;
+            }
+
+            List<String> keys = new ArrayList<>(reached.length);
+            for (int index : reached) {
+                keys.add(reg.idAt(index));
+            }
+            canUseCache.invalidateTags(uuid, keys);
+
+            PlayerRef ref = onlinePlayers.get(uuid);
+            if (ref == null || (unlockListeners.isEmpty() && !Settings.get().isNotifyOnTagUnlock())) {
+                return;
+            }
+            background.execute(() -> announceUnlocks(ref, uuid, reg, reached));
+        }
+    }
+
+    /**
+     * Full requirement check for the tags whose stat threshold was just
+     * reached; the stat alone may not be the last missing requirement.
+     */
+    private void announceUnlocks(@Nonnull PlayerRef ref,
+                                 @Nonnull UUID uuid,
+                                 @Nonnull TagRegistry reg,
+                                 @Nonnull int[] reached) {
+        Settings settings = Settings.get();
+        boolean gated = settings.isPermissionGateEnabled() || settings.isFullPermissionGateEnabled();
+
+        for (int index : reached) {
+            TagDefinition def = reg.defAt(index);
+            try {
+                if (owns(getOrLoad(uuid), def)) {
+                    continue;
+                }
+                String perm = def.getPermission();
+                if (gated && perm != null && !perm.isEmpty() && !integrations.hasPermission(ref, perm)) {
+                    continue;
+                }
+                if (!meetsRequirements(uuid, ref, def)) {
+                    continue;
+                }
+            } catch (Throwable t) {
+                LOGGER.at(Level.FINE).withCause(t)
+                        .log("[MysticNameTags] Unlock check failed for " + uuid + " / " + def.getId());
+                continue;
+            }
+
+            for (TagUnlockListener listener : unlockListeners) {
+                try {
+                    listener.onTagUnlockable(uuid, def);
+                } catch (Throwable t) {
+                    LOGGER.at(Level.WARNING).withCause(t)
+                            .log("[MysticNameTags] Tag unlock listener failed for " + def.getId());
+                }
+            }
+
+            if (settings.isNotifyOnTagUnlock()) {
+                LanguageManager lang = LanguageManager.get();
+                String title = ColorFormatter.colorize("&b" + lang.tr("plugin.title"));
+                String msg = ColorFormatter.colorize(lang.tr("tags.now_available",
+                        Map.of("tag", def.getDisplay() != null ? def.getDisplay() : def.getId())));
+                try {
+                    MysticNotificationUtil.send(ref.getPacketHandler(), title, msg, NotificationStyle.Success);
+                } catch (Throwable t) {
+                    LOGGER.at(Level.FINE).withCause(t)
+                            .log("[MysticNameTags] Could not send unlock notification to " + uuid);
+                }
+            }
+        }
+    }
+
+    /**
+     * Which inputs a canUse decision for {@code def} reads.
+     */
+    @Nonnull
+    private EligibilityCache.Dependencies dependenciesOf(@Nonnull TagDefinition def) {
+        boolean ttlBound = false;
+
+        String perm = def.getPermission();
+        boolean permission = perm != null && !perm.isEmpty();
+        if (permission && !integrations.hasPermissionChangeEvents()) {
+            ttlBound = true;
+        }
+
+        List<String> statKeys = new ArrayList<>();
+
+        Integer reqMinutes = def.getRequiredPlaytimeMinutes();
+        if (reqMinutes != null && reqMinutes > 0) {
+            if (integrations.getPlaytimeProvider() instanceof InternalPlaytimeProvider) {
+                statKeys.add(PlaytimeService.STAT_KEY);
+            } else {
+                ttlBound = true;
+            }
+        }
+
+        for (TagDefinition.StatRequirement req : def.getRequiredStats()) {
+            if (req == null || !req.isValid()) {
+                continue;
+            }
+            String key = req.getKey().trim().toLowerCase(Locale.ROOT);
+            if (key.startsWith("endlessleveling.")) {
+                ttlBound = true;
+                continue;
+            }
+            int dot = key.indexOf('.');
+            boolean split = dot > 0 && dot < key.length() - 1;
+            String category = split ? key.substring(0, dot) : "custom";
+            String stat = split ? key.substring(dot + 1) : key;
+            if (key.indexOf('*') < 0) {
+                statKeys.add(category + "." + stat);
+            } else if (split && category.indexOf('*') < 0) {
+                statKeys.add(category + ".*");
+            } else {
+                // "*zombie", "*.zombie", "kill*.x": matched against the whole key
+                statKeys.add(EligibilityCache.ANY_STAT);
+            }
+        }
+
+        List<TagDefinition.PlaceholderRequirement> phReqs = def.getPlaceholderRequirements();
+        if (phReqs != null && !phReqs.isEmpty()) {
+            ttlBound = true;
+        }
+
+        return new EligibilityCache.Dependencies(permission, statKeys.toArray(new String[0]), ttlBound);
     }
 
     public Collection<TagDefinition> getAllTags() {
-        return Collections.unmodifiableCollection(tags.values());
+        return registry.all();
     }
 
     public int getTagCount() {
-        return tagList.size();
+        return registry.size();
     }
 
     @Nullable
     public TagDefinition getTag(String id) {
-        if (id == null) return null;
-        return tags.get(id.toLowerCase(Locale.ROOT));
+        return registry.get(id);
+    }
+
+    @Nonnull
+    public PlayerTagCache.CacheStats getPlayerCacheStats() {
+        return playerData.getStats();
+    }
+
+    /**
+     * Number of players owning {@code id} across all stored data, or -1 when
+     * the storage backend can't answer it (only the normalized SQL schema can).
+     * Counted off the caller's thread.
+     */
+    @Nonnull
+    public CompletableFuture<Integer> countTagOwners(@Nonnull String id) {
+        return playerTagStore.countOwnersAsync(id.toLowerCase(Locale.ROOT), background);
     }
 
     public boolean ownsTag(@Nullable UUID uuid, @Nullable String id) {
         if (uuid == null || id == null) {
             return false;
         }
+        TagRegistry reg = registry;
+        int index = reg.indexOf(id);
+        if (index >= 0) {
+            return getOrLoad(uuid).owns(reg, index);
+        }
+        // Not a loaded tag (removed from tags.json); check the stored ids.
         return getOrLoad(uuid).owns(id.toLowerCase(Locale.ROOT));
     }
 
+    public boolean ownsTag(@Nullable UUID uuid, @Nullable TagDefinition def) {
+        if (uuid == null || def == null) {
+            return false;
+        }
+        return owns(getOrLoad(uuid), def);
+    }
+
+    private boolean owns(@Nonnull PlayerTagData data, @Nonnull TagDefinition def) {
+        TagRegistry reg = registry;
+        int index = reg.indexOf(def);
+        if (index >= 0) {
+            return data.owns(reg, index);
+        }
+        String id = def.getId();
+        return id != null && data.owns(id.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Lowercase id of {@code def}, without allocating for loaded tags.
+     */
+    @Nonnull
+    private String keyOf(@Nonnull TagDefinition def) {
+        TagRegistry reg = registry;
+        int index = reg.indexOf(def);
+        return index >= 0 ? reg.idAt(index) : def.getId().toLowerCase(Locale.ROOT);
+    }
+
     @Nullable
     public TagDefinition getEquipped(UUID uuid) {
         PlayerTagData data = getOrLoad(uuid);
@@ -462,8 +792,7 @@ public class TagManager {
 
         PlayerTagData data = getOrLoad(uuid);
         data.setEquipped(id.toLowerCase(Locale.ROOT));
-        savePlayerData(uuid);
-        clearCanUseCache(uuid);
+        savePlayerData(uuid, data);
         forceRefreshIfOnline(uuid);
         return true;
     }
@@ -477,21 +806,19 @@ public class TagManager {
             return false;
         }
 
-        String keyId = rawId.toLowerCase(Locale.ROOT);
+        String keyId = keyOf(def);
 
         if (uuid != null) {
             long now = System.currentTimeMillis();
 
-            Map<String, CanUseCacheEntry> perPlayer =
-                    canUseCache.computeIfAbsent(uuid, u -> new ConcurrentHashMap<>());
-
-            CanUseCacheEntry cached = perPlayer.get(keyId);
-            if (cached != null && !cached.isExpired(now)) {
-                return cached.value;
+            Boolean cached = canUseCache.get(uuid, keyId, now);
+            if (cached != null) {
+                return cached;
             }
 
+            long epoch = canUseCache.epoch(uuid);
             boolean result = internalCanUseTagUnchecked(playerRef, uuid, def, keyId);
-            perPlayer.put(keyId, new CanUseCacheEntry(result, now));
+            canUseCache.put(uuid, keyId, result, dependenciesOf(def), epoch, now);
             return result;
         }
 
@@ -531,7 +858,7 @@ public class TagManager {
         }
 
         PlayerTagData data = getOrLoad(uuid);
-        boolean owns = data.owns(normalizedId);
+        boolean owns = owns(data, def);
 
         if (permissionGate && perm != null && !perm.isEmpty() && !hasPerm) {
             return false;
@@ -559,94 +886,30 @@ public class TagManager {
     private boolean meetsRequirements(@Nonnull UUID uuid,
                                       @Nonnull PlayerRef playerRef,
                                       @Nonnull TagDefinition def) {
-
-        List<String> requiredTags = def.getRequiredOwnedTags();
-        if (!requiredTags.isEmpty()) {
-            PlayerTagData data = getOrLoad(uuid);
-            for (String req : requiredTags) {
-                if (req == null || req.isBlank()) continue;
-                if (!data.owns(req.toLowerCase(Locale.ROOT))) {
-                    return false;
-                }
-            }
-        }
-
-        Integer reqMinutes = def.getRequiredPlaytimeMinutes();
-        if (reqMinutes != null && reqMinutes > 0) {
-            Integer playtime = integrations.getPlaytimeMinutes(uuid);
-            if (playtime == null || playtime < reqMinutes) {
-                return false;
-            }
-        }
-
-        List<TagDefinition.StatRequirement> statReqs = def.getRequiredStats();
-        if (!statReqs.isEmpty()) {
-            for (TagDefinition.StatRequirement req : statReqs) {
-                if (req == null || !req.isValid()) {
-                    return false;
-                }
-
-                Integer current;
-                try {
-                    current = integrations.getStatValue(uuid, req.getKey());
-                } catch (Throwable t) {
-                    current = null;
-                }
-
-                Integer min = req.getMin();
-                if (current == null || min == null || current < min) {
-                    return false;
-                }
-            }
-        }
-
-        List<TagDefinition.PlaceholderRequirement> phReqs = def.getPlaceholderRequirements();
-        if (phReqs != null && !phReqs.isEmpty()) {
-            for (TagDefinition.PlaceholderRequirement req : phReqs) {
-                if (req == null) continue;
-
-                String placeholder = req.getPlaceholder();
-                String op = req.getOperator();
-                String expected = req.getValue();
-
-                if (placeholder == null || op == null || expected == null) {
-                    return false;
-                }
-
-                String actual = integrations.resolvePlaceholderRequirement(playerRef, placeholder, op, expected);
-                if (!evaluatePlaceholderCondition(actual, op, expected)) {
-                    return false;
-                }
-            }
+        TagRegistry reg = registry;
+        CompiledRequirements requirements = compiledFor(reg, def);
+        if (requirements == CompiledRequirements.NONE) {
+            return true;
         }
-
-        return true;
+        return requirements.isMet(uuid, playerRef, getOrLoad(uuid), reg, integrations);
     }
 
     private boolean meetsRequirementsForPreview(@Nonnull PlayerRef playerRef,
                                                 @Nonnull TagDefinition def) {
+        return compiledFor(registry, def).placeholdersMet(playerRef, integrations);
+    }
 
-        List<TagDefinition.PlaceholderRequirement> phReqs = def.getPlaceholderRequirements();
-        if (phReqs != null && !phReqs.isEmpty()) {
-            for (TagDefinition.PlaceholderRequirement req : phReqs) {
-                if (req == null) continue;
-
-                String placeholder = req.getPlaceholder();
-                String op = req.getOperator();
-                String expected = req.getValue();
-
-                if (placeholder == null || op == null || expected == null) {
-                    return false;
-                }
-
-                String actual = integrations.resolvePlaceholderRequirement(playerRef, placeholder, op, expected);
-                if (!evaluatePlaceholderCondition(actual, op, expected)) {
-                    return false;
-                }
-            }
+    /**
+     * Requirements compiled with the registry, or compiled on the spot for
+     * a definition that isn't part of it.
+     */
+    @Nonnull
+    private static CompiledRequirements compiledFor(@Nonnull TagRegistry reg, @Nonnull TagDefinition def) {
+        int index = reg.indexOf(def);
+        if (index >= 0) {
+            return reg.requirementsAt(index);
         }
-
-        return true;
+        return CompiledRequirements.compile(def, reg::indexOf);
     }
 
     private TagPurchaseResult checkRequirements(@Nonnull UUID uuid,
@@ -670,70 +933,6 @@ public class TagManager {
         return null;
     }
 
-    private boolean evaluatePlaceholderCondition(@Nullable String actual,
-                                                 @Nonnull String operator,
-                                                 @Nonnull String expected) {
-        if (actual == null) {
-            return false;
-        }
-
-        String op = operator.trim();
-        String exp = expected.trim();
-        String a = actual.trim();
-
-        if (op.equalsIgnoreCase("true")) {
-            return "true".equalsIgnoreCase(a);
-        }
-        if (op.equalsIgnoreCase("false")) {
-            return "false".equalsIgnoreCase(a);
-        }
-
-        boolean actualIsBool = "true".equalsIgnoreCase(a) || "false".equalsIgnoreCase(a);
-        boolean expectedIsBool = "true".equalsIgnoreCase(exp) || "false".equalsIgnoreCase(exp);
-
-        if (actualIsBool && expectedIsBool) {
-            boolean actualBool = Boolean.parseBoolean(a);
-            boolean expectedBool = Boolean.parseBoolean(exp);
-
-            switch (op) {
-                case "==": return actualBool == expectedBool;
-                case "!=": return actualBool != expectedBool;
-                default: break;
-            }
-        }
-
-        Double actualNum = tryParseDouble(a);
-        Double expNum = tryParseDouble(exp);
-
-        if (actualNum != null && expNum != null) {
-            switch (op) {
-                case "==": return Double.compare(actualNum, expNum) == 0;
-                case "!=": return Double.compare(actualNum, expNum) != 0;
-                case ">": return actualNum > expNum;
-                case ">=": return actualNum >= expNum;
-                case "<": return actualNum < expNum;
-                case "<=": return actualNum <= expNum;
-                default: break;
-            }
-        }
-
-        switch (op) {
-            case "==": return a.equalsIgnoreCase(exp);
-            case "!=": return !a.equalsIgnoreCase(exp);
-            case "contains": return a.toLowerCase(Locale.ROOT).contains(exp.toLowerCase(Locale.ROOT));
-            default: return false;
-        }
-    }
-
-    @Nullable
-    private static Double tryParseDouble(String s) {
-        try {
-            return Double.parseDouble(s.trim());
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-
     public TagPurchaseResult toggleTag(@Nonnull PlayerRef playerRef,
                                        @Nonnull UUID uuid,
                                        @Nonnull String id) {
@@ -753,8 +952,7 @@ public class TagManager {
         String equipped = data.getEquipped();
         if (equipped != null && equipped.equalsIgnoreCase(keyId)) {
             data.setEquipped(null);
-            savePlayerData(uuid);
-            clearCanUseCache(uuid);
+            savePlayerData(uuid, data);
             refreshIfOnline(uuid);
             return TagPurchaseResult.UNEQUIPPED;
         }
@@ -799,8 +997,7 @@ public class TagManager {
 
         if (data.owns(keyId)) {
             data.setEquipped(keyId);
-            savePlayerData(uuid);
-            clearCanUseCache(uuid);
+            savePlayerData(uuid, data);
             refreshIfOnline(uuid);
             return TagPurchaseResult.EQUIPPED_ALREADY_OWNED;
         }
@@ -812,7 +1009,7 @@ public class TagManager {
 
             data.addOwned(keyId);
             data.setEquipped(keyId);
-            savePlayerData(uuid);
+            savePlayerData(uuid, data);
 
             runOnFirstUnlockCommands(def, playerRef);
 
@@ -820,7 +1017,7 @@ public class TagManager {
                 maybeGrantPermission(uuid, perm);
             }
 
-            clearCanUseCache(uuid);
+            invalidateOwnershipChange(uuid, keyId);
             refreshIfOnline(uuid);
             return TagPurchaseResult.UNLOCKED_FREE;
         }
@@ -843,7 +1040,7 @@ public class TagManager {
 
         data.addOwned(keyId);
         data.setEquipped(keyId);
-        savePlayerData(uuid);
+        savePlayerData(uuid, data);
 
         runOnFirstUnlockCommands(def, playerRef);
 
@@ -851,7 +1048,7 @@ public class TagManager {
             maybeGrantPermission(uuid, perm);
         }
 
-        clearCanUseCache(uuid);
+        invalidateOwnershipChange(uuid, keyId);
         refreshIfOnline(uuid);
         return TagPurchaseResult.UNLOCKED_PAID;
     }
@@ -1024,6 +1221,52 @@ public class TagManager {
         UUID uuid = ref.getUuid();
         onlinePlayers.put(uuid, ref);
         onlineWorlds.put(uuid, world);
+        playerData.pin(uuid);
+    }
+
+    /**
+     * Players whose tag data is worth keeping across a restart: everyone
+     * online or active within the last {@code windowMs}.
+     */
+    @Nonnull
+    public List<UUID> getRecentlyActivePlayers(long windowMs) {
+        return playerData.recentlyUsed(windowMs);
+    }
+
+    /**
+     * Copy of {@code uuid}'s cached tag data, or null if it isn't loaded.
+     */
+    @Nullable
+    public PlayerTagData peekPlayerData(@Nonnull UUID uuid) {
+        PlayerTagData data = playerData.peek(uuid);
+        return data != null ? data.copy() : null;
+    }
+
+    /**
+     * Cache tag data restored from a warm-restart snapshot, unless
+     * {@code uuid} was already loaded.
+     */
+    public boolean seedPlayerData(@Nonnull UUID uuid, @Nonnull PlayerTagData data) {
+        return playerData.seed(uuid, data);
+    }
+
+    /**
+     * Load and pin {@code uuid}'s tag data ahead of PlayerReadyEvent.
+     * Safe to call from any thread.
+     */
+    public void preloadPlayer(@Nonnull UUID uuid) {
+        playerData.pin(uuid);
+        playerData.get(uuid);
+    }
+
+    /**
+     * Undo {@link #preloadPlayer} for a player who left before becoming
+     * ready (or whose prefetch finished after they left).
+     */
+    public void releasePreloadedPlayer(@Nonnull UUID uuid) {
+        if (!onlinePlayers.containsKey(uuid)) {
+            playerData.unpin(uuid);
+        }
     }
 
     @Nonnull
@@ -1034,6 +1277,7 @@ public class TagManager {
     public void untrackOnlinePlayer(@Nonnull UUID uuid) {
         onlinePlayers.remove(uuid);
         onlineWorlds.remove(uuid);
+        playerData.unpin(uuid);
         forgetNameplate(uuid);
         clearCanUseCache(uuid);
 
@@ -1108,14 +1352,24 @@ public class TagManager {
         return ColorFormatter.stripFormatting(def.getDisplay());
     }
 
-    private void refreshAllOnlineNameplates() {
+    /**
+     * Refresh online players whose shown tag is one of {@code changed}: their
+     * equipped tag, or the default tag when nothing usable is equipped.
+     *
+     * @return players refreshed
+     */
+    private int refreshAffectedNameplates(@Nonnull Set<String> changed, @Nonnull TagRegistry now) {
         if (onlinePlayers.isEmpty()) {
-            return;
+            return 0;
         }
 
-        LOGGER.at(Level.INFO)
-                .log("[MysticNameTags] Refreshing nameplates for " + onlinePlayers.size() + " online players...");
+        Settings s = Settings.get();
+        String defaultId = s.isDefaultTagEnabled() && s.getDefaultTagId() != null
+                ? s.getDefaultTagId().trim().toLowerCase(Locale.ROOT)
+                : null;
+        boolean defaultChanged = defaultId != null && changed.contains(defaultId);
 
+        int refreshed = 0;
         for (Map.Entry<UUID, PlayerRef> entry : onlinePlayers.entrySet()) {
             UUID uuid = entry.getKey();
             PlayerRef ref = entry.getValue();
@@ -1125,16 +1379,28 @@ public class TagManager {
                 continue;
             }
 
+            String equipped = getOrLoad(uuid).getEquipped();
+            String key = equipped != null ? equipped.toLowerCase(Locale.ROOT) : null;
+
+            boolean affected = (key != null && changed.contains(key))
+                    || (defaultChanged && (key == null || now.indexOf(key) < 0));
+            if (!affected) {
+                continue;
+            }
+
             try {
                 refreshNameplate(ref, world);
+                refreshed++;
             } catch (Throwable t) {
                 LOGGER.at(Level.WARNING).withCause(t)
                         .log("[MysticNameTags] Failed to refresh nameplate during reload for " + uuid);
             }
         }
+        return refreshed;
     }
 
     public List<TagDefinition> getTagsPage(int page, int pageSize) {
+        List<TagDefinition> tagList = registry.all();
         if (pageSize <= 0 || tagList.isEmpty()) {
             return Collections.emptyList();
         }
@@ -1201,8 +1467,8 @@ public class TagManager {
             data.setEquipped(keyId);
         }
 
-        savePlayerData(uuid);
-        clearCanUseCache(uuid);
+        savePlayerData(uuid, data);
+        invalidateOwnershipChange(uuid, keyId);
 
         forceRefreshIfOnline(uuid);
 
@@ -1215,7 +1481,7 @@ public class TagManager {
         PlayerTagData data = getOrLoad(uuid);
         String keyId = id.toLowerCase(Locale.ROOT);
 
-        boolean removed = data.getOwned().remove(keyId);
+        boolean removed = data.removeOwned(keyId);
         if (!removed) {
             return false;
         }
@@ -1224,8 +1490,8 @@ public class TagManager {
             data.setEquipped(null);
         }
 
-        savePlayerData(uuid);
-        clearCanUseCache(uuid);
+        savePlayerData(uuid, data);
+        invalidateOwnershipChange(uuid, keyId);
 
         forceRefreshIfOnline(uuid);
 
@@ -1234,14 +1500,14 @@ public class TagManager {
 
     public boolean adminResetTags(@Nonnull UUID uuid) {
         PlayerTagData data = getOrLoad(uuid);
-        if (data.getOwned().isEmpty() && data.getEquipped() == null) {
+        if (data.isEmpty()) {
             return false;
         }
 
-        data.getOwned().clear();
+        data.clearOwned();
         data.setEquipped(null);
 
-        savePlayerData(uuid);
+        savePlayerData(uuid, data);
         clearCanUseCache(uuid);
 
         try {
@@ -1260,7 +1526,7 @@ public class TagManager {
             return false;
         }
 
-        for (TagDefinition def : tags.values()) {
+        for (TagDefinition def : registry.all()) {
             String perm = def.getPermission();
             if (perm == null || perm.isEmpty()) {
                 continue;
@@ -1332,7 +1598,8 @@ public class TagManager {
     }
 
     public void onExternalNameplateDataChanged(@Nonnull UUID uuid) {
-        clearCanUseCache(uuid);
+        // Fired on permission recalculation; stat / ownership decisions stay.
+        canUseCache.invalidatePermissions(uuid);
         forgetNameplate(uuid);
 
         try {
@@ -1358,15 +1625,12 @@ public class TagManager {
             return Collections.emptyList();
         }
 
-        List<TagDefinition> owned = new ArrayList<>();
-        for (TagDefinition def : tags.values()) {
-            if (def == null) continue;
-            String id = def.getId();
-            if (id == null || id.isBlank()) continue;
-
-            if (data.owns(id.toLowerCase(Locale.ROOT))) {
-                owned.add(def);
-            }
+        // Walk the set bits instead of testing every loaded tag.
+        TagRegistry reg = registry;
+        BitSet bits = data.ownedIndexes(reg);
+        List<TagDefinition> owned = new ArrayList<>(bits.cardinality());
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            owned.add(reg.defAt(i));
         }
         return owned;
     }
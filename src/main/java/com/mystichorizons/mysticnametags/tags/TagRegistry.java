@@ -0,0 +1,397 @@
+package com.mystichorizons.mysticnametags.tags;
+
+import com.google.gson.Gson;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable snapshot of the loaded tags.
+ *
+ * Everything readers need (id lookup, tags.json order, categories, tags per
+ * category, lowercase ids) is computed once in {@link #build} and never
+ * changes afterwards. TagManager publishes a new snapshot with a single
+ * volatile write on load / reload, so readers need no locking and never see
+ * a half-built set of tags.
+ *
+ * Every tag also gets a dense int index (its position in tags.json order);
+ * {@link TagDefinition#getIndex()} holds it for quick lookups. Each build
+ * gets a new generation so per-player ownership bits built against an older
+ * snapshot are recognised as stale.
+ *
+ * Each tag's requirements are compiled here as well
+ * ({@link CompiledRequirements}), with required tag ids resolved to indexes,
+ * and their stat thresholds indexed by stat ({@link StatThresholdIndex}).
+ *
+ * Data that is only needed later (each tag's JSON fingerprint, used by
+ * {@link #diffFrom} on reload, and which tags require each tag) is derived
+ * lazily on first use. {@link #warmUpAsync} computes it
+ * on a background thread so startup doesn't wait for it.
+ */
+public final class TagRegistry {
+
+    private static final AtomicInteger GENERATIONS = new AtomicInteger();
+    private static final Gson FINGERPRINT_GSON = new Gson();
+
+    public static final TagRegistry EMPTY = build(Map.of());
+
+    private final int generation;
+    private final String[] ids;
+    private final TagDefinition[] defs;
+    private final CompiledRequirements[] requirements;
+    private final StatThresholdIndex statThresholds;
+    private final Map<String, Integer> indexById;
+    private final Map<String, TagDefinition> byId;
+    private final List<TagDefinition> ordered;
+    private final List<String> categories;
+    // lowercase category -> tags in tags.json order
+    private final Map<String, List<TagDefinition>> byCategory;
+
+    private volatile Derived derived;
+
+    /**
+     * Lazily computed data; see {@link #derived()}.
+     *
+     * dependents[i] holds the tags that require tag i. contentHash covers
+     * every id and fingerprint in order.
+     */
+    private record Derived(String[] fingerprints, long contentHash, int[][] dependents) {
+    }
+
+    private TagRegistry(int generation,
+                        String[] ids,
+                        TagDefinition[] defs,
+                        Map<String, Integer> indexById,
+                        List<String> categories,
+                        Map<String, List<TagDefinition>> byCategory) {
+        this.generation = generation;
+        this.ids = ids;
+        this.defs = defs;
+        this.indexById = indexById;
+        this.requirements = new CompiledRequirements[defs.length];
+        for (int i = 0; i < defs.length; i++) {
+            requirements[i] = CompiledRequirements.compile(defs[i], this::indexOf);
+        }
+        this.statThresholds = StatThresholdIndex.build(requirements);
+        this.categories = categories;
+        this.byCategory = byCategory;
+        this.ordered = List.of(defs);
+
+        Map<String, TagDefinition> map = new LinkedHashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            map.put(ids[i], defs[i]);
+        }
+        this.byId = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * @param byLowercaseId tags keyed by lowercase id, in load order
+     */
+    @Nonnull
+    public static TagRegistry build(@Nonnull Map<String, TagDefinition> byLowercaseId) {
+        int size = byLowercaseId.size();
+        String[] ids = new String[size];
+        TagDefinition[] defs = new TagDefinition[size];
+        Map<String, Integer> indexById = new HashMap<>(size * 2);
+
+        Set<String> categories = new LinkedHashSet<>();
+        Map<String, List<TagDefinition>> byCategory = new HashMap<>();
+
+        int i = 0;
+        for (Map.Entry<String, TagDefinition> e : byLowercaseId.entrySet()) {
+            TagDefinition def = e.getValue();
+            ids[i] = e.getKey();
+            defs[i] = def;
+            def.setIndex(i);
+            indexById.put(e.getKey(), i);
+            i++;
+
+            // getCategory() is already trimmed and never blank
+            String cat = def.getCategory();
+            categories.add(cat);
+            byCategory.computeIfAbsent(cat.toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(def);
+        }
+
+        Map<String, List<TagDefinition>> frozen = new HashMap<>(byCategory.size() * 2);
+        for (Map.Entry<String, List<TagDefinition>> e : byCategory.entrySet()) {
+            frozen.put(e.getKey(), List.copyOf(e.getValue()));
+        }
+
+        return new TagRegistry(GENERATIONS.incrementAndGet(), ids, defs, indexById,
+                List.copyOf(categories), frozen);
+    }
+
+    /**
+     * Lowercase tag ids added, removed and modified between two snapshots.
+     */
+    public record Diff(Set<String> added, Set<String> removed, Set<String> modified) {
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && modified.isEmpty();
+        }
+
+        /**
+         * Every id whose definition differs in any way.
+         */
+        @Nonnull
+        public Set<String> changed() {
+            Set<String> all = new HashSet<>(added);
+            all.addAll(removed);
+            all.addAll(modified);
+            return all;
+        }
+    }
+
+    /**
+     * What changed from {@code previous} to this snapshot, comparing each
+     * tag's JSON fingerprint.
+     */
+    @Nonnull
+    public Diff diffFrom(@Nonnull TagRegistry previous) {
+        Set<String> added = new LinkedHashSet<>();
+        Set<String> modified = new LinkedHashSet<>();
+        for (int i = 0; i < ids.length; i++) {
+            Integer old = previous.indexById.get(ids[i]);
+            if (old == null) {
+                added.add(ids[i]);
+            } else if (!previous.derived().fingerprints[old].equals(derived().fingerprints[i])) {
+                modified.add(ids[i]);
+            }
+        }
+
+        Set<String> removed = new LinkedHashSet<>();
+        for (String id : previous.ids) {
+            if (!indexById.containsKey(id)) {
+                removed.add(id);
+            }
+        }
+
+        return new Diff(Collections.unmodifiableSet(added), Collections.unmodifiableSet(removed),
+                Collections.unmodifiableSet(modified));
+    }
+
+    /**
+     * Compiled requirements of the tag at {@code index}.
+     */
+    @Nonnull
+    CompiledRequirements requirementsAt(int index) {
+        return requirements[index];
+    }
+
+    /**
+     * Exact stat requirements of all tags, by stat.
+     */
+    @Nonnull
+    StatThresholdIndex statThresholds() {
+        return statThresholds;
+    }
+
+    /**
+     * Distinct wildcard stat keys ("killed.*") used by any requirement, as
+     * written in tags.json.
+     */
+    @Nonnull
+    public List<String> wildcardStatKeys() {
+        Set<String> keys = new LinkedHashSet<>();
+        for (CompiledRequirements compiled : requirements) {
+            for (CompiledRequirements.StatCheck check : compiled.stats()) {
+                if (check.category() == null && check.key().indexOf('*') >= 0) {
+                    keys.add(check.key());
+                }
+            }
+        }
+        return List.copyOf(keys);
+    }
+
+    /**
+     * Indexes of the tags that list {@code index} in requiredOwnedTags.
+     * Do not modify the returned array.
+     */
+    @Nonnull
+    public int[] dependentIndexes(int index) {
+        return derived().dependents[index];
+    }
+
+    /**
+     * Hash of every tag id and definition in order. Equal hashes mean two
+     * loads produced the same tags at the same indexes, e.g. across a
+     * restart with an unchanged tags.json.
+     */
+    public long contentHash() {
+        return derived().contentHash;
+    }
+
+    /**
+     * Compute the derived data on {@code executor}. The future completes with
+     * the time it took in milliseconds (0 if it was already computed).
+     */
+    @Nonnull
+    public CompletableFuture<Long> warmUpAsync(@Nonnull Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (derived != null) {
+                return 0L;
+            }
+            long start = System.nanoTime();
+            derived();
+            return (System.nanoTime() - start) / 1_000_000L;
+        }, executor);
+    }
+
+    @Nonnull
+    private Derived derived() {
+        Derived d = derived;
+        if (d == null) {
+            synchronized (this) {
+                d = derived;
+                if (d == null) {
+                    d = computeDerived();
+                    derived = d;
+                }
+            }
+        }
+        return d;
+    }
+
+    @Nonnull
+    private Derived computeDerived() {
+        int n = defs.length;
+        String[] fingerprints = new String[n];
+        int[] dependentCounts = new int[n];
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < n; i++) {
+            fingerprints[i] = FINGERPRINT_GSON.toJson(defs[i]);
+            hash = fnv(fnv(hash, ids[i]), fingerprints[i]);
+
+            for (int index : requirements[i].requiredTags()) {
+                dependentCounts[index]++;
+            }
+        }
+
+        int[][] dependents = new int[n][];
+        for (int i = 0; i < n; i++) {
+            dependents[i] = new int[dependentCounts[i]];
+            dependentCounts[i] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            for (int index : requirements[i].requiredTags()) {
+                dependents[index][dependentCounts[index]++] = i;
+            }
+        }
+
+        return new Derived(fingerprints, hash, dependents);
+    }
+
+    // FNV-1a over the string's chars, with a separator so "ab"+"c" != "a"+"bc"
+    private static long fnv(long hash, @Nonnull String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return (hash ^ 0xFFFF) * 0x100000001b3L;
+    }
+
+    public int generation() {
+        return generation;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Tag by id (any case), or null.
+     */
+    @Nullable
+    public TagDefinition get(@Nullable String id) {
+        int index = indexOf(id);
+        return index >= 0 ? defs[index] : null;
+    }
+
+    /**
+     * All tags in tags.json order (unmodifiable).
+     */
+    @Nonnull
+    public List<TagDefinition> all() {
+        return ordered;
+    }
+
+    /**
+     * Lowercase id -> tag, in tags.json order (unmodifiable).
+     */
+    @Nonnull
+    public Map<String, TagDefinition> byId() {
+        return byId;
+    }
+
+    /**
+     * Distinct categories in order of first appearance (unmodifiable).
+     */
+    @Nonnull
+    public List<String> categories() {
+        return categories;
+    }
+
+    /**
+     * Tags whose category equals {@code category}, ignoring case.
+     */
+    @Nonnull
+    public List<TagDefinition> inCategory(@Nullable String category) {
+        if (category == null) {
+            return List.of();
+        }
+        List<TagDefinition> list = byCategory.get(category.trim().toLowerCase(Locale.ROOT));
+        return list != null ? list : List.of();
+    }
+
+    /**
+     * Index of a tag id (any case), or -1 if no such tag is loaded.
+     */
+    public int indexOf(@Nullable String id) {
+        if (id == null) {
+            return -1;
+        }
+        Integer index = indexById.get(id);
+        if (index == null) {
+            String lower = id.toLowerCase(Locale.ROOT);
+            if (!lower.equals(id)) {
+                index = indexById.get(lower);
+            }
+        }
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Index of {@code def} if it belongs to this registry, else -1
+     * (e.g. a definition held across a reload).
+     */
+    public int indexOf(@Nonnull TagDefinition def) {
+        int index = def.getIndex();
+        return (index >= 0 && index < defs.length && defs[index] == def) ? index : -1;
+    }
+
+    /**
+     * Lowercase id at {@code index}.
+     */
+    @Nonnull
+    public String idAt(int index) {
+        return ids[index];
+    }
+
+    @Nonnull
+    public TagDefinition defAt(int index) {
+        return defs[index];
+    }
+}
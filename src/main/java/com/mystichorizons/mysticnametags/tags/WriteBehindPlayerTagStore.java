@@ -0,0 +1,222 @@
+package com.mystichorizons.mysticnametags.tags;
+
+import com.google.gson.Gson;
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Write-behind layer in front of another PlayerTagStore.
+ *
+ * save() only marks the player dirty; a single background writer drains
+ * the dirty set at most {@code flushDelayMs} later. Repeated saves for the
+ * same UUID before a drain collapse into one write of the latest state.
+ *
+ * Loads are answered from the dirty / in-flight entries first so callers
+ * never read back a stale row while a write is still queued.
+ *
+ * A failed drain puts its players back in the queue for the next one,
+ * unless a newer save was queued for them meanwhile.
+ */
+public final class WriteBehindPlayerTagStore implements PlayerTagStore {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private final PlayerTagStore delegate;
+    private final long flushDelayMs;
+
+    // Dirty players waiting for the next drain (latest live object per UUID)
+    private final Map<UUID, PlayerTagData> pending = new ConcurrentHashMap<>();
+
+    // Players currently being written by the drain
+    private final Map<UUID, PlayerTagData> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final ScheduledThreadPoolExecutor writer;
+
+    public WriteBehindPlayerTagStore(@Nonnull PlayerTagStore delegate, long flushDelayMs) {
+        this.delegate = delegate;
+        this.flushDelayMs = Math.max(1L, flushDelayMs);
+        this.writer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "MysticNameTags-TagWriter");
+            t.setDaemon(true);
+            return t;
+        });
+        // shutdown() drains on the caller; don't wait out a pending retry delay.
+        this.writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    @Nonnull
+    public PlayerTagStore getDelegate() {
+        return delegate;
+    }
+
+    public int getPendingCount() {
+        return pending.size() + inFlight.size();
+    }
+
+    @Nonnull
+    @Override
+    public PlayerTagData load(@Nonnull UUID uuid) {
+        PlayerTagData queued = pending.get(uuid);
+        if (queued == null) {
+            queued = inFlight.get(uuid);
+        }
+        if (queued != null) {
+            return queued;
+        }
+        return delegate.load(uuid);
+    }
+
+    @Override
+    public void save(@Nonnull UUID uuid, @Nonnull PlayerTagData data) {
+        pending.put(uuid, data);
+        scheduleFlush();
+    }
+
+    @Override
+    public void saveAll(@Nonnull Map<UUID, PlayerTagData> batch) {
+        pending.putAll(batch);
+        scheduleFlush();
+    }
+
+    @Override
+    public void delete(@Nonnull UUID uuid) {
+        pending.remove(uuid);
+
+        // Run on the writer so the delete is ordered after any in-flight save.
+        try {
+            writer.submit(() -> delegate.delete(uuid)).get();
+        } catch (RejectedExecutionException e) {
+            delegate.delete(uuid);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.at(Level.WARNING).withCause(e)
+                    .log("[MysticNameTags] Failed to delete queued tag data for " + uuid);
+        }
+    }
+
+    /**
+     * Blocks on a drain and the delegate's query; prefer
+     * {@link #countOwnersAsync}.
+     */
+    @Override
+    public int countOwners(@Nonnull String tagId) {
+        // Make queued unlocks visible to the query first.
+        flush();
+        return delegate.countOwners(tagId);
+    }
+
+    /**
+     * Drains and counts on the writer thread, so the count includes queued
+     * unlocks without the caller waiting on I/O.
+     */
+    @Nonnull
+    @Override
+    public CompletableFuture<Integer> countOwnersAsync(@Nonnull String tagId, @Nonnull Executor executor) {
+        try {
+            return CompletableFuture.supplyAsync(() -> countOwners(tagId), writer);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.supplyAsync(() -> countOwners(tagId), executor);
+        }
+    }
+
+    @Override
+    public void migrateFromFolder(@Nonnull File playerDataFolder, @Nonnull Gson gson) {
+        delegate.migrateFromFolder(playerDataFolder, gson);
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            writer.schedule(this::flush, flushDelayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: write through on the caller.
+            flushScheduled.set(false);
+            flush();
+        }
+    }
+
+    /**
+     * Write every dirty player now. Runs on the writer thread normally,
+     * and on the caller during shutdown.
+     */
+    public synchronized void flush() {
+        flushScheduled.set(false);
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // Snapshot every dirty player, then hand the lot to the delegate in
+        // one saveAll() so SQL backends write them in a single transaction.
+        Map<UUID, PlayerTagData> live = new HashMap<>();
+        Map<UUID, PlayerTagData> batch = new HashMap<>();
+        for (UUID uuid : pending.keySet()) {
+            PlayerTagData data = pending.remove(uuid);
+            if (data == null) {
+                continue;
+            }
+            inFlight.put(uuid, data);
+            live.put(uuid, data);
+            batch.put(uuid, data.copy());
+        }
+
+        try {
+            delegate.saveAll(batch);
+        } catch (Throwable t) {
+            LOGGER.at(Level.WARNING).withCause(t)
+                    .log("[MysticNameTags] Write-behind save failed for " + batch.size() + " players; re-queued.");
+            // Before leaving inFlight, so load() never misses them.
+            for (Map.Entry<UUID, PlayerTagData> e : live.entrySet()) {
+                pending.putIfAbsent(e.getKey(), e.getValue());
+            }
+            // Not from close(): a dead backend would make it loop.
+            if (!writer.isShutdown()) {
+                scheduleFlush();
+            }
+        } finally {
+            for (Map.Entry<UUID, PlayerTagData> e : live.entrySet()) {
+                inFlight.remove(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    /**
+     * Stop the writer and drain everything still queued.
+     */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+        if (!pending.isEmpty()) {
+            LOGGER.at(Level.SEVERE).log("[MysticNameTags] " + pending.size()
+                    + " players' tag data could not be written on shutdown.");
+        } else {
+            LOGGER.at(Level.INFO).log("[MysticNameTags] Tag write-behind queue drained.");
+        }
+        delegate.close();
+    }
+}
@@ -112,7 +112,7 @@ public class MysticNameTagsOwnedTagsUI extends InteractiveCustomUIPage<MysticNam
 
         for (TagDefinition def : all) {
             if (def == null || def.getId() == null) continue;
-            if (!tagManager.ownsTag(uuid, def.getId())) continue;
+            if (!tagManager.ownsTag(uuid, def)) continue;
 
             if (needle != null) {
                 String id = def.getId() != null ? def.getId() : "";
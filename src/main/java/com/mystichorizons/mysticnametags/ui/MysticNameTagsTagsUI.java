@@ -24,6 +24,7 @@ import com.mystichorizons.mysticnametags.integrations.WiFlowPlaceholderSupport;
 import com.mystichorizons.mysticnametags.tags.TagDefinition;
 import com.mystichorizons.mysticnametags.tags.TagManager;
 import com.mystichorizons.mysticnametags.tags.TagManager.TagPurchaseResult;
+import com.mystichorizons.mysticnametags.tags.TagRegistry;
 import com.mystichorizons.mysticnametags.util.ColorFormatter;
 import com.mystichorizons.mysticnametags.util.MysticNotificationUtil;
 
@@ -277,18 +278,23 @@ public class MysticNameTagsTagsUI extends InteractiveCustomUIPage<MysticNameTags
 
     private List<TagDefinition> createFilteredSnapshot() {
         TagManager tagManager = TagManager.get();
-        Collection<TagDefinition> all = tagManager.getAllTags();
+        // One snapshot so the tag list and categories agree during a reload.
+        TagRegistry registry = tagManager.getRegistry();
 
         boolean fullGate = Settings.get().isFullPermissionGateEnabled();
         boolean debugShowHidden = tagManager.isShowHiddenTagsForDebug();
 
-        List<String> categories = tagManager.getCategories();
+        List<String> categories = registry.categories();
         String selectedCategory = null;
 
         if (!categories.isEmpty() && categoryIndex > 0 && categoryIndex <= categories.size()) {
             selectedCategory = categories.get(categoryIndex - 1);
         }
 
+        Collection<TagDefinition> all = (selectedCategory != null)
+                ? registry.inCategory(selectedCategory)
+                : registry.all();
+
         String needle = (filterQuery != null) ? filterQuery.toLowerCase(Locale.ROOT) : null;
         List<TagDefinition> filtered = new ArrayList<>();
 
@@ -296,7 +302,7 @@ public class MysticNameTagsTagsUI extends InteractiveCustomUIPage<MysticNameTags
             if (def == null) continue;
 
             if (ownedOnly) {
-                if (uuid == null || def.getId() == null || !tagManager.ownsTag(uuid, def.getId())) {
+                if (uuid == null || def.getId() == null || !tagManager.ownsTag(uuid, def)) {
                     continue;
                 }
             }
@@ -313,11 +319,6 @@ public class MysticNameTagsTagsUI extends InteractiveCustomUIPage<MysticNameTags
                 continue;
             }
 
-            if (selectedCategory != null) {
-                String defCat = def.getCategory();
-                if (defCat == null || !defCat.equalsIgnoreCase(selectedCategory)) continue;
-            }
-
             filtered.add(def);
         }
 
@@ -587,7 +588,7 @@ public class MysticNameTagsTagsUI extends InteractiveCustomUIPage<MysticNameTags
 
             boolean canUse = canUseTag(tagManager, def);
             boolean isEquipped = equippedId != null && equippedId.equalsIgnoreCase(def.getId());
-            boolean owns = uuid != null && def.getId() != null && tagManager.ownsTag(uuid, def.getId());
+            boolean owns = uuid != null && def.getId() != null && tagManager.ownsTag(uuid, def);
             boolean hasCost = def.isPurchasable() && def.getPrice() > 0.0D;
 
             String perm = def.getPermission();
@@ -1028,7 +1029,7 @@ public class MysticNameTagsTagsUI extends InteractiveCustomUIPage<MysticNameTags
         }
 
         boolean canUse = canUseTag(manager, def);
-        boolean owns = uuid != null && def.getId() != null && manager.ownsTag(uuid, def.getId());
+        boolean owns = uuid != null && def.getId() != null && manager.ownsTag(uuid, def);
         boolean isEquipped = active != null
                 && active.getId() != null
                 && def.getId() != null
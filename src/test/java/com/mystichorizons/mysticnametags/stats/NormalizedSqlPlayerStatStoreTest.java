@@ -0,0 +1,117 @@
+package com.mystichorizons.mysticnametags.stats;
+
+import com.google.gson.Gson;
+import com.mystichorizons.mysticnametags.storage.SqlConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The write-behind queue in front of the SQLite-backed row store.
+ */
+class NormalizedSqlPlayerStatStoreTest {
+
+    @TempDir
+    File dir;
+
+    private final UUID player = UUID.randomUUID();
+
+    private SqlConnectionPool pool;
+    private NormalizedSqlPlayerStatStore sql;
+    private WriteBehindPlayerStatStore store;
+
+    @BeforeEach
+    void setUp() {
+        pool = SqlConnectionPool.sqlite(new File(dir, "stats.db"));
+        sql = new NormalizedSqlPlayerStatStore(pool, new Gson());
+        // Long staleness: the tests drive flush() themselves.
+        store = new WriteBehindPlayerStatStore(sql, 600_000L, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+        pool.close();
+    }
+
+    private void execute(String sql) throws SQLException {
+        pool.write(c -> {
+            try (Statement st = c.createStatement()) {
+                st.execute(sql);
+            }
+        });
+    }
+
+    @Test
+    void loadTimeBlockNormalizationIsNotCountedTwice() {
+        PlayerStatsData legacy = new PlayerStatsData();
+        legacy.increment("mined", "stone", 5);
+        sql.save(player, legacy);
+
+        PlayerStatsData data = store.load(player);
+        PlayerStatManager.normalizeLoadedBlockCategories(store, player, data);
+
+        // A block event after the load: canonical key, then the alias
+        data.increment("mined", "hytale:stone", 1);
+        store.addDelta(player, StatKeys.id("mined", "hytale:stone"), 1);
+        data.increment("mined", "stone", 1);
+        store.addDelta(player, StatKeys.id("mined", "stone"), 1);
+        store.flush();
+
+        PlayerStatsData stored = sql.load(player);
+        assertEquals(6L, stored.get("mined", "hytale:stone"));
+        assertEquals(6L, stored.get("mined", "stone"));
+        assertEquals(data.getAll(), stored.getAll());
+    }
+
+    @Test
+    void failedSaveIsRequeued() throws SQLException {
+        PlayerStatsData data = new PlayerStatsData();
+        data.increment("custom", "sql_kills", 3);
+        store.save(player, data);
+
+        execute("ALTER TABLE mystic_stats RENAME TO mystic_stats_away");
+        store.flush();
+        assertEquals(1, store.getPendingCount());
+
+        execute("ALTER TABLE mystic_stats_away RENAME TO mystic_stats");
+        store.flush();
+        assertEquals(0, store.getPendingCount());
+        assertEquals(3L, sql.load(player).get("custom", "sql_kills"));
+    }
+
+    @Test
+    void failedDeltasAreRequeued() throws SQLException {
+        int kills = StatKeys.id("custom", "sql_kills");
+        store.addDelta(player, kills, 2);
+
+        execute("ALTER TABLE mystic_stats RENAME TO mystic_stats_away");
+        store.flush();
+        assertEquals(1, store.getPendingCount());
+        store.addDelta(player, kills, 1);
+
+        execute("ALTER TABLE mystic_stats_away RENAME TO mystic_stats");
+        store.flush();
+        assertEquals(0, store.getPendingCount());
+        assertEquals(3L, sql.load(player).get("custom", "sql_kills"));
+    }
+
+    @Test
+    void batchFallbackReportsPlayersThatStillFail() throws SQLException {
+        PlayerStatsData data = new PlayerStatsData();
+        data.increment("custom", "sql_kills", 3);
+
+        execute("ALTER TABLE mystic_stats RENAME TO mystic_stats_away");
+        assertThrows(IllegalStateException.class, () -> sql.saveAll(Map.of(player, data)));
+    }
+}
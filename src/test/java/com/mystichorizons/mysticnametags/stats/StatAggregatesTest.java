@@ -0,0 +1,154 @@
+package com.mystichorizons.mysticnametags.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Running totals must read the same number as summing by query.
+ */
+class StatAggregatesTest {
+
+    /**
+     * Registered total if usable, else the query path, as PlayerStatManager
+     * reads it.
+     */
+    private static long read(PlayerStatsData data, StatAggregates table, String key) {
+        long total = data.total(table, table.slotOf(key));
+        return total >= 0L ? total : StatQueryTest.compile(key).sum(data);
+    }
+
+    private static StatAggregates table(String... keys) {
+        return StatAggregates.build(List.of(keys), StatQueryTest::compile);
+    }
+
+    @Test
+    void totalsFollowIncrementsAfterSeeding() {
+        StatAggregates table = table("agg_kills.*");
+        PlayerStatsData data = new PlayerStatsData();
+        data.increment("agg_kills", "zombie", 3);
+
+        assertEquals(3L, data.total(table, 0));
+        data.increment("agg_kills", "skeleton", 2);
+        data.increment("agg_kills", "zombie", 1);
+        data.increment("other", "zombie", 100);
+        assertEquals(6L, data.total(table, 0));
+    }
+
+    @Test
+    void negativeStatsCountAsZeroLikeTheQuery() {
+        String key = "agg_neg.*";
+        StatAggregates table = table(key);
+        PlayerStatsData data = new PlayerStatsData();
+        data.increment("agg_neg", "a", 5);
+        data.increment("agg_neg", "b", -4);
+        assertEquals(StatQueryTest.legacySum(data, key), data.total(table, 0));
+
+        data.increment("agg_neg", "a", -8);   // a: -3
+        data.increment("agg_neg", "b", 6);    // b: 2
+        assertEquals(StatQueryTest.legacySum(data, key), data.total(table, 0));
+        assertEquals(2L, data.total(table, 0));
+    }
+
+    @Test
+    void blockAliasAheadOfCanonicalFallsBackToTheQuery() {
+        String key = "mined.agg_*";
+        StatAggregates table = table(key);
+        PlayerStatsData data = new PlayerStatsData();
+        data.increment("mined", "hytale:agg_stone", 4);
+        data.increment("mined", "agg_stone", 4);
+        assertEquals(4L, read(data, table, key));
+
+        // Block events: canonical first, then the alias
+        data.increment("mined", "hytale:agg_stone", 1);
+        data.increment("mined", "agg_stone", 1);
+        assertEquals(5L, data.total(table, 0));
+
+        // Admin edit of the bare key only
+        data.increment("mined", "agg_stone", 10);
+        assertEquals(-1L, data.total(table, 0));
+        assertEquals(StatQueryTest.legacySum(data, key), read(data, table, key));
+
+        // Mixed-case key seeded ahead of its canonical one
+        PlayerStatsData other = new PlayerStatsData();
+        other.increment("mined", "Agg_Gold", 3);
+        assertEquals(StatQueryTest.legacySum(other, key), read(other, table, key));
+    }
+
+    @Test
+    void canonicalDecreaseBelowItsAliasFallsBackToTheQuery() {
+        String key = "mined.aggdec_*";
+        StatAggregates table = table(key);
+        PlayerStatsData data = new PlayerStatsData();
+        data.increment("mined", "hytale:aggdec_stone", 6);
+        data.increment("mined", "aggdec_stone", 6);
+        assertEquals(6L, data.total(table, 0));
+
+        // Admin edit of the canonical key only: the alias now holds the max
+        data.increment("mined", "hytale:aggdec_stone", -4);
+        assertEquals(-1L, data.total(table, 0));
+        assertEquals(6L, read(data, table, key));
+        assertEquals(StatQueryTest.legacySum(data, key), read(data, table, key));
+    }
+
+    @Test
+    void newTableIsReseeded() {
+        PlayerStatsData data = new PlayerStatsData();
+        data.increment("agg_reseed", "a", 2);
+        assertEquals(2L, data.total(table("agg_reseed.*"), 0));
+
+        StatAggregates next = table("agg_reseed.a*", "agg_reseed.*");
+        data.increment("agg_reseed", "b", 1);
+        assertEquals(2L, data.total(next, next.slotOf("agg_reseed.a*")));
+        assertEquals(3L, data.total(next, next.slotOf("agg_reseed.*")));
+    }
+
+    @Test
+    void concurrentIncrementsMatchTheQuery() throws Exception {
+        String key = "agg_race.*";
+        StatAggregates table = table(key);
+        PlayerStatsData data = new PlayerStatsData();
+        int threads = 4;
+        int rounds = 20_000;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                String stat = "s" + t;
+                futures[t] = pool.submit(() -> {
+                    start.await();
+                    for (int r = 0; r < rounds; r++) {
+                        data.increment("agg_race", stat, 1);
+                    }
+                    return null;
+                });
+            }
+            // Seeding races the writers
+            Future<?> reader = pool.submit(() -> {
+                start.await();
+                for (int r = 0; r < 1_000; r++) {
+                    read(data, table, key);
+                }
+                return null;
+            });
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+            reader.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals((long) threads * rounds, read(data, table, key));
+    }
+}
@@ -0,0 +1,143 @@
+package com.mystichorizons.mysticnametags.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatCountersTest {
+
+    @Test
+    void missingStatReadsZero() {
+        assertEquals(0L, new StatCounters().get(42));
+    }
+
+    @Test
+    void growsPastManySegmentsAndRehashes() {
+        StatCounters counters = new StatCounters();
+        int n = 5_000;
+        for (int id = 0; id < n; id++) {
+            assertEquals(id + 1L, counters.addAndGet(id, id + 1L));
+        }
+        for (int id = 0; id < n; id++) {
+            assertEquals(id + 1L, counters.get(id));
+        }
+
+        Map<Integer, Long> visited = new HashMap<>();
+        counters.forEach(visited::put);
+        assertEquals(n, visited.size());
+        assertEquals(n + 0L, visited.get(n - 1));
+    }
+
+    @Test
+    void setOverwritesAndZeroKeepsTheSlot() {
+        StatCounters counters = new StatCounters();
+        counters.addAndGet(7, 5L);
+        counters.set(7, 2L);
+        assertEquals(2L, counters.get(7));
+
+        counters.addAndGet(7, -2L);
+        int[] seen = new int[1];
+        counters.forEach((id, value) -> seen[0]++);
+        assertEquals(1, seen[0]);
+        assertEquals(0L, counters.get(7));
+    }
+
+    @Test
+    void clearDropsEverything() {
+        StatCounters counters = new StatCounters();
+        counters.addAndGet(1, 1L);
+        counters.clear();
+        assertEquals(0L, counters.get(1));
+    }
+
+    @Test
+    void concurrentIncrementsWhileGrowingLoseNothing() throws Exception {
+        StatCounters counters = new StatCounters();
+        int threads = 8;
+        int ids = 300;          // forces several grows while threads race
+        int rounds = 200;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                futures[t] = pool.submit(() -> {
+                    start.await();
+                    for (int r = 0; r < rounds; r++) {
+                        for (int id = 0; id < ids; id++) {
+                            counters.addAndGet(id, 1L);
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (int id = 0; id < ids; id++) {
+            assertEquals((long) threads * rounds, counters.get(id), "id " + id);
+        }
+    }
+
+    @Test
+    void statKeysAreStableAndNamed() {
+        int id = StatKeys.id("custom", "stat_counters_test");
+        assertEquals(id, StatKeys.id("custom", "stat_counters_test"));
+        assertEquals(id, StatKeys.find("custom", "stat_counters_test"));
+        assertEquals(-1, StatKeys.find("custom", "stat_counters_test_missing"));
+        assertEquals("custom.stat_counters_test", StatKeys.key(id));
+        assertTrue(id < StatKeys.size());
+    }
+
+    @Test
+    void concurrentRegistrationHandsOutOneIdPerKey() throws Exception {
+        int threads = 8;
+        int keys = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            @SuppressWarnings("unchecked")
+            Future<int[]>[] futures = new Future[threads];
+            for (int t = 0; t < threads; t++) {
+                futures[t] = pool.submit(() -> {
+                    start.await();
+                    int[] got = new int[keys];
+                    for (int k = 0; k < keys; k++) {
+                        got[k] = StatKeys.id("concurrent_reg", "k" + k);
+                    }
+                    return got;
+                });
+            }
+            start.countDown();
+            int[] first = futures[0].get(60, TimeUnit.SECONDS);
+            for (int t = 1; t < threads; t++) {
+                int[] other = futures[t].get(60, TimeUnit.SECONDS);
+                for (int k = 0; k < keys; k++) {
+                    assertEquals(first[k], other[k]);
+                }
+            }
+            for (int k = 0; k < keys; k++) {
+                assertEquals("k" + k, StatKeys.stat(first[k]));
+                assertFalse(first[k] < 0);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.mystichorizons.mysticnametags.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Glob and StatQuery against the regex matcher they replaced.
+ */
+class StatQueryTest {
+
+    private static final List<String> PATTERNS = List.of(
+            "*", "**", "killed.*", "killed.*zombie*", "*zombie", "*.zombie", "kill*.x",
+            "killed.Zom*ie", "custom.*_total", "a.b*c*d", "weird.(x)*", "weird.x+y*",
+            "mined.*", "mined.*_ore", "mined.hytale:*", "mined.stone*", "mined.*stone",
+            "placed.*log", "mined.", "mined.*:*");
+
+    private static final List<String> INPUTS = List.of(
+            "", "a", "killed.zombie", "killed.Zombie", "killed.big_zombie_boss", "kill.x",
+            "killed.x", "custom.kills_total", "a.bcd", "a.bxcyd", "a.bd", "weird.(x)1",
+            "weird.x+y", "weird.xxy", "x.zombie", "zombie");
+
+    @Test
+    void globMatchesLikeTheOldRegex() {
+        for (String pattern : PATTERNS) {
+            Glob glob = Glob.compile(pattern);
+            String regex = legacyRegex(pattern);
+            for (String input : INPUTS) {
+                assertEquals(input.matches(regex), glob.matches(input), pattern + " vs " + input);
+            }
+        }
+    }
+
+    @Test
+    void sumMatchesTheOldScanForEveryPattern() {
+        PlayerStatsData data = new PlayerStatsData();
+        data.increment("killed", "zombie", 5);
+        data.increment("killed", "Zombie", 2);
+        data.increment("killed", "big_zombie_boss", 1);
+        data.increment("killed", "skeleton", 4);
+        data.increment("killed", "negative", -3);
+        data.increment("kill", "x", 7);
+        data.increment("custom", "kills_total", 12);
+        data.increment("custom", "deaths_total", 1);
+        // Canonical + legacy alias of one block, counted once (max)
+        data.increment("mined", "hytale:stone", 10);
+        data.increment("mined", "stone", 10);
+        // Alias ahead of its canonical key
+        data.increment("mined", "hytale:iron_ore", 2);
+        data.increment("mined", "iron_ore", 6);
+        // Mixed case and bare-only keys
+        data.increment("mined", "Gold_Ore", 3);
+        data.increment("mined", "copper_ore", 1);
+        data.increment("placed", "hytale:oak_log", 8);
+        data.increment("placed", "oak_log", 8);
+
+        for (String pattern : PATTERNS) {
+            assertEquals(legacySum(data, pattern), compile(pattern).sum(data), pattern);
+        }
+    }
+
+    @Test
+    void newStatsAreSeenAfterTheFirstQuery() {
+        PlayerStatsData data = new PlayerStatsData();
+        StatQuery query = compile("late.*");
+        assertEquals(0L, query.sum(data));
+
+        data.increment("late", "first", 2);
+        data.increment("late", "second", 3);
+        assertEquals(5L, query.sum(data));
+    }
+
+    @Test
+    void cachedSumFollowsIncrements() {
+        PlayerStatsData data = new PlayerStatsData();
+        StatQuery query = compile("cached.*");
+        data.increment("cached", "a", 1);
+        assertEquals(1L, data.sum(query));
+        assertEquals(1L, data.sum(query));
+
+        data.increment("cached", "b", 4);
+        assertEquals(5L, data.sum(query));
+    }
+
+    // ------------------------------------------------------------------
+    // Reference: the string/regex implementation StatQuery replaced
+    // ------------------------------------------------------------------
+
+    /**
+     * How PlayerStatManager compiles a key: split at the first dot, "custom"
+     * when there is none.
+     */
+    static StatQuery compile(String pattern) {
+        String trimmed = pattern.trim();
+        int dot = trimmed.indexOf('.');
+        if (dot <= 0 || dot == trimmed.length() - 1) {
+            return StatQuery.compile(trimmed, "custom", trimmed);
+        }
+        return StatQuery.compile(trimmed, trimmed.substring(0, dot), trimmed.substring(dot + 1));
+    }
+
+    static long legacySum(PlayerStatsData data, String pattern) {
+        String trimmed = pattern.trim();
+        int dot = trimmed.indexOf('.');
+        String category = (dot <= 0 || dot == trimmed.length() - 1) ? "custom" : trimmed.substring(0, dot);
+        String stat = (dot <= 0 || dot == trimmed.length() - 1) ? trimmed : trimmed.substring(dot + 1);
+
+        if (PlayerStatManager.isBlockCategory(category)) {
+            return legacyBlockSum(data, category, stat);
+        }
+
+        String regex = legacyRegex(pattern);
+        long total = 0L;
+        for (Map.Entry<String, Map<String, Long>> cat : data.getAll().entrySet()) {
+            for (Map.Entry<String, Long> e : cat.getValue().entrySet()) {
+                if ((cat.getKey() + "." + e.getKey()).matches(regex) && e.getValue() > 0L) {
+                    total += e.getValue();
+                }
+            }
+        }
+        return total;
+    }
+
+    private static long legacyBlockSum(PlayerStatsData data, String category, String statPattern) {
+        String normalizedPattern = PlayerStatManager.normalizeBlockPattern(statPattern);
+        String normalizedRegex = legacyRegex(normalizedPattern);
+        String bareRegex = legacyRegex(PlayerStatManager.stripNamespace(normalizedPattern));
+
+        Map<String, Long> deduped = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> e : data.getCategory(category).entrySet()) {
+            String raw = e.getKey();
+            long value = e.getValue();
+            if (raw.isBlank() || value <= 0L) {
+                continue;
+            }
+            String normalized = PlayerStatManager.normalizeBlockId(raw);
+            String bare = PlayerStatManager.stripNamespace(normalized);
+            if (normalized.matches(normalizedRegex) || bare.matches(bareRegex)
+                    || raw.matches(normalizedRegex) || raw.matches(bareRegex)) {
+                deduped.merge(normalized, value, Math::max);
+            }
+        }
+        long total = 0L;
+        for (long value : deduped.values()) {
+            total += value;
+        }
+        return total;
+    }
+
+    static String legacyRegex(String pattern) {
+        StringBuilder sb = new StringBuilder("^");
+        for (char c : pattern.toCharArray()) {
+            switch (c) {
+                case '*' -> sb.append(".*");
+                case '.' -> sb.append("\\.");
+                case '\\' -> sb.append("\\\\");
+                case '(', ')', '[', ']', '{', '}', '+', '?', '^', '$', '|' -> sb.append('\\').append(c);
+                default -> sb.append(c);
+            }
+        }
+        return sb.append('$').toString();
+    }
+}
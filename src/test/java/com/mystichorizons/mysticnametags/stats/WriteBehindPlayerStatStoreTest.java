@@ -0,0 +1,177 @@
+package com.mystichorizons.mysticnametags.stats;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindPlayerStatStoreTest {
+
+    /**
+     * Delta-capable store whose writes fail while {@code failing} is set.
+     */
+    private static final class FlakyStore implements PlayerStatStore {
+        boolean failing;
+        Runnable whileFailing = () -> { };
+        String deltaThread;
+        final Map<UUID, Map<String, Long>> applied = new HashMap<>();
+        final List<Map<UUID, PlayerStatsData>> saved = new ArrayList<>();
+
+        @Nonnull
+        @Override
+        public PlayerStatsData load(@Nonnull UUID uuid) {
+            return new PlayerStatsData();
+        }
+
+        @Override
+        public void save(@Nonnull UUID uuid, @Nonnull PlayerStatsData data) {
+            saveAll(Map.of(uuid, data));
+        }
+
+        @Override
+        public void saveAll(@Nonnull Map<UUID, PlayerStatsData> batch) {
+            if (failing) {
+                whileFailing.run();
+                throw new IllegalStateException("backend down");
+            }
+            saved.add(new HashMap<>(batch));
+        }
+
+        @Override
+        public boolean supportsDeltas() {
+            return true;
+        }
+
+        @Override
+        public void applyDeltasAll(@Nonnull Map<UUID, Map<String, Long>> batch) {
+            deltaThread = Thread.currentThread().getName();
+            if (failing) {
+                throw new IllegalStateException("backend down");
+            }
+            batch.forEach((uuid, deltas) -> deltas.forEach((key, delta) ->
+                    applied.computeIfAbsent(uuid, u -> new HashMap<>()).merge(key, delta, Long::sum)));
+        }
+
+        @Override
+        public void applyDeltas(@Nonnull UUID uuid, @Nonnull Map<String, Long> deltas) {
+            applyDeltasAll(Map.of(uuid, deltas));
+        }
+    }
+
+    private final UUID player = UUID.randomUUID();
+    private final int kills = StatKeys.id("custom", "wb_test_kills");
+
+    private FlakyStore delegate;
+    private WriteBehindPlayerStatStore store;
+
+    @BeforeEach
+    void setUp() {
+        delegate = new FlakyStore();
+        // Long staleness: the tests drive flush() themselves.
+        store = new WriteBehindPlayerStatStore(delegate, 600_000L, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        delegate.failing = false;
+        store.close();
+    }
+
+    @Test
+    void failedDeltaFlushIsRequeuedAndMergedWithNewDeltas() {
+        store.addDelta(player, kills, 3L);
+
+        delegate.failing = true;
+        store.flush();
+        assertEquals(1, store.getPendingCount());
+        assertTrue(delegate.applied.isEmpty());
+
+        store.addDelta(player, kills, 2L);
+
+        delegate.failing = false;
+        store.flush();
+        assertEquals(0, store.getPendingCount());
+        assertEquals(5L, delegate.applied.get(player).get("custom.wb_test_kills"));
+    }
+
+    @Test
+    void failedSaveIsRequeued() {
+        PlayerStatsData first = new PlayerStatsData();
+        store.save(player, first);
+
+        delegate.failing = true;
+        store.flush();
+        assertEquals(1, store.getPendingCount());
+
+        delegate.failing = false;
+        store.flush();
+        assertEquals(1, delegate.saved.size());
+        assertSame(first, delegate.saved.get(0).get(player));
+    }
+
+    @Test
+    void newerSaveQueuedDuringAFailedWriteWins() {
+        PlayerStatsData first = new PlayerStatsData();
+        PlayerStatsData second = new PlayerStatsData();
+        store.save(player, first);
+
+        delegate.failing = true;
+        delegate.whileFailing = () -> store.save(player, second);
+        store.flush();
+
+        delegate.failing = false;
+        store.flush();
+        assertEquals(1, delegate.saved.size());
+        assertSame(second, delegate.saved.get(0).get(player));
+    }
+
+    @Test
+    void failedFlushPlayerIsRequeued() {
+        store.addDelta(player, kills, 4L);
+
+        delegate.failing = true;
+        // Through load(), which writes the player's deltas first.
+        store.load(player);
+        assertEquals(1, store.getPendingCount());
+
+        delegate.failing = false;
+        store.flush();
+        assertEquals(4L, delegate.applied.get(player).get("custom.wb_test_kills"));
+    }
+
+    @Test
+    void loadOfAQueuedSaveIsADetachedCopy() {
+        PlayerStatsData queued = new PlayerStatsData();
+        queued.increment(kills, 2L);
+        store.save(player, queued);
+        store.addDelta(player, kills, 1L);
+
+        PlayerStatsData loaded = store.load(player);
+        assertNotSame(queued, loaded);
+        assertEquals(3L, loaded.get(kills));
+
+        loaded.increment(kills, 10L);
+        assertEquals(2L, queued.get(kills));
+    }
+
+    @Test
+    void loadWritesPendingDeltasOnTheWriter() {
+        store.addDelta(player, kills, 4L);
+
+        store.load(player);
+        assertEquals("MysticNameTags-StatWriter", delegate.deltaThread);
+        assertEquals(4L, delegate.applied.get(player).get("custom.wb_test_kills"));
+        assertEquals(0, store.getPendingCount());
+    }
+}
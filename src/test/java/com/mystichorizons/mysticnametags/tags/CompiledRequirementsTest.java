@@ -0,0 +1,23 @@
+package com.mystichorizons.mysticnametags.tags;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompiledRequirementsTest {
+
+    @Test
+    void untouchedStatNeverMeetsARequirement() {
+        assertFalse(CompiledRequirements.statMet(null, 0L));
+        assertFalse(CompiledRequirements.statMet(null, -5L));
+        assertFalse(CompiledRequirements.statMet(null, 1L));
+    }
+
+    @Test
+    void statMeetsAtOrAboveItsMin() {
+        assertTrue(CompiledRequirements.statMet(5L, 5L));
+        assertTrue(CompiledRequirements.statMet(6L, 5L));
+        assertFalse(CompiledRequirements.statMet(4L, 5L));
+    }
+}
@@ -0,0 +1,25 @@
+package com.mystichorizons.mysticnametags.tags;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PlayerTagDataTest {
+
+    @Test
+    void ownedIsADetachedSnapshot() {
+        PlayerTagData data = new PlayerTagData();
+        data.addOwned("vip");
+
+        Set<String> owned = data.getOwned();
+        data.addOwned("mvp");
+        data.removeOwned("vip");
+
+        assertEquals(Set.of("vip"), owned);
+        assertEquals(Set.of("mvp"), data.getOwned());
+        assertThrows(UnsupportedOperationException.class, () -> owned.add("admin"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.mystichorizons.mysticnametags.tags;
+
+import com.google.gson.Gson;
+import com.mystichorizons.mysticnametags.storage.SqlConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The write-behind queue in front of the SQLite-backed row store, with
+ * the store's own failures.
+ */
+class WriteBehindPlayerTagStoreTest {
+
+    @TempDir
+    File dir;
+
+    private final UUID player = UUID.randomUUID();
+
+    private SqlConnectionPool pool;
+    private NormalizedSqlPlayerTagStore sql;
+    private WriteBehindPlayerTagStore store;
+
+    @BeforeEach
+    void setUp() {
+        pool = SqlConnectionPool.sqlite(new File(dir, "tags.db"));
+        sql = new NormalizedSqlPlayerTagStore(pool, new Gson());
+        // Long delay: the tests drive flush() themselves.
+        store = new WriteBehindPlayerTagStore(sql, 600_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+        pool.close();
+    }
+
+    private void execute(String sql) throws SQLException {
+        pool.write(c -> {
+            try (Statement st = c.createStatement()) {
+                st.execute(sql);
+            }
+        });
+    }
+
+    @Test
+    void failedSqlSaveIsRequeued() throws SQLException {
+        PlayerTagData data = new PlayerTagData();
+        data.addOwned("vip");
+        store.save(player, data);
+
+        execute("ALTER TABLE mystic_player_tags RENAME TO mystic_player_tags_away");
+        store.flush();
+        assertEquals(1, store.getPendingCount());
+        assertTrue(store.load(player).owns("vip"));
+
+        execute("ALTER TABLE mystic_player_tags_away RENAME TO mystic_player_tags");
+        store.flush();
+        assertEquals(0, store.getPendingCount());
+        assertTrue(sql.load(player).owns("vip"));
+    }
+
+    @Test
+    void batchFallbackReportsPlayersThatStillFail() throws SQLException {
+        PlayerTagData data = new PlayerTagData();
+        data.addOwned("vip");
+
+        execute("ALTER TABLE mystic_player_tags RENAME TO mystic_player_tags_away");
+        assertThrows(IllegalStateException.class, () -> sql.saveAll(Map.of(player, data)));
+
+        execute("ALTER TABLE mystic_player_tags_away RENAME TO mystic_player_tags");
+        assertFalse(sql.load(player).owns("vip"));
+    }
+}